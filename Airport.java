@@ -1,13 +1,23 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * The Airport class represents an airport in the flight planner graph.
  * Each airport has a unique identifier and can have multiple routes connected to it.
+ *
+ * Routes are kept in a plain list, so adding one is O(1) however many the airport has.
+ * Readers get an immutable copy that is made on the first read after a change and then shared
+ * until the next change; the airport's own lock keeps the copy consistent with the writers.
  */
 class Airport {
-    private int id;  // Unique identifier for each airport
-    private List<Route> routes;  // List of routes (edges) connected to the airport
+    static final double EARTH_RADIUS_KM = 6371.0;  // Mean Earth radius used for great-circle distances
+
+    private final int id;  // Unique identifier for each airport
+    private final double latitude;  // Latitude in degrees, NaN when unknown
+    private final double longitude;  // Longitude in degrees, NaN when unknown
+    private final List<Route> routes;  // List of routes (edges) connected to the airport, guarded by this
+    private List<Route> published;  // Immutable copy of routes handed to readers, null when stale, guarded by this
 
     /**
      * Constructor to initialize an airport with a unique id.
@@ -15,7 +25,20 @@ class Airport {
      * @param id the unique identifier for this airport
      */
     public Airport(int id) {
+        this(id, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Constructor to initialize an airport with a unique id and its location.
+     *
+     * @param id        the unique identifier for this airport
+     * @param latitude  the latitude of the airport in degrees
+     * @param longitude the longitude of the airport in degrees
+     */
+    public Airport(int id, double latitude, double longitude) {
         this.id = id;
+        this.latitude = latitude;
+        this.longitude = longitude;
         this.routes = new ArrayList<>();
     }
 
@@ -24,8 +47,30 @@ class Airport {
      *
      * @param route the route to be added to this airport
      */
-    public void addRoute(Route route) {
+    public synchronized void addRoute(Route route) {
         routes.add(route);
+        published = null;
+    }
+
+    /**
+     * Adds several routes (edges) to the airport at once.
+     *
+     * @param added the routes to be added to this airport
+     */
+    synchronized void addRoutes(List<Route> added) {
+        routes.addAll(added);
+        published = null;
+    }
+
+    /**
+     * Removes a route (edge) from the airport.
+     *
+     * @param route the route to be removed from this airport
+     * @return true if the route was connected to this airport
+     */
+    synchronized boolean removeRoute(Route route) {
+        published = null;
+        return routes.remove(route);
     }
 
     /**
@@ -38,16 +83,65 @@ class Airport {
     }
 
     /**
-     * Gets all the routes associated with this airport.
+     * Gets the latitude of the airport.
+     *
+     * @return the latitude in degrees, or NaN if the location is unknown
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * Gets the longitude of the airport.
+     *
+     * @return the longitude in degrees, or NaN if the location is unknown
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Checks whether the location of the airport is known.
+     *
+     * @return true if both latitude and longitude are set
+     */
+    public boolean hasLocation() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
+    }
+
+    /**
+     * Gets all the routes associated with this airport. The list is a read-only copy that does
+     * not change when routes are added or removed later, so it is safe to iterate on any thread.
      *
      * @return a list of routes connected to this airport
      */
-    public List<Route> getRoutes() {
-        return routes;
+    public synchronized List<Route> getRoutes() {
+        if (published == null) {
+            published = Collections.unmodifiableList(new ArrayList<>(routes));
+        }
+        return published;
+    }
+
+    /**
+     * Computes the great-circle distance between two points on Earth (haversine formula).
+     *
+     * @param latitude1  the latitude of the first point in degrees
+     * @param longitude1 the longitude of the first point in degrees
+     * @param latitude2  the latitude of the second point in degrees
+     * @param longitude2 the longitude of the second point in degrees
+     * @return the distance between the points in kilometers
+     */
+    static double greatCircleDistance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double sinHalfPhi = Math.sin((phi2 - phi1) / 2);
+        double sinHalfLambda = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = sinHalfPhi * sinHalfPhi + Math.cos(phi1) * Math.cos(phi2) * sinHalfLambda * sinHalfLambda;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
     }
 
     @Override
     public String toString() {
-        return "Airport{" + "id=" + id + ", routes=" + routes + '}';
+        return "Airport{" + "id=" + id + ", routes=" + getRoutes() + '}';
     }
 }
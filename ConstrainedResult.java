@@ -0,0 +1,74 @@
+/**
+ * The ConstrainedResult class holds the outcome of a budget-constrained route search: the
+ * cheapest route that stays within the travel time, distance and stop limits, and counters
+ * describing how much work the search did.
+ */
+class ConstrainedResult {
+    private final RouteSummary route;  // Cheapest route within the limits, empty if none was found
+    private final int labelsCreated;  // Partial routes created during the search
+    private final int labelsPruned;  // Partial routes discarded as dominated or over a limit
+    private final boolean truncated;  // Whether the search stopped early at its label limit
+
+    /**
+     * Constructor to initialize a result.
+     *
+     * @param route         The cheapest route within the limits, with an empty path if none was found.
+     * @param labelsCreated The number of partial routes created.
+     * @param labelsPruned  The number of partial routes discarded.
+     * @param truncated     Whether the search hit its label limit.
+     */
+    public ConstrainedResult(RouteSummary route, int labelsCreated, int labelsPruned, boolean truncated) {
+        this.route = route;
+        this.labelsCreated = labelsCreated;
+        this.labelsPruned = labelsPruned;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Gets the cheapest route that stays within every limit.
+     *
+     * @return The route; its path is empty if no route fits the limits.
+     */
+    public RouteSummary getRoute() {
+        return route;
+    }
+
+    /**
+     * Gets the number of partial routes the search created.
+     *
+     * @return The number of labels created.
+     */
+    public int getLabelsCreated() {
+        return labelsCreated;
+    }
+
+    /**
+     * Gets the number of partial routes the search discarded because another route dominated
+     * them or they could not reach the destination within the limits.
+     *
+     * @return The number of labels pruned.
+     */
+    public int getLabelsPruned() {
+        return labelsPruned;
+    }
+
+    /**
+     * Checks whether the search stopped at its label limit, in which case a route within the
+     * limits may exist even though none was returned.
+     *
+     * @return true if the search was cut short.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public String toString() {
+        return "ConstrainedResult{" +
+                "route=" + route +
+                ", labelsCreated=" + labelsCreated +
+                ", labelsPruned=" + labelsPruned +
+                ", truncated=" + truncated +
+                '}';
+    }
+}
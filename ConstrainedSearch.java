@@ -0,0 +1,239 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The ConstrainedSearch class finds the cheapest route between two airports that stays within
+ * limits on travel time, distance and the number of stops (a resource-constrained shortest
+ * path). A label is a partial route with its cost and the resources it has used; labels are
+ * taken from a priority queue in order of their cost plus the exact remaining cost to the
+ * destination, so the first label that reaches the destination is the answer.
+ *
+ * Backward single-criterion searches from the destination give, for every airport, the least
+ * time, distance and number of flights still needed. A label whose resources plus those bounds
+ * break a limit is dropped, as is a label at an airport where a settled label is no more
+ * expensive and uses no more of any limited resource. Only limited resources take part, so a
+ * query with a single limit works on two dimensions. The search also stops at a label limit,
+ * which keeps adversarial queries on large networks from running away.
+ */
+final class ConstrainedSearch {
+    static final int DEFAULT_MAX_LABELS = 1_000_000;  // Label limit used by Graph.constrainedRoute
+    static final int UNLIMITED = Integer.MAX_VALUE;  // Value of a limit that does not apply
+
+    private final int maxTravelTime;  // Largest total travel time
+    private final int maxDistance;  // Largest total distance
+    private final int maxFlights;  // Largest number of flights, one more than the stops
+    private final int maxLabels;  // Stop once this many labels are created
+    private final LabelPool pool;  // All labels of the current query
+    private final LabelHeap heap;  // Labels keyed by cost plus the remaining cost
+    private final SearchContext context;  // Search state for the lower-bound searches
+    private int[] nextSettled;  // Next settled label at the same airport, per label
+    private int[] settledHeads;  // First settled label of each airport, -1 for none
+
+    /**
+     * Constructor to create a search with the given limits. Pass UNLIMITED for a limit that
+     * does not apply.
+     *
+     * @param maxTravelTime The largest total travel time.
+     * @param maxDistance   The largest total distance.
+     * @param maxStops      The largest number of stops between the start and the destination.
+     * @param maxLabels     The maximum number of labels to create before giving up.
+     */
+    ConstrainedSearch(int maxTravelTime, int maxDistance, int maxStops, int maxLabels) {
+        this.maxTravelTime = maxTravelTime;
+        this.maxDistance = maxDistance;
+        this.maxFlights = maxStops == UNLIMITED ? UNLIMITED : maxStops + 1;
+        this.maxLabels = maxLabels;
+        this.pool = new LabelPool(1024);
+        this.heap = new LabelHeap(1024);
+        this.context = new SearchContext();
+        this.nextSettled = new int[1024];
+        this.settledHeads = new int[0];
+    }
+
+    /**
+     * Finds the cheapest route between two airports of a snapshot within the limits.
+     *
+     * @param graph       The snapshot to search.
+     * @param start       The dense index of the starting airport.
+     * @param destination The dense index of the destination airport.
+     * @return The cheapest route within the limits and the search counters.
+     */
+    ConstrainedResult search(GraphSnapshot graph, int start, int destination) {
+        int[] toCost = graph.distancesTo(destination, Criterion.COST, context);
+        if (toCost[start] == SearchContext.INFINITY) {
+            return new ConstrainedResult(noRoute(), 0, 0, false);  // The destination cannot be reached
+        }
+        int[] toTime = maxTravelTime == UNLIMITED ? null : graph.distancesTo(destination, Criterion.TIME, context);
+        int[] toDistance = maxDistance == UNLIMITED ? null : graph.distancesTo(destination, Criterion.DISTANCE, context);
+        int[] toFlights = maxFlights == UNLIMITED ? null : flightsTo(graph, destination);
+        if (!withinLimits(start, 0, 0, 0, toTime, toDistance, toFlights)) {
+            return new ConstrainedResult(noRoute(), 0, 0, false);  // Even the bounds break a limit
+        }
+
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] triples = graph.weightTriples();
+        int costSlot = Criterion.COST.ordinal();
+        int distanceSlot = Criterion.DISTANCE.ordinal();
+        int timeSlot = Criterion.TIME.ordinal();
+
+        pool.clear();
+        heap.clear();
+        if (settledHeads.length < graph.nodeCount()) {
+            settledHeads = new int[graph.nodeCount()];
+        }
+        Arrays.fill(settledHeads, 0, graph.nodeCount(), -1);
+        int pruned = 0;
+
+        heap.push(pool.add(start, -1, 0, 0, 0, 0), toCost[start]);
+        while (!heap.isEmpty()) {
+            int label = heap.pop();
+            int node = pool.node(label);
+            int cost = pool.cost(label);
+            int distance = pool.distance(label);
+            int travelTime = pool.travelTime(label);
+            int flights = pool.hops(label);
+
+            // A label queued earlier may have been overtaken while it waited
+            if (isDominatedAt(node, cost, distance, travelTime, flights)) {
+                pruned++;
+                continue;
+            }
+            if (node == destination) {
+                return new ConstrainedResult(toSummary(graph, label), pool.size(), pruned, false);
+            }
+            settle(node, label);
+
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int neighbor = targets[edge];
+                if (toCost[neighbor] == SearchContext.INFINITY) continue;  // Dead end for this destination
+                int newCost = cost + triples[3 * edge + costSlot];
+                int newDistance = distance + triples[3 * edge + distanceSlot];
+                int newTime = travelTime + triples[3 * edge + timeSlot];
+                if (!withinLimits(neighbor, newTime, newDistance, flights + 1, toTime, toDistance, toFlights)
+                        || isDominatedAt(neighbor, newCost, newDistance, newTime, flights + 1)) {
+                    pruned++;
+                    continue;
+                }
+                if (pool.size() >= maxLabels) {
+                    return new ConstrainedResult(noRoute(), pool.size(), pruned, true);
+                }
+                int child = pool.add(neighbor, label, newCost, newDistance, newTime, flights + 1);
+                heap.push(child, (long) newCost + toCost[neighbor]);
+            }
+        }
+        return new ConstrainedResult(noRoute(), pool.size(), pruned, false);  // No route fits the limits
+    }
+
+    /**
+     * Checks whether a partial route can still reach the destination within every limit,
+     * using the least time, distance and flights still needed from its airport.
+     *
+     * @param node       The airport index the partial route ends at.
+     * @param travelTime The travel time used so far.
+     * @param distance   The distance used so far.
+     * @param flights    The flights taken so far.
+     * @param toTime     The least travel time to the destination per airport, null if unlimited.
+     * @param toDistance The least distance to the destination per airport, null if unlimited.
+     * @param toFlights  The least flights to the destination per airport, null if unlimited.
+     * @return true if no limit is certain to be broken.
+     */
+    private boolean withinLimits(int node, int travelTime, int distance, int flights,
+                                 int[] toTime, int[] toDistance, int[] toFlights) {
+        return (toTime == null || (long) travelTime + toTime[node] <= maxTravelTime)
+                && (toDistance == null || (long) distance + toDistance[node] <= maxDistance)
+                && (toFlights == null || (long) flights + toFlights[node] <= maxFlights);
+    }
+
+    /**
+     * Checks whether a settled label at an airport is no more expensive than the candidate and
+     * uses no more of any limited resource.
+     *
+     * @param node       The airport index.
+     * @param cost       The candidate's cost.
+     * @param distance   The candidate's distance.
+     * @param travelTime The candidate's travel time.
+     * @param flights    The candidate's number of flights.
+     * @return true if the candidate is dominated.
+     */
+    private boolean isDominatedAt(int node, int cost, int distance, int travelTime, int flights) {
+        for (int label = settledHeads[node]; label != -1; label = nextSettled[label]) {
+            if (pool.cost(label) <= cost
+                    && (maxTravelTime == UNLIMITED || pool.travelTime(label) <= travelTime)
+                    && (maxDistance == UNLIMITED || pool.distance(label) <= distance)
+                    && (maxFlights == UNLIMITED || pool.hops(label) <= flights)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a label to the settled labels of its airport.
+     *
+     * @param node  The airport index.
+     * @param label The label to settle.
+     */
+    private void settle(int node, int label) {
+        if (label >= nextSettled.length) {
+            nextSettled = Arrays.copyOf(nextSettled, Math.max(label + 1, nextSettled.length * 2));
+        }
+        nextSettled[label] = settledHeads[node];
+        settledHeads[node] = label;
+    }
+
+    /**
+     * Counts the fewest flights from every airport to the destination with a breadth-first
+     * search over incoming routes.
+     *
+     * @param graph       The snapshot to search.
+     * @param destination The dense index of the destination.
+     * @return The fewest flights per airport, SearchContext.INFINITY if the destination cannot be reached.
+     */
+    private static int[] flightsTo(GraphSnapshot graph, int destination) {
+        int[] reverseOffsets = graph.reverseOffsets();
+        int[] reverseSources = graph.reverseSources();
+        int[] flights = new int[graph.nodeCount()];
+        Arrays.fill(flights, SearchContext.INFINITY);
+        int[] queue = new int[graph.nodeCount()];
+        int tail = 0;
+        flights[destination] = 0;
+        queue[tail++] = destination;
+        for (int head = 0; head < tail; head++) {
+            int node = queue[head];
+            for (int slot = reverseOffsets[node]; slot < reverseOffsets[node + 1]; slot++) {
+                int source = reverseSources[slot];
+                if (flights[source] == SearchContext.INFINITY) {
+                    flights[source] = flights[node] + 1;
+                    queue[tail++] = source;
+                }
+            }
+        }
+        return flights;
+    }
+
+    /**
+     * Converts a destination label into a route summary by following its parent labels.
+     *
+     * @param graph The snapshot the label belongs to.
+     * @param label The destination label.
+     * @return The route the label describes.
+     */
+    private RouteSummary toSummary(GraphSnapshot graph, int label) {
+        Integer[] path = new Integer[pool.hops(label) + 1];
+        for (int at = label, i = path.length - 1; at != -1; at = pool.parent(at), i--) {
+            path[i] = graph.airportId(pool.node(at));
+        }
+        return new RouteSummary(new ArrayList<>(Arrays.asList(path)), pool.distance(label),
+                pool.travelTime(label), pool.cost(label));
+    }
+
+    /**
+     * Creates the summary returned when no route fits the limits.
+     *
+     * @return A summary with an empty path.
+     */
+    private static RouteSummary noRoute() {
+        return new RouteSummary(new ArrayList<>(), 0, 0, 0);
+    }
+}
@@ -0,0 +1,531 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ContractionHierarchy class answers shortest-path queries for one criterion using
+ * Contraction Hierarchies. Preprocessing contracts the airports one by one in order of
+ * importance and adds shortcut routes that preserve shortest-path lengths between the
+ * airports still left. A query then only runs two small searches that move upward in that
+ * order, one from the start and one from the destination, and unpacks the shortcuts of the
+ * best meeting point back into the original airports.
+ * The hierarchy is a fixed copy of a GraphSnapshot and does not see later changes to the Graph.
+ */
+final class ContractionHierarchy {
+    private static final int WITNESS_SETTLE_LIMIT = 40;  // Airports a witness search may settle before giving up
+    private static final int SIMULATION_PAIR_LIMIT = 1000;  // Neighbour pairs above which priorities are estimated
+
+    private final GraphSnapshot snapshot;  // Snapshot the hierarchy was built from
+    private final Criterion criterion;  // Weight the hierarchy was built for
+    private final int[] rank;  // Contraction order of each airport index
+
+    // Upward graph: edges u -> x with rank[x] > rank[u], grouped by u
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] upWeights;
+    private final int[] upMiddles;  // Contracted airport a shortcut skips over, -1 for original routes
+
+    // Downward graph: edges w -> y with rank[w] > rank[y], grouped by y
+    private final int[] downOffsets;
+    private final int[] downSources;
+    private final int[] downWeights;
+    private final int[] downMiddles;
+
+    // Per-thread query state for the upward and downward searches
+    private final ThreadLocal<SearchContext> forwardContext = ThreadLocal.withInitial(SearchContext::new);
+    private final ThreadLocal<SearchContext> backwardContext = ThreadLocal.withInitial(SearchContext::new);
+
+    /**
+     * Constructor to preprocess a hierarchy for one criterion.
+     *
+     * @param snapshot  The graph snapshot to build the hierarchy from.
+     * @param criterion The criterion whose weights the hierarchy preserves.
+     */
+    ContractionHierarchy(GraphSnapshot snapshot, Criterion criterion) {
+        this.snapshot = snapshot;
+        this.criterion = criterion;
+        int n = snapshot.nodeCount();
+
+        EdgeLists out = new EdgeLists(n);  // Outgoing edges of each airport, including shortcuts
+        EdgeLists in = new EdgeLists(n);  // Incoming edges of each airport, including shortcuts
+        int[] offsets = snapshot.offsets();
+        int[] targets = snapshot.targets();
+        int[] weights = snapshot.weights(criterion);
+        for (int node = 0; node < n; node++) {
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                if (targets[edge] != node) {
+                    addEdge(out, in, node, targets[edge], weights[edge], -1);
+                }
+            }
+        }
+
+        rank = contract(out, in, n);
+
+        // Split the final edge set into the upward and downward search graphs
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int node = 0; node < n; node++) {
+            int up = 0;
+            for (int i = 0; i < out.size[node]; i++) {
+                if (rank[out.node[node][i]] > rank[node]) up++;
+            }
+            int down = 0;
+            for (int i = 0; i < in.size[node]; i++) {
+                if (rank[in.node[node][i]] > rank[node]) down++;
+            }
+            upOffsets[node + 1] = upOffsets[node] + up;
+            downOffsets[node + 1] = downOffsets[node] + down;
+        }
+        upTargets = new int[upOffsets[n]];
+        upWeights = new int[upOffsets[n]];
+        upMiddles = new int[upOffsets[n]];
+        downSources = new int[downOffsets[n]];
+        downWeights = new int[downOffsets[n]];
+        downMiddles = new int[downOffsets[n]];
+        for (int node = 0; node < n; node++) {
+            int slot = upOffsets[node];
+            for (int i = 0; i < out.size[node]; i++) {
+                if (rank[out.node[node][i]] > rank[node]) {
+                    upTargets[slot] = out.node[node][i];
+                    upWeights[slot] = out.weight[node][i];
+                    upMiddles[slot] = out.middle[node][i];
+                    slot++;
+                }
+            }
+            slot = downOffsets[node];
+            for (int i = 0; i < in.size[node]; i++) {
+                if (rank[in.node[node][i]] > rank[node]) {
+                    downSources[slot] = in.node[node][i];
+                    downWeights[slot] = in.weight[node][i];
+                    downMiddles[slot] = in.middle[node][i];
+                    slot++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the criterion this hierarchy was built for.
+     *
+     * @return The criterion.
+     */
+    Criterion getCriterion() {
+        return criterion;
+    }
+
+    /**
+     * Gets the snapshot this hierarchy was built from.
+     *
+     * @return The snapshot.
+     */
+    GraphSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Gets the number of shortcut routes added during preprocessing.
+     *
+     * @return The number of shortcuts in the hierarchy.
+     */
+    int shortcutCount() {
+        int count = 0;
+        for (int middle : upMiddles) {
+            if (middle >= 0) count++;
+        }
+        for (int middle : downMiddles) {
+            if (middle >= 0) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the shortest path between two airports. Returns the same path lengths as
+     * Graph.dijkstra on the snapshot the hierarchy was built from.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return A list of airport IDs representing the shortest path, or an empty list if there is none.
+     */
+    List<Integer> shortestPath(int startId, int destinationId) {
+        int start = snapshot.indexOf(startId);
+        int destination = snapshot.indexOf(destinationId);
+        List<Integer> path = new ArrayList<>();
+        if (start < 0 || destination < 0) {
+            return path;  // Unknown airport, no path
+        }
+
+        SearchContext forward = forwardContext.get();
+        SearchContext backward = backwardContext.get();
+        forward.reset(snapshot.nodeCount());
+        backward.reset(snapshot.nodeCount());
+        IndexedMinHeap forwardQueue = forward.heap();
+        IndexedMinHeap backwardQueue = backward.heap();
+        forward.relax(start, 0, -1);
+        backward.relax(destination, 0, -1);
+
+        long best = Long.MAX_VALUE;  // Length of the best meeting found so far
+        int meeting = -1;  // Airport with the highest rank on the best path
+        boolean forwardDone = false;
+        boolean backwardDone = false;
+
+        while (!forwardDone || !backwardDone) {
+            forwardDone = forwardDone || forwardQueue.isEmpty() || forwardQueue.peekKey() >= best;
+            backwardDone = backwardDone || backwardQueue.isEmpty() || backwardQueue.peekKey() >= best;
+
+            if (!forwardDone) {
+                int node = forwardQueue.poll();
+                int currentDist = forward.dist(node);
+                int remaining = backward.dist(node);
+                if (remaining != SearchContext.INFINITY && (long) currentDist + remaining < best) {
+                    best = (long) currentDist + remaining;
+                    meeting = node;
+                }
+                for (int edge = upOffsets[node]; edge < upOffsets[node + 1]; edge++) {
+                    int neighbor = upTargets[edge];
+                    int newDist = currentDist + upWeights[edge];
+                    if (newDist < forward.dist(neighbor)) {
+                        forward.relax(neighbor, newDist, node);
+                    }
+                }
+            }
+
+            if (!backwardDone) {
+                int node = backwardQueue.poll();
+                int currentDist = backward.dist(node);
+                int travelled = forward.dist(node);
+                if (travelled != SearchContext.INFINITY && (long) travelled + currentDist < best) {
+                    best = (long) travelled + currentDist;
+                    meeting = node;
+                }
+                for (int edge = downOffsets[node]; edge < downOffsets[node + 1]; edge++) {
+                    int neighbor = downSources[edge];
+                    int newDist = currentDist + downWeights[edge];
+                    if (newDist < backward.dist(neighbor)) {
+                        backward.relax(neighbor, newDist, node);
+                    }
+                }
+            }
+        }
+
+        if (meeting < 0) {
+            return path;  // The two searches never met, no path found
+        }
+
+        // Walk back from the meeting airport to the start, collecting hierarchy edges in order
+        int hops = 0;
+        for (int at = meeting; forward.prev(at) != -1; at = forward.prev(at)) {
+            hops++;
+        }
+        int[] chain = new int[hops + 1];
+        int at = meeting;
+        for (int i = hops; i >= 0; i--) {
+            chain[i] = at;
+            at = forward.prev(at);
+        }
+
+        path.add(snapshot.airportId(start));
+        for (int i = 0; i + 1 < chain.length; i++) {
+            unpack(chain[i], chain[i + 1], path);
+        }
+        for (int from = meeting; backward.prev(from) != -1; from = backward.prev(from)) {
+            unpack(from, backward.prev(from), path);
+        }
+        return path;
+    }
+
+    /**
+     * Expands a hierarchy edge into the original airports it covers and appends them to a path.
+     * The start airport of the edge is assumed to be on the path already.
+     *
+     * @param from The index of the first airport of the edge.
+     * @param to   The index of the last airport of the edge.
+     * @param path The path to append airport IDs to.
+     */
+    private void unpack(int from, int to, List<Integer> path) {
+        // Explicit stack of (from, to) pairs, expanded left to right
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = from;
+        stack[top++] = to;
+        while (top > 0) {
+            int b = stack[--top];
+            int a = stack[--top];
+            int middle = middleOf(a, b);
+            if (middle < 0) {
+                path.add(snapshot.airportId(b));
+                continue;
+            }
+            if (top + 4 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            // Push the second half first so the first half is expanded first
+            stack[top++] = middle;
+            stack[top++] = b;
+            stack[top++] = a;
+            stack[top++] = middle;
+        }
+    }
+
+    /**
+     * Finds the airport a hierarchy edge skips over.
+     *
+     * @param from The index of the first airport of the edge.
+     * @param to   The index of the last airport of the edge.
+     * @return The index of the skipped airport, or -1 if the edge is an original route.
+     */
+    private int middleOf(int from, int to) {
+        if (rank[to] > rank[from]) {
+            for (int edge = upOffsets[from]; edge < upOffsets[from + 1]; edge++) {
+                if (upTargets[edge] == to) return upMiddles[edge];
+            }
+        } else {
+            for (int edge = downOffsets[to]; edge < downOffsets[to + 1]; edge++) {
+                if (downSources[edge] == from) return downMiddles[edge];
+            }
+        }
+        throw new IllegalStateException("Missing hierarchy edge " + from + " -> " + to);
+    }
+
+    /**
+     * Contracts every airport in order of importance, adding shortcuts to the edge lists.
+     * Importance is the edge difference (shortcuts added minus edges removed) plus the number
+     * of already contracted neighbours, which spreads contraction evenly over the network.
+     * Priorities are updated lazily: a popped airport is re-evaluated and put back if it is
+     * no longer the cheapest to contract.
+     *
+     * @param out The outgoing edge lists.
+     * @param in  The incoming edge lists.
+     * @param n   The number of airports.
+     * @return The contraction rank of each airport.
+     */
+    private static int[] contract(EdgeLists out, EdgeLists in, int n) {
+        Contractor contractor = new Contractor(out, in, n);
+        int[] order = new int[n];
+        IndexedMinHeap queue = new IndexedMinHeap(n);
+        for (int node = 0; node < n; node++) {
+            queue.insertOrDecrease(node, contractor.priority(node));
+        }
+
+        int nextRank = 0;
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int current = contractor.priority(node);
+            if (!queue.isEmpty() && current > queue.peekKey()) {
+                queue.insertOrDecrease(node, current);  // Stale priority, try again later
+                continue;
+            }
+            contractor.contract(node);
+            order[node] = nextRank++;
+        }
+        return order;
+    }
+
+    /**
+     * Adds an edge to both edge lists, or lowers the weight of an existing edge between the
+     * same airports if the new one is shorter.
+     *
+     * @param out    The outgoing edge lists.
+     * @param in     The incoming edge lists.
+     * @param from   The index of the first airport of the edge.
+     * @param to     The index of the last airport of the edge.
+     * @param weight The weight of the edge.
+     * @param middle The airport the edge skips over, -1 for an original route.
+     */
+    private static void addEdge(EdgeLists out, EdgeLists in, int from, int to, int weight, int middle) {
+        out.put(from, to, weight, middle);
+        in.put(to, from, weight, middle);
+    }
+
+    /**
+     * Working state of the contraction: the shrinking edge lists and the witness search.
+     * Once an airport is contracted it is removed from its neighbours' lists, so the lists
+     * only ever connect airports that are still uncontracted.
+     */
+    private static final class Contractor {
+        private final EdgeLists out;  // Outgoing edges between uncontracted airports
+        private final EdgeLists in;  // Incoming edges between uncontracted airports
+        private final int[] contractedNeighbours;  // Number of contracted neighbours per airport
+        private final SearchContext witness;  // Search state reused by every witness search
+        private final int[] targetMarks;  // Marks the targets of the current witness search
+        private int mark;  // Mark value of the current witness search
+        private int remainingTargets;  // Targets the current witness search has not settled yet
+
+        Contractor(EdgeLists out, EdgeLists in, int n) {
+            this.out = out;
+            this.in = in;
+            this.contractedNeighbours = new int[n];
+            this.witness = new SearchContext();
+            this.targetMarks = new int[n];
+        }
+
+        /**
+         * Computes the contraction priority of an airport.
+         *
+         * @param node The airport to evaluate.
+         * @return The priority; lower values are contracted first.
+         */
+        int priority(int node) {
+            int removed = out.size[node] + in.size[node];
+            long pairs = (long) out.size[node] * in.size[node];
+            // Hubs are contracted last anyway; bound their shortcuts instead of simulating them
+            int shortcuts = pairs > SIMULATION_PAIR_LIMIT
+                    ? (int) Math.min(pairs, Integer.MAX_VALUE / 2)
+                    : processShortcuts(node, false);
+            return shortcuts - removed + contractedNeighbours[node];
+        }
+
+        /**
+         * Contracts an airport: adds its shortcuts and detaches it from its neighbours.
+         * Afterwards its own lists hold exactly its upward and downward hierarchy edges,
+         * which no later contraction touches.
+         *
+         * @param node The airport to contract.
+         */
+        void contract(int node) {
+            processShortcuts(node, true);
+            for (int i = 0; i < out.size[node]; i++) {
+                int target = out.node[node][i];
+                in.remove(target, node);
+                contractedNeighbours[target]++;
+            }
+            for (int i = 0; i < in.size[node]; i++) {
+                int source = in.node[node][i];
+                out.remove(source, node);
+                contractedNeighbours[source]++;
+            }
+        }
+
+        /**
+         * Finds the shortcuts needed to contract an airport: for each pair of neighbours
+         * u -> node -> x, a shortcut u -> x is needed unless a witness search from u that
+         * avoids node finds a path to x that is no longer.
+         *
+         * @param node The airport to contract.
+         * @param add  Whether to add the shortcuts or only count them.
+         * @return The number of shortcuts needed.
+         */
+        private int processShortcuts(int node, boolean add) {
+            int shortcuts = 0;
+            int inCount = in.size[node];
+            for (int i = 0; i < inCount; i++) {
+                int source = in.node[node][i];
+                int inWeight = in.weight[node][i];
+
+                // Mark the targets; the longest shortcut bounds how far the search must go
+                mark++;
+                remainingTargets = 0;
+                int maxDist = 0;
+                for (int j = 0; j < out.size[node]; j++) {
+                    int target = out.node[node][j];
+                    if (target != source) {
+                        maxDist = Math.max(maxDist, inWeight + out.weight[node][j]);
+                        targetMarks[target] = mark;
+                        remainingTargets++;
+                    }
+                }
+                if (remainingTargets == 0) continue;
+
+                witnessSearch(source, node, maxDist);
+
+                for (int j = 0; j < out.size[node]; j++) {
+                    int target = out.node[node][j];
+                    if (target == source) continue;
+                    int viaNode = inWeight + out.weight[node][j];
+                    if (witness.dist(target) <= viaNode) continue;  // A path around node is as short
+                    shortcuts++;
+                    if (add) {
+                        addEdge(out, in, source, target, viaNode, node);
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Runs a bounded Dijkstra search from an airport, skipping the airport being contracted.
+         * Stops once every marked target is settled, the distance bound is passed, or the
+         * settle limit is reached. Distances are left in the witness context.
+         *
+         * @param source  The airport to search from.
+         * @param skipped The airport being contracted.
+         * @param maxDist The distance beyond which no witness is useful.
+         */
+        private void witnessSearch(int source, int skipped, int maxDist) {
+            witness.reset(targetMarks.length);
+            IndexedMinHeap queue = witness.heap();
+            witness.relax(source, 0, -1);
+            int settled = 0;
+            while (!queue.isEmpty() && queue.peekKey() <= maxDist && settled++ < WITNESS_SETTLE_LIMIT) {
+                int node = queue.poll();
+                if (targetMarks[node] == mark && --remainingTargets == 0) break;
+                int currentDist = witness.dist(node);
+                for (int i = 0; i < out.size[node]; i++) {
+                    int neighbor = out.node[node][i];
+                    if (neighbor == skipped) continue;
+                    int newDist = currentDist + out.weight[node][i];
+                    if (newDist <= maxDist && newDist < witness.dist(neighbor)) {
+                        witness.relax(neighbor, newDist, node);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Growable per-airport edge lists used while contracting. Each airport has at most one
+     * edge to any other airport, holding the smallest weight seen.
+     */
+    private static final class EdgeLists {
+        final int[][] node;  // Neighbour index of each edge
+        final int[][] weight;  // Weight of each edge
+        final int[][] middle;  // Skipped airport of each edge, -1 for original routes
+        final int[] size;  // Number of edges of each airport
+
+        EdgeLists(int n) {
+            node = new int[n][];
+            weight = new int[n][];
+            middle = new int[n][];
+            size = new int[n];
+            for (int i = 0; i < n; i++) {
+                node[i] = new int[2];
+                weight[i] = new int[2];
+                middle[i] = new int[2];
+            }
+        }
+
+        void remove(int owner, int neighbour) {
+            int[] neighbours = node[owner];
+            for (int i = 0; i < size[owner]; i++) {
+                if (neighbours[i] == neighbour) {
+                    int last = --size[owner];
+                    neighbours[i] = neighbours[last];
+                    weight[owner][i] = weight[owner][last];
+                    middle[owner][i] = middle[owner][last];
+                    return;
+                }
+            }
+        }
+
+        void put(int owner, int neighbour, int edgeWeight, int edgeMiddle) {
+            int[] neighbours = node[owner];
+            for (int i = 0; i < size[owner]; i++) {
+                if (neighbours[i] == neighbour) {
+                    if (edgeWeight < weight[owner][i]) {
+                        weight[owner][i] = edgeWeight;
+                        middle[owner][i] = edgeMiddle;
+                    }
+                    return;
+                }
+            }
+            int slot = size[owner]++;
+            if (slot == neighbours.length) {
+                node[owner] = Arrays.copyOf(neighbours, slot * 2);
+                weight[owner] = Arrays.copyOf(weight[owner], slot * 2);
+                middle[owner] = Arrays.copyOf(middle[owner], slot * 2);
+            }
+            node[owner][slot] = neighbour;
+            weight[owner][slot] = edgeWeight;
+            middle[owner][slot] = edgeMiddle;
+        }
+    }
+}
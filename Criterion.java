@@ -0,0 +1,43 @@
+/**
+ * The Criterion enum lists the route weights a search can optimize for.
+ * It replaces repeated string comparisons inside the search loops with a single lookup per query.
+ */
+enum Criterion {
+    COST,
+    DISTANCE,
+    TIME;
+
+    /**
+     * Converts the criterion string used by the public Graph API into a Criterion.
+     * Matches the historical behaviour of Graph.dijkstra: "distance" and "time" select those
+     * weights and anything else falls back to cost.
+     *
+     * @param criterion The criterion name ("cost", "distance", or "time").
+     * @return The matching Criterion.
+     */
+    static Criterion parse(String criterion) {
+        if ("distance".equals(criterion)) {
+            return DISTANCE;
+        } else if ("time".equals(criterion)) {
+            return TIME;
+        }
+        return COST;
+    }
+
+    /**
+     * Gets the weight of a route for this criterion.
+     *
+     * @param route The route to read.
+     * @return The route's distance, travel time, or cost.
+     */
+    int weightOf(Route route) {
+        switch (this) {
+            case DISTANCE:
+                return route.getDistance();
+            case TIME:
+                return route.getTravelTime();
+            default:
+                return route.getCost();
+        }
+    }
+}
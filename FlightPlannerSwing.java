@@ -1,11 +1,16 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * The FlightPlannerSwing class provides a graphical user interface (GUI) for planning flights
@@ -13,6 +18,8 @@ import java.util.Random;
  * airports and displays available routes along with details such as distance, travel time, and cost.
  */
 public class FlightPlannerSwing extends JFrame {
+    static final int TABLE_CHUNK = 1000;  // Direct routes published to the table at a time
+    static final int ALTERNATIVES = 5;  // Routes listed by cost, the cheapest included
 
     // Declare the main Graph that holds airports and routes
     private Graph graph;
@@ -21,12 +28,19 @@ public class FlightPlannerSwing extends JFrame {
     private JComboBox<Integer> destinationComboBox;
     // JTextArea to display the results of route searches
     private JTextArea resultArea;
-    // JTable to display route details
+    // JTable to display route details, and the model its rows are read from
     private JTable routesTable;
+    private RouteTableModel routesModel;
     // Panel to visually represent the graph of airports and routes
     private GraphPanel graphPanel;
     // Random object for generating random airports and routes
     private Random random;
+    // Background threads running the route searches, so the window stays responsive
+    private ExecutorService queryExecutor;
+    // Search currently running, cancelled when a newer one starts
+    private Future<?> currentQuery;
+    // Number of the latest search; results published by older searches are dropped
+    private int queryGeneration;
 
     /**
      * Constructor to set up the GUI and initialize components.
@@ -35,6 +49,16 @@ public class FlightPlannerSwing extends JFrame {
      * and the graph panel.
      */
     public FlightPlannerSwing() {
+        this(null);
+    }
+
+    /**
+     * Constructor to set up the GUI for an existing network, such as one loaded from a network
+     * file. Random airports and routes are generated if no network is given.
+     *
+     * @param network The network to plan flights in, or null to generate a random one.
+     */
+    public FlightPlannerSwing(Graph network) {
         // Set title, size, default close operation, and initial location for the JFrame
         setTitle("Flight Planner");
         setSize(800, 600);
@@ -42,10 +66,22 @@ public class FlightPlannerSwing extends JFrame {
         setLocationRelativeTo(null);
 
         random = new Random();
-        graph = new Graph();
+        queryExecutor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "route-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (network != null) {
+            graph = network;
+        } else {
+            graph = new Graph();
 
-        // Generate random airports and routes (between 4 and 6)
-        generateRandomAirportsAndRoutes();
+            // Generate random airports and routes (between 4 and 6)
+            generateRandomAirportsAndRoutes();
+
+            // Print all routes to the console; a loaded network can have millions of them
+            printAllRoutes();
+        }
 
         // Create UI components
         JPanel panel = new JPanel();
@@ -53,11 +89,12 @@ public class FlightPlannerSwing extends JFrame {
 
         // Label and ComboBox for selecting the start airport
         JLabel startLabel = new JLabel("Select Start Airport:");
-        startComboBox = new JComboBox<>(getAirportIds());
+        Integer[] airportIds = getAirportIds();
+        startComboBox = new JComboBox<>(airportIds);
 
         // Label and ComboBox for selecting the destination airport
         JLabel destinationLabel = new JLabel("Select Destination Airport:");
-        destinationComboBox = new JComboBox<>(getAirportIds());
+        destinationComboBox = new JComboBox<>(airportIds);
 
         // Button to trigger route search
         JButton findRoutesButton = new JButton("Find Routes");
@@ -68,7 +105,8 @@ public class FlightPlannerSwing extends JFrame {
         JScrollPane resultScrollPane = new JScrollPane(resultArea); // Scrollable JTextArea
 
         // Create a JTable for displaying route information (start, destination, distance, travel time, and cost)
-        routesTable = new JTable(new DefaultTableModel(new Object[]{"Start", "Destination", "Distance", "Travel Time", "Cost"}, 0));
+        routesModel = new RouteTableModel();
+        routesTable = new JTable(routesModel);
         JScrollPane tableScrollPane = new JScrollPane(routesTable); // Scrollable JTable
         tableScrollPane.setPreferredSize(new Dimension(600, 200)); // Fixed height for the table scroll
 
@@ -93,13 +131,9 @@ public class FlightPlannerSwing extends JFrame {
         findRoutesButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                findAndDisplayRoutes(); // Find routes when the button is clicked
-                graphPanel.repaint(); // Repaint the graph panel to update the visualization
+                findAndDisplayRoutes(); // Start a search; results appear as they are found
             }
         });
-
-        // Print all routes to the console
-        printAllRoutes();
     }
 
     /**
@@ -115,8 +149,6 @@ public class FlightPlannerSwing extends JFrame {
             graph.addAirport(i);
         }
 
-        List<String> existingRoutes = new ArrayList<>(); // Track already added routes to avoid duplicates
-
         // Randomly add routes between airports
         for (int i = 0; i < numAirports; i++) {
             int numRoutes = random.nextInt(3) + 2; // Randomly generate between 2 to 4 routes per airport
@@ -126,17 +158,11 @@ public class FlightPlannerSwing extends JFrame {
                     destination = random.nextInt(numAirports);
                 } while (destination == i); // Ensure the destination is not the same as the current airport
 
-                String routeId = i + "-" + destination; // Create a unique route identifier
-
-                // Add the route if it doesn't already exist
-                if (!existingRoutes.contains(routeId)) {
-                    int distance = random.nextInt(500) + 100; // Random distance between 100 and 600
-                    int travelTime = random.nextInt(180) + 30; // Random travel time between 30 and 210 minutes
-                    int cost = random.nextInt(500) + 100; // Random cost between 100 and 600
-
-                    graph.addRoute(i, destination, distance, travelTime, cost); // Add the route to the graph
-                    existingRoutes.add(routeId); // Mark this route as added
-                }
+                // Add the route if it doesn't already exist; the graph rejects duplicates itself
+                int distance = random.nextInt(500) + 100; // Random distance between 100 and 600
+                int travelTime = random.nextInt(180) + 30; // Random travel time between 30 and 210 minutes
+                int cost = random.nextInt(500) + 100; // Random cost between 100 and 600
+                graph.addRoute(i, destination, distance, travelTime, cost); // Add the route to the graph
             }
         }
 
@@ -144,87 +170,139 @@ public class FlightPlannerSwing extends JFrame {
     }
 
     /**
-     * Retrieves airport IDs as an array of Integers for use in JComboBox.
+     * Retrieves airport IDs as an array of Integers for use in JComboBox. The IDs are read from
+     * the search snapshot, so a network loaded from a file is not turned into Airport objects.
      *
-     * @return an array of airport IDs
+     * @return an array of airport IDs, in ascending order
      */
     private Integer[] getAirportIds() {
-        List<Airport> airports = graph.getAirports();
-        Integer[] ids = new Integer[airports.size()];
-        for (int i = 0; i < airports.size(); i++) {
-            ids[i] = airports.get(i).getId();
+        GraphSnapshot snapshot = graph.getSnapshot();
+        Integer[] ids = new Integer[snapshot.nodeCount()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = snapshot.airportId(i);
         }
         return ids;
     }
 
     /**
      * Finds and displays routes between the selected start and destination airports.
-     * Updates the JTable with the matching routes and provides additional details about
-     * the best routes based on cost, distance, and travel time.
+     * The search runs on a background thread and cancels the search started before it, if
+     * that one is still running. Results are shown as soon as each part is ready: first the
+     * direct routes in the table, then the best routes based on cost, distance and travel
+     * time, then the cheapest alternatives.
      */
     private void findAndDisplayRoutes() {
         int startId = (int) startComboBox.getSelectedItem(); // Get selected start airport
         int destinationId = (int) destinationComboBox.getSelectedItem(); // Get selected destination airport
 
-        DefaultTableModel model = (DefaultTableModel) routesTable.getModel();
-        model.setRowCount(0); // Clear previous data in the table
+        int generation = ++queryGeneration;
+        if (currentQuery != null) {
+            currentQuery.cancel(true); // Superseded, its results would be dropped anyway
+        }
+        routesModel.clear(); // Clear previous data in the table
 
         // If start and destination are the same, display a message and set all criteria to zero
         if (startId == destinationId) {
-            model.addRow(new Object[]{
-                startId,
-                destinationId,
-                0, // Distance
-                0, // Travel Time
-                0  // Cost
-            });
+            List<Route> zero = new ArrayList<>();
+            zero.add(new Route(startId, destinationId, 0, 0, 0));
+            routesModel.addRoutes(zero);
             resultArea.setText("Start and destination cannot be the same. All criteria set to zero.");
+            graphPanel.setHighlightedPath(new ArrayList<>());
             return;
         }
 
-        StringBuilder result = new StringBuilder();
-
-        // Loop through all routes and add matching ones to the table
-        List<Route> allRoutes = graph.getAllRoutes();
-        for (Route route : allRoutes) {
-            if (route.getStartId() == startId && route.getDestinationId() == destinationId) {
-                model.addRow(new Object[]{
-                    startId,
-                    route.getDestinationId(),
-                    route.getDistance(),
-                    route.getTravelTime(),
-                    route.getCost()
-                });
+        resultArea.setText("Searching routes from " + startId + " to " + destinationId + "...");
+        currentQuery = queryExecutor.submit(() -> {
+            try {
+                searchRoutes(generation, startId, destinationId);
+            } catch (RuntimeException e) {
+                publish(generation, () -> resultArea.setText("Search failed: " + e));
             }
-        }
+        });
+    }
 
-        // Find and display the best routes based on cost, distance, and travel time
-        List<Integer> bestRouteByCost = graph.dijkstra(startId, destinationId, "cost");
-        if (bestRouteByCost.isEmpty()) {
-            result.append("No valid route found based on cost.\n");
-        } else {
-            result.append("Best route based on cost: ").append(bestRouteByCost).append("\n");
+    /**
+     * Searches the routes between two airports on a background thread and publishes each
+     * part of the results as it is ready. Stops early once the search is cancelled.
+     *
+     * @param generation    The number of the search.
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     */
+    private void searchRoutes(int generation, int startId, int destinationId) {
+        // Add the direct routes between the two airports to the table, a chunk at a time
+        List<Route> direct = graph.getDirectRoutes(startId, destinationId);
+        for (int from = 0; from < direct.size(); from += TABLE_CHUNK) {
+            if (Thread.currentThread().isInterrupted()) return;
+            List<Route> chunk = new ArrayList<>(direct.subList(from, Math.min(direct.size(), from + TABLE_CHUNK)));
+            publish(generation, () -> routesModel.addRoutes(chunk));
         }
 
-        List<Integer> bestRouteByDistance = graph.dijkstra(startId, destinationId, "distance");
-        if (bestRouteByDistance.isEmpty()) {
-            result.append("No valid route found based on distance.\n");
-        } else {
-            result.append("Best route based on distance: ").append(bestRouteByDistance).append("\n");
+        // Find the best routes based on cost, distance, and travel time in one pass over the graph
+        Map<Criterion, RouteSummary> bestRoutes = graph.bestRoutes(startId, destinationId);
+        if (Thread.currentThread().isInterrupted()) return;
+        StringBuilder result = new StringBuilder();
+        appendBestRoute(result, "cost", bestRoutes.get(Criterion.COST));
+        appendBestRoute(result, "distance", bestRoutes.get(Criterion.DISTANCE));
+        appendBestRoute(result, "travel time", bestRoutes.get(Criterion.TIME));
+        String best = result.toString();
+        List<Integer> cheapest = bestRoutes.get(Criterion.COST).getPath();
+        publish(generation, () -> {
+            resultArea.setText(best); // Display the results in the text area
+            graphPanel.setHighlightedPath(cheapest);
+        });
+        if (cheapest.isEmpty()) return;
+
+        // Then the next cheapest routes, which take longer to find
+        List<RouteSummary> alternatives = graph.kShortestPaths(startId, destinationId, "cost", ALTERNATIVES);
+        if (Thread.currentThread().isInterrupted() || alternatives.size() < 2) return;
+        result.append("Alternatives based on cost:\n");
+        for (RouteSummary route : alternatives.subList(1, alternatives.size())) {
+            result.append("  ").append(route.getPath())
+                    .append(" (distance ").append(route.getTotalDistance())
+                    .append(", travel time ").append(route.getTotalTravelTime())
+                    .append(", cost ").append(route.getTotalCost()).append(")\n");
         }
+        String all = result.toString();
+        publish(generation, () -> resultArea.setText(all));
+    }
+
+    /**
+     * Applies part of a search's results on the event thread, unless a newer search has
+     * started in the meantime.
+     *
+     * @param generation The number of the search the results belong to.
+     * @param update     The change to the user interface.
+     */
+    private void publish(int generation, Runnable update) {
+        SwingUtilities.invokeLater(() -> {
+            if (generation == queryGeneration) {
+                update.run();
+            }
+        });
+    }
 
-        List<Integer> bestRouteByTime = graph.dijkstra(startId, destinationId, "time");
-        if (bestRouteByTime.isEmpty()) {
-            result.append("No valid route found based on travel time.\n");
+    /**
+     * Appends the best route for one criterion, or a message that none exists, to the results.
+     *
+     * @param result    The results text being built.
+     * @param criterion The name of the criterion shown to the user.
+     * @param route     The best route found for the criterion.
+     */
+    private void appendBestRoute(StringBuilder result, String criterion, RouteSummary route) {
+        if (!route.isFound()) {
+            result.append("No valid route found based on ").append(criterion).append(".\n");
         } else {
-            result.append("Best route based on travel time: ").append(bestRouteByTime).append("\n");
+            result.append("Best route based on ").append(criterion).append(": ").append(route.getPath())
+                    .append(" (distance ").append(route.getTotalDistance())
+                    .append(", travel time ").append(route.getTotalTravelTime())
+                    .append(", cost ").append(route.getTotalCost()).append(")\n");
         }
-
-        resultArea.setText(result.toString()); // Display the results in the text area
     }
 
     /**
-     * Prints all the generated routes to the console for debugging.
+     * Prints all the generated routes to the console for debugging. Only used for the small
+     * random network; the query metrics are the diagnostic for loaded networks.
      */
     private void printAllRoutes() {
         List<Route> allRoutes = graph.getAllRoutes();
@@ -237,81 +315,33 @@ public class FlightPlannerSwing extends JFrame {
         }
     }
 
-    /**
-     * GraphPanel is a JPanel that visualizes the graph of airports and routes.
-     * It handles the drawing of airports and their connections based on the graph data.
-     */
-    class GraphPanel extends JPanel {
-        private Graph graph;
-        private Random random;
-
-        /**
-         * Constructor for the GraphPanel.
-         *
-         * @param graph The graph containing airports and routes to visualize.
-         */
-        public GraphPanel(Graph graph) {
-            this.graph = graph;
-            this.random = new Random();
-        }
-
-        @Override
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            drawGraph(g);
-        }
-
-        /**
-         * Draws the graph of airports and routes on the panel.
-         *
-         * @param g The Graphics object used for drawing.
-         */
-        private void drawGraph(Graphics g) {
-            List<Airport> airports = graph.getAirports();
-
-            int panelWidth = getWidth();
-            int panelHeight = getHeight();
-
-            // Generate random positions for each airport node
-            int[][] positions = new int[airports.size()][2];
-            for (int i = 0; i < airports.size(); i++) {
-                positions[i][0] = random.nextInt(panelWidth - 50) + 25; // X coordinate
-                positions[i][1] = random.nextInt(panelHeight - 50) + 25; // Y coordinate
-            }
-
-            // Draw routes (edges) between airports
-            g.setColor(Color.GRAY);
-            for (Airport airport : airports) {
-                for (Route route : airport.getRoutes()) {
-                    int startX = positions[airport.getId()][0];
-                    int startY = positions[airport.getId()][1];
-                    int endX = positions[route.getDestinationId()][0];
-                    int endY = positions[route.getDestinationId()][1];
-                    g.drawLine(startX, startY, endX, endY); // Draw the route line
-                }
-            }
-
-            // Draw airports (nodes)
-            g.setColor(Color.RED);
-            for (int i = 0; i < airports.size(); i++) {
-                int x = positions[i][0];
-                int y = positions[i][1];
-                g.fillOval(x - 5, y - 5, 10, 10); // Draw the airport node
-                g.drawString("Airport " + i, x - 10, y - 10); // Label the airport
-            }
-        }
-    }
-
     /**
      * Main method to launch the FlightPlannerSwing application.
      *
-     * @param args Command-line arguments (not used).
+     * @param args Command-line arguments: optionally the path of a network file to open, or the
+     *             paths of an OpenFlights airports file and a routes file to import.
      */
     public static void main(String[] args) {
+        Graph network = null;
+        try {
+            if (args.length == 1) {
+                network = NetworkFile.load(Paths.get(args[0]));
+            } else if (args.length >= 2) {
+                RouteImporter importer = new RouteImporter();
+                importer.readAirports(Paths.get(args[0]));
+                importer.readRoutes(Paths.get(args[1]));
+                System.out.println("Imported " + importer);
+                network = importer.toGraph();
+            }
+        } catch (IOException e) {
+            System.err.println("Could not load network: " + e.getMessage());
+            System.exit(1);
+        }
+        Graph loaded = network;
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
-                new FlightPlannerSwing().setVisible(true);
+                new FlightPlannerSwing(loaded).setVisible(true);
             }
         });
     }
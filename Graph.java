@@ -1,44 +1,312 @@
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
 
 /**
  * The Graph class represents a network of airports and routes between them.
  * It allows for the addition of airports and routes, as well as searching for the shortest path
  * between airports using Dijkstra's algorithm based on various criteria (cost, distance, or time).
+ *
+ * The graph is safe to use from many threads. Writers serialize on the graph's lock, while
+ * queries run without locking against an immutable, versioned snapshot. A single change makes
+ * the next query rebuild the snapshot; a batch of changes (see beginBatch) is applied and
+ * snapshotted on the writer's thread and published atomically, so queries never wait for it.
  */
 class Graph {
-    private Map<Integer, Airport> airports;  // Map of airports by their ID
-    private List<Route> routes;  // List of all routes (edges) between airports
+    private final Map<Integer, Airport> airports;  // Map of airports by their ID, guarded by this
+    private final Set<Route> routes;  // All routes (edges) between airports in insertion order, guarded by this
+    private final RouteIndex directRoutes;  // Routes by airport pair, guarded by this
+    private volatile GraphSnapshot snapshot;  // Published snapshot used by searches, null when stale
+    private long version;  // Number of changes applied so far, guarded by this
+    private final Map<Criterion, ContractionHierarchy> hierarchies;  // Preprocessed hierarchy per criterion
+    private volatile LandmarkIndex landmarks;  // ALT distance tables, null until first needed
+    private final List<GraphListener> listeners;  // Structures to notify when the graph changes
+    private final RouteCache cache;  // Recent dijkstra and bestRoutes results of the current version
+    private final RoutingMetrics metrics;  // Latency and search effort of dijkstra and shortestPaths queries
+    private volatile boolean caching = true;  // Whether dijkstra and bestRoutes use the route cache
+    private boolean materialized;  // Whether airports and routes hold the whole graph, guarded by this
+
+    // Per-thread search state, reused by every query so searches do not allocate
+    private static final ThreadLocal<SearchContext> SEARCH_CONTEXT = ThreadLocal.withInitial(SearchContext::new);
+    private static final ThreadLocal<SearchContext> BACKWARD_CONTEXT = ThreadLocal.withInitial(SearchContext::new);
+    private static final ThreadLocal<SearchContext[]> CRITERIA_CONTEXTS = ThreadLocal.withInitial(() ->
+            new SearchContext[]{new SearchContext(), new SearchContext(), new SearchContext()});
+
+    static final int DEFAULT_LANDMARKS = 8;  // Landmarks used by landmarkAStar
+    static final long DEFAULT_CACHE_WEIGHT = 1 << 22;  // Ints the route cache may hold, about 16 MB
 
     /**
      * Constructor to initialize the Graph with empty airports and routes.
      */
     public Graph() {
+        this(null);
+    }
+
+    /**
+     * Constructor to wrap an existing snapshot, such as one read from a network file. Queries
+     * run on the snapshot right away; the Airport and Route objects are only created when the
+     * graph is first changed or its airports or routes are listed.
+     *
+     * @param snapshot The snapshot holding the network, or null for an empty graph.
+     */
+    Graph(GraphSnapshot snapshot) {
         airports = new HashMap<>();
-        routes = new ArrayList<>();
+        routes = new LinkedHashSet<>();
+        directRoutes = new RouteIndex();
+        hierarchies = new ConcurrentHashMap<>();
+        listeners = new CopyOnWriteArrayList<>();
+        this.snapshot = snapshot;
+        this.version = snapshot == null ? 0 : snapshot.version();
+        this.materialized = snapshot == null;
+        cache = new RouteCache(DEFAULT_CACHE_WEIGHT, version);
+        listeners.add(cache);  // Repairs cached shortest-path trees when routes change
+        metrics = new RoutingMetrics(Boolean.getBoolean("routing.metrics"));
+    }
+
+    /**
+     * Registers a listener to be notified of added and removed airports and routes.
+     *
+     * @param listener The listener to add.
+     */
+    void addGraphListener(GraphListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     *
+     * @param listener The listener to remove.
+     */
+    void removeGraphListener(GraphListener listener) {
+        listeners.remove(listener);
     }
 
     /**
-     * Adds an airport to the graph.
+     * Adds an airport to the graph. Adding an airport that already exists keeps it and its
+     * routes unchanged.
      *
      * @param id The unique identifier for the airport.
      */
-    public void addAirport(int id) {
-        airports.put(id, new Airport(id));
+    public synchronized void addAirport(int id) {
+        materialize();
+        if (insertAirport(new Airport(id))) {
+            snapshot = null;  // Rebuild the search snapshot on the next query
+        }
+    }
+
+    /**
+     * Adds an airport with a known location to the graph. Locations let aStar aim its
+     * search at the destination. Adding an airport that already exists moves it to the new
+     * location and keeps its routes.
+     *
+     * @param id        The unique identifier for the airport.
+     * @param latitude  The latitude of the airport in degrees.
+     * @param longitude The longitude of the airport in degrees.
+     */
+    public synchronized void addAirport(int id, double latitude, double longitude) {
+        materialize();
+        if (insertAirport(new Airport(id, latitude, longitude))) {
+            snapshot = null;  // Rebuild the search snapshot on the next query
+        }
     }
 
     /**
-     * Adds a route between two airports in the graph.
+     * Adds a route between two airports in the graph, unless the two airports are already
+     * connected. Use updateRoute to change an existing route.
      *
      * @param startId      The ID of the starting airport.
      * @param destinationId The ID of the destination airport.
      * @param distance      The distance of the route.
      * @param travelTime    The travel time of the route.
      * @param cost          The cost of the route.
+     * @return true if the route was added, false if a route between the airports already exists.
+     */
+    public synchronized boolean addRoute(int startId, int destinationId, int distance, int travelTime, int cost) {
+        materialize();
+        if (directRoutes.contains(startId, destinationId)) {
+            return false;  // Duplicate route
+        }
+        insertRoute(new Route(startId, destinationId, distance, travelTime, cost));
+        snapshot = null;  // Rebuild the search snapshot on the next query
+        return true;
+    }
+
+    /**
+     * Removes the routes between two airports.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return true if at least one route was removed.
+     */
+    public synchronized boolean removeRoute(int startId, int destinationId) {
+        materialize();
+        boolean removed = deleteRoutes(startId, destinationId);
+        if (removed) {
+            snapshot = null;  // Rebuild the search snapshot on the next query
+        }
+        return removed;
+    }
+
+    /**
+     * Replaces the routes between two airports with a single route with new values.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param distance      The new distance of the route.
+     * @param travelTime    The new travel time of the route.
+     * @param cost          The new cost of the route.
+     * @return true if there was a route to update, false if the graph is unchanged.
+     */
+    public synchronized boolean updateRoute(int startId, int destinationId, int distance, int travelTime, int cost) {
+        materialize();
+        if (!deleteRoutes(startId, destinationId)) {
+            return false;
+        }
+        insertRoute(new Route(startId, destinationId, distance, travelTime, cost));
+        snapshot = null;  // Rebuild the search snapshot on the next query
+        return true;
+    }
+
+    /**
+     * Starts a batch of changes. The changes stay invisible to queries until the batch is
+     * committed, and are then published together.
+     *
+     * @return A new, empty batch for this graph.
      */
-    public void addRoute(int startId, int destinationId, int distance, int travelTime, int cost) {
-        Route route = new Route(startId, destinationId, distance, travelTime, cost);
-        airports.get(startId).addRoute(route);  // Add route to start airport
-        routes.add(route);  // Add route to the overall list of routes
+    public GraphBatch beginBatch() {
+        return new GraphBatch(this);
+    }
+
+    /**
+     * Applies the changes of a committed batch and publishes a snapshot that includes them.
+     * The snapshot is built here, on the writer's thread, while queries keep using the
+     * previous one.
+     *
+     * @param changes The changes to apply, in order.
+     */
+    synchronized void apply(List<GraphBatch.Change> changes) {
+        materialize();
+        for (GraphBatch.Change change : changes) {
+            switch (change.kind) {
+                case GraphBatch.ADD_AIRPORT:
+                    insertAirport(change.airport);
+                    break;
+                case GraphBatch.ADD_ROUTE:
+                    if (!directRoutes.contains(change.route.getStartId(), change.route.getDestinationId())) {
+                        insertRoute(change.route);
+                    }
+                    break;
+                case GraphBatch.REMOVE_ROUTE:
+                    deleteRoutes(change.route.getStartId(), change.route.getDestinationId());
+                    break;
+                default:
+                    if (deleteRoutes(change.route.getStartId(), change.route.getDestinationId())) {
+                        insertRoute(change.route);
+                    }
+                    break;
+            }
+        }
+        snapshot = GraphSnapshot.build(airports.values(), version);
+    }
+
+    /**
+     * Creates the Airport and Route objects of a graph that was opened from a snapshot.
+     * This is not a change to the graph: the version and the published snapshot stay as they
+     * are and listeners are not notified. The caller holds the lock.
+     */
+    private void materialize() {
+        if (materialized) {
+            return;
+        }
+        materialized = true;
+        GraphSnapshot source = snapshot;
+        int[] offsets = source.offsets();
+        int[] targets = source.targets();
+        int[] distances = source.weights(Criterion.DISTANCE);
+        int[] travelTimes = source.weights(Criterion.TIME);
+        int[] costs = source.weights(Criterion.COST);
+        for (int node = 0; node < source.nodeCount(); node++) {
+            int id = source.airportId(node);
+            Airport airport = new Airport(id, source.latitude(node), source.longitude(node));
+            List<Route> outgoing = new ArrayList<>(offsets[node + 1] - offsets[node]);
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                outgoing.add(new Route(id, source.airportId(targets[edge]), distances[edge], travelTimes[edge],
+                        costs[edge]));
+            }
+            airport.addRoutes(outgoing);
+            airports.put(id, airport);
+            routes.addAll(outgoing);
+            for (Route route : outgoing) {
+                directRoutes.add(route);
+            }
+        }
+    }
+
+    /**
+     * Stores an airport and notifies listeners. An airport with the same ID is replaced only
+     * if the location differs, and the new airport takes over its routes, so the route set
+     * and the direct route index stay in step. The caller holds the lock.
+     *
+     * @param airport The airport to add.
+     * @return true if the graph changed.
+     */
+    private boolean insertAirport(Airport airport) {
+        Airport existing = airports.get(airport.getId());
+        if (existing != null) {
+            if (Double.compare(existing.getLatitude(), airport.getLatitude()) == 0
+                    && Double.compare(existing.getLongitude(), airport.getLongitude()) == 0) {
+                return false;  // Same airport, nothing to change
+            }
+            airport.addRoutes(existing.getRoutes());
+        }
+        airports.put(airport.getId(), airport);
+        version++;
+        for (GraphListener listener : listeners) {
+            listener.airportAdded(airport);
+        }
+        return true;
+    }
+
+    /**
+     * Stores a route and notifies listeners. The caller holds the lock.
+     *
+     * @param route The route to add.
+     */
+    private void insertRoute(Route route) {
+        airports.get(route.getStartId()).addRoute(route);  // Add route to start airport
+        routes.add(route);  // Add route to the overall set of routes
+        directRoutes.add(route);
+        version++;
+        for (GraphListener listener : listeners) {
+            listener.routeAdded(route);
+        }
+    }
+
+    /**
+     * Removes every route between two airports and notifies listeners. The caller holds the lock.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return true if at least one route was removed.
+     */
+    private boolean deleteRoutes(int startId, int destinationId) {
+        if (!directRoutes.remove(startId, destinationId)) {
+            return false;  // No route between the airports, nothing to scan
+        }
+        Airport start = airports.get(startId);
+        boolean removed = false;
+        for (Route route : start.getRoutes()) {
+            if (route.getDestinationId() != destinationId) continue;
+            start.removeRoute(route);
+            routes.remove(route);
+            version++;
+            for (GraphListener listener : listeners) {
+                listener.routeRemoved(route);
+            }
+            removed = true;
+        }
+        return removed;
     }
 
     /**
@@ -46,83 +314,911 @@ class Graph {
      *
      * @return A list of all airports.
      */
-    public List<Airport> getAirports() {
+    public synchronized List<Airport> getAirports() {
+        materialize();
         return new ArrayList<>(airports.values());
     }
 
     /**
-     * Gets a list of all routes in the graph.
+     * Gets a list of all routes in the graph. The list is a copy and does not change when
+     * routes are added or removed later.
      *
      * @return A list of all routes.
      */
-    public List<Route> getAllRoutes() {
-        return routes;
+    public synchronized List<Route> getAllRoutes() {
+        materialize();
+        return new ArrayList<>(routes);
+    }
+
+    /**
+     * Checks whether there is a direct route between two airports, in constant time.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return true if at least one route leads from the start to the destination.
+     */
+    public synchronized boolean hasRoute(int startId, int destinationId) {
+        materialize();
+        return directRoutes.contains(startId, destinationId);
+    }
+
+    /**
+     * Gets the direct routes between two airports, in constant time. There is at most one,
+     * except in networks opened from a file, which may hold parallel routes.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return A read-only list of the routes from the start to the destination.
+     */
+    public synchronized List<Route> getDirectRoutes(int startId, int destinationId) {
+        materialize();
+        return directRoutes.get(startId, destinationId);
+    }
+
+    /**
+     * Gets the compressed-sparse-row snapshot of the graph. The published snapshot is returned
+     * without locking; only after a single change, when no snapshot is published, is a new one
+     * built under the lock.
+     *
+     * @return The current snapshot of the graph.
+     */
+    GraphSnapshot getSnapshot() {
+        GraphSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = GraphSnapshot.build(airports.values(), version);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Gets the cache of recent dijkstra and bestRoutes results, for its hit and miss statistics.
+     *
+     * @return The route cache.
+     */
+    RouteCache getRouteCache() {
+        return cache;
+    }
+
+    /**
+     * Turns the route cache on or off for dijkstra and bestRoutes. With the cache off every
+     * query searches, which is what benchmarks of the search itself need.
+     *
+     * @param caching Whether to answer repeated queries from the cache.
+     */
+    void setCaching(boolean caching) {
+        this.caching = caching;
+    }
+
+    /**
+     * Gets the query metrics, to turn them on, read them or publish them.
+     *
+     * @return The metrics.
+     */
+    RoutingMetrics getMetrics() {
+        return metrics;
     }
 
     /**
      * Implements Dijkstra's algorithm to find the shortest path between two airports
-     * based on a specified criterion (cost, distance, or time).
+     * based on a specified criterion (cost, distance, or time). Repeated queries are answered
+     * from the route cache until the graph changes. Each query is recorded in the metrics
+     * while they are enabled.
+     *
+     * The returned list is unmodifiable: the cache hands out the same list to every query it
+     * answers, so a hit allocates nothing and a search allocates only the path and its entry.
      *
      * @param startId      The ID of the starting airport.
      * @param destinationId The ID of the destination airport.
      * @param criterion     The criterion for finding the shortest path ("cost", "distance", or "time").
-     * @return A list of airport IDs representing the shortest path from start to destination.
+     * @return An unmodifiable list of airport IDs representing the shortest path from start to destination.
      */
     public List<Integer> dijkstra(int startId, int destinationId, String criterion) {
-        Map<Integer, Integer> dist = new HashMap<>();  // Map to store the shortest distances
-        Map<Integer, Integer> prev = new HashMap<>();  // Map to store the previous node in the path
-        PriorityQueue<int[]> pq = new PriorityQueue<>(Comparator.comparingInt(a -> a[1]));  // Priority queue for exploring nodes
-        Set<Integer> visited = new HashSet<>();
+        boolean measured = metrics.isEnabled();
+        long begin = measured ? System.nanoTime() : 0;
+        GraphSnapshot graph = getSnapshot();
+        Criterion weight = Criterion.parse(criterion);
+        List<Integer> path = caching ? cachedPath(graph, startId, destinationId, weight) : null;
+        boolean cacheHit = path != null;
+        if (!cacheHit) {
+            path = caching ? searchAndCache(graph, startId, destinationId, weight)
+                    : Collections.unmodifiableList(searchPath(graph, startId, destinationId, weight));
+        }
+        if (measured) {
+            metrics.get(weight).record(startId, destinationId, System.nanoTime() - begin, cacheHit,
+                    cacheHit ? null : SEARCH_CONTEXT.get());
+        }
+        return path;
+    }
 
-        // Initialize distances to infinity for all airports
-        for (int id : airports.keySet()) {
-            dist.put(id, Integer.MAX_VALUE);
+    /**
+     * Answers a dijkstra query from the route cache: from the cached path of the same query,
+     * or by walking back the cached shortest-path tree of the start airport.
+     *
+     * @param graph         The snapshot being queried.
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion of the query.
+     * @return An unmodifiable list with the path, or null if the cache cannot answer.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Integer> cachedPath(GraphSnapshot graph, int startId, int destinationId, Criterion criterion) {
+        Object path = cache.get(graph, criterion.ordinal(), startId, destinationId);
+        if (path != null) {
+            cache.record(true, false);
+            return (List<Integer>) path;  // Already unmodifiable, shared without copying
+        }
+        ShortestPathTree tree = (ShortestPathTree) cache.get(graph, RouteCache.TREE + criterion.ordinal(), startId, 0);
+        if (tree == null) {
+            return null;
         }
+        cache.record(false, true);
+        return treePath(graph, tree, destinationId);
+    }
 
-        dist.put(startId, 0);  // Distance to start airport is zero
-        pq.add(new int[]{startId, 0});  // Add start airport to the queue
+    /**
+     * Answers a dijkstra query the route cache could not answer, and caches the answer. Counts
+     * the query towards the start airport's tree: once the airport is hot its whole tree is
+     * built and cached instead of a single path. Either way the search runs in this thread's
+     * search context, so the metrics see its real effort.
+     *
+     * @param graph         The snapshot being queried.
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion of the query.
+     * @return An unmodifiable list with the path, empty if there is none.
+     */
+    private List<Integer> searchAndCache(GraphSnapshot graph, int startId, int destinationId, Criterion criterion) {
+        cache.record(false, false);
+        int start = graph.indexOf(startId);
+        if (start >= 0 && cache.countOrigin(graph, criterion, startId)) {
+            return treePath(graph, cacheTree(graph, startId, start, criterion), destinationId);
+        }
+        List<Integer> path = Collections.unmodifiableList(searchPath(graph, startId, destinationId, criterion));
+        cache.put(graph, criterion.ordinal(), startId, destinationId, path, path.size() + 8);
+        return path;
+    }
 
-        while (!pq.isEmpty()) {
-            int[] current = pq.poll();
-            int airportId = current[0];
-            int currentDist = current[1];
+    /**
+     * Builds the shortest-path tree of a hot start airport in this thread's search context
+     * and caches it.
+     *
+     * @param graph     The snapshot being queried.
+     * @param startId   The ID of the starting airport.
+     * @param start     The dense index of the starting airport.
+     * @param criterion The criterion of the tree.
+     * @return The tree.
+     */
+    private ShortestPathTree cacheTree(GraphSnapshot graph, int startId, int start, Criterion criterion) {
+        ShortestPathTree tree = ShortestPathTree.build(graph, start, criterion, SEARCH_CONTEXT.get());
+        cache.put(graph, RouteCache.TREE + criterion.ordinal(), startId, 0, tree, 2L * tree.size());
+        return tree;
+    }
 
-            if (!visited.add(airportId)) continue;  // Skip if already visited
+    /**
+     * Reads a path off a shortest-path tree.
+     *
+     * @param graph         The snapshot the tree describes.
+     * @param tree          The tree of the start airport.
+     * @param destinationId The ID of the destination airport.
+     * @return An unmodifiable list with the path, empty if there is none.
+     */
+    private static List<Integer> treePath(GraphSnapshot graph, ShortestPathTree tree, int destinationId) {
+        int destination = graph.indexOf(destinationId);
+        if (destination < 0) {
+            return Collections.emptyList();  // Unknown airport, no path
+        }
+        return Collections.unmodifiableList(tree.path(graph, destination));
+    }
+
+    /**
+     * Runs Dijkstra's algorithm between two airports, stopping once the destination is settled.
+     *
+     * @param graph         The snapshot to search.
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion to minimize.
+     * @return A list of airport IDs representing the shortest path, empty if there is none.
+     */
+    private static List<Integer> searchPath(GraphSnapshot graph, int startId, int destinationId, Criterion criterion) {
+        SearchContext context = SEARCH_CONTEXT.get();  // Reused per thread, nothing to allocate
+        context.reset(graph.nodeCount());  // Also zeroes the search counters read by the metrics
+        int start = graph.indexOf(startId);
+        int destination = graph.indexOf(destinationId);
+        if (start < 0 || destination < 0) {
+            return Collections.emptyList();  // Unknown airport, no path
+        }
+
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights(criterion);  // Pick the weight column once
+        IndexedMinHeap pq = context.heap();  // Priority queue for exploring nodes
+
+        context.relax(start, 0, -1);  // Distance to start airport is zero
+
+        while (!pq.isEmpty()) {
+            int node = pq.poll();  // Settled: no later route can make it shorter
+            if (node == destination) break;  // Destination settled, the rest of the graph cannot help
+            int currentDist = context.dist(node);
 
             // Check each route (neighbor) from the current airport
-            for (Route route : airports.get(airportId).getRoutes()) {
-                int neighborId = route.getDestinationId();
-                int newDist;
-
-                // Choose the weight (distance, time, or cost) based on the criterion
-                if (criterion.equals("distance")) {
-                    newDist = currentDist + route.getDistance();
-                } else if (criterion.equals("time")) {
-                    newDist = currentDist + route.getTravelTime();
-                } else {
-                    newDist = currentDist + route.getCost();
-                }
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int neighbor = targets[edge];
+                int newDist = currentDist + weights[edge];
 
                 // If the new distance is shorter, update the distance and the path
-                if (newDist < dist.get(neighborId)) {
-                    dist.put(neighborId, newDist);
-                    prev.put(neighborId, airportId);
-                    pq.add(new int[]{neighborId, newDist});
+                if (newDist < context.dist(neighbor)) {
+                    context.relax(neighbor, newDist, node);
                 }
             }
         }
 
         // Backtrack to get the shortest path
-        List<Integer> path = new ArrayList<>();
-        if (dist.get(destinationId) == Integer.MAX_VALUE) {
-            return path;  // No path found
+        if (context.dist(destination) == SearchContext.INFINITY) {
+            return Collections.emptyList();  // No path found
+        }
+        return graph.unpackPath(context.prevArray(), destination);
+    }
+
+    /**
+     * Finds the best route between two airports for every criterion (cost, distance and time)
+     * in a single pass. The three searches advance in lockstep over the same adjacency and read
+     * their weights from one interleaved array, so each edge costs one memory load for all
+     * three instead of three separate sweeps. Each search stops when it settles the destination.
+     * Repeated queries are answered from the route cache until the graph changes.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return The best route for each criterion, with its total distance, travel time and cost.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<Criterion, RouteSummary> bestRoutes(int startId, int destinationId) {
+        GraphSnapshot graph = getSnapshot();
+        if (!caching) {
+            return searchBestRoutes(graph, startId, destinationId);  // A fresh result, nobody else holds it
+        }
+        Map<Criterion, RouteSummary> cached =
+                (Map<Criterion, RouteSummary>) cache.get(graph, RouteCache.BEST_ROUTES, startId, destinationId);
+        cache.record(cached != null, false);
+        if (cached == null) {
+            cached = searchBestRoutes(graph, startId, destinationId);
+            int weight = 8;
+            for (RouteSummary route : cached.values()) {
+                weight += route.getPath().size() + 8;
+            }
+            cache.put(graph, RouteCache.BEST_ROUTES, startId, destinationId, cached, weight);
+        }
+
+        // Hand out copies, the cached paths must not change
+        Map<Criterion, RouteSummary> result = new EnumMap<>(Criterion.class);
+        for (Map.Entry<Criterion, RouteSummary> entry : cached.entrySet()) {
+            RouteSummary route = entry.getValue();
+            result.put(entry.getKey(), new RouteSummary(new ArrayList<>(route.getPath()), route.getTotalDistance(),
+                    route.getTotalTravelTime(), route.getTotalCost()));
+        }
+        return result;
+    }
+
+    /**
+     * Searches the best route between two airports for every criterion in a single pass.
+     *
+     * @param graph         The snapshot to search.
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return The best route for each criterion.
+     */
+    private static Map<Criterion, RouteSummary> searchBestRoutes(GraphSnapshot graph, int startId, int destinationId) {
+        Map<Criterion, RouteSummary> result = new EnumMap<>(Criterion.class);
+        int start = graph.indexOf(startId);
+        int destination = graph.indexOf(destinationId);
+        if (start < 0 || destination < 0) {
+            for (Criterion criterion : Criterion.values()) {
+                result.put(criterion, new RouteSummary(new ArrayList<>(), 0, 0, 0));  // Unknown airport, no path
+            }
+            return result;
+        }
+
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] triples = graph.weightTriples();
+        SearchContext[] contexts = CRITERIA_CONTEXTS.get();
+        for (SearchContext context : contexts) {
+            context.reset(graph.nodeCount());
+            context.relax(start, 0, -1);
+        }
+
+        int active = (1 << contexts.length) - 1;  // Bit c is set while the search for criterion c runs
+        while (active != 0) {
+            for (int c = 0; c < contexts.length; c++) {
+                if ((active & (1 << c)) == 0) continue;
+                SearchContext context = contexts[c];
+                IndexedMinHeap pq = context.heap();
+                if (pq.isEmpty()) {
+                    active &= ~(1 << c);  // Destination unreachable
+                    continue;
+                }
+                int node = pq.poll();
+                if (node == destination) {
+                    active &= ~(1 << c);  // Destination settled for this criterion
+                    continue;
+                }
+                int currentDist = context.dist(node);
+                for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                    int neighbor = targets[edge];
+                    int newDist = currentDist + triples[3 * edge + c];
+                    if (newDist < context.dist(neighbor)) {
+                        context.relax(neighbor, newDist, node);
+                    }
+                }
+            }
+        }
+
+        for (Criterion criterion : Criterion.values()) {
+            SearchContext context = contexts[criterion.ordinal()];
+            if (context.dist(destination) == SearchContext.INFINITY) {
+                result.put(criterion, new RouteSummary(new ArrayList<>(), 0, 0, 0));  // No path found
+                continue;
+            }
+            result.put(criterion, summarize(graph, criterion, graph.unpackPath(context.prevArray(), destination)));
+        }
+        return result;
+    }
+
+    /**
+     * Adds up the distance, travel time and cost along a path. Between two consecutive
+     * airports the route that is best for the criterion is used, as the search did.
+     *
+     * @param graph     The snapshot the path was found in.
+     * @param criterion The criterion the path was optimized for.
+     * @param path      The airport IDs along the path.
+     * @return The summary of the path.
+     */
+    private static RouteSummary summarize(GraphSnapshot graph, Criterion criterion, List<Integer> path) {
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] triples = graph.weightTriples();
+        int c = criterion.ordinal();
+        int distance = 0;
+        int travelTime = 0;
+        int cost = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            int from = graph.indexOf(path.get(i));
+            int to = graph.indexOf(path.get(i + 1));
+            int best = -1;
+            for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+                if (targets[edge] == to && (best < 0 || triples[3 * edge + c] < triples[3 * best + c])) {
+                    best = edge;
+                }
+            }
+            distance += triples[3 * best + Criterion.DISTANCE.ordinal()];
+            travelTime += triples[3 * best + Criterion.TIME.ordinal()];
+            cost += triples[3 * best + Criterion.COST.ordinal()];
+        }
+        return new RouteSummary(path, distance, travelTime, cost);
+    }
+
+    /**
+     * Finds every Pareto-optimal route between two airports over cost, distance and travel
+     * time: the routes for which no other route is at least as good in all three criteria and
+     * better in one. This shows the real trade-offs, such as a cheap slow route next to a fast
+     * expensive one, which the per-criterion searches cannot.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return The non-dominated routes, cheapest first, and the search counters.
+     */
+    public ParetoResult paretoRoutes(int startId, int destinationId) {
+        return paretoRoutes(startId, destinationId, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds Pareto-optimal routes between two airports with a dominance tolerance and a cap on
+     * the number of routes. With epsilon above 0 a route is also dropped when another route is
+     * within that fraction of it in every criterion, which keeps large frontiers small.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param epsilon       The relative dominance tolerance, 0 for the exact frontier.
+     * @param maxResults    The maximum number of routes to return.
+     * @return The non-dominated routes, cheapest first, and the search counters.
+     */
+    public ParetoResult paretoRoutes(int startId, int destinationId, double epsilon, int maxResults) {
+        GraphSnapshot graph = getSnapshot();
+        int start = graph.indexOf(startId);
+        int destination = graph.indexOf(destinationId);
+        if (start < 0 || destination < 0) {
+            return new ParetoResult(new ArrayList<>(), 0, 0, false);  // Unknown airport, no path
         }
+        return new ParetoSearch(epsilon, maxResults, ParetoSearch.DEFAULT_MAX_LABELS).search(graph, start, destination);
+    }
 
-        for (Integer at = destinationId; at != null; at = prev.get(at)) {
-            path.add(at);
+    /**
+     * Finds the cheapest route between two airports that stays within limits on total travel
+     * time, total distance and the number of stops, such as the cheapest route under 6 hours
+     * with at most 2 stops. Pass ConstrainedSearch.UNLIMITED for a limit that does not apply.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param maxTravelTime The largest total travel time.
+     * @param maxDistance   The largest total distance.
+     * @param maxStops      The largest number of stops between start and destination.
+     * @return The cheapest route within the limits, empty if there is none, and the search counters.
+     */
+    public ConstrainedResult constrainedRoute(int startId, int destinationId, int maxTravelTime, int maxDistance,
+                                              int maxStops) {
+        GraphSnapshot graph = getSnapshot();
+        int start = graph.indexOf(startId);
+        int destination = graph.indexOf(destinationId);
+        if (start < 0 || destination < 0) {
+            return new ConstrainedResult(new RouteSummary(new ArrayList<>(), 0, 0, 0), 0, 0, false);  // Unknown airport, no path
         }
+        return new ConstrainedSearch(maxTravelTime, maxDistance, maxStops, ConstrainedSearch.DEFAULT_MAX_LABELS)
+                .search(graph, start, destination);
+    }
 
-        Collections.reverse(path);  // Reverse to get the path from start to destination
+    /**
+     * Finds the k shortest loopless routes between two airports for one criterion (Yen's
+     * algorithm), so the planner can offer alternatives to the best route. Routes never visit
+     * an airport twice; between two consecutive airports the route that is best for the
+     * criterion is used.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion for ranking the routes ("cost", "distance", or "time").
+     * @param k             The number of routes wanted.
+     * @return Up to k routes, shortest first, with their totals; empty if there is no route.
+     */
+    public List<RouteSummary> kShortestPaths(int startId, int destinationId, String criterion, int k) {
+        GraphSnapshot graph = getSnapshot();
+        Criterion weight = Criterion.parse(criterion);
+        List<RouteSummary> routes = new ArrayList<>();
+        int start = graph.indexOf(startId);
+        int destination = graph.indexOf(destinationId);
+        if (start < 0 || destination < 0) {
+            return routes;  // Unknown airport, no path
+        }
+        for (List<Integer> nodes : new KShortestPaths(graph, weight).search(start, destination, k)) {
+            List<Integer> path = new ArrayList<>(nodes.size());
+            for (int node : nodes) {
+                path.add(graph.airportId(node));
+            }
+            routes.add(summarize(graph, weight, path));
+        }
+        return routes;
+    }
+
+    /**
+     * Finds the shortest path between two airports with a bidirectional Dijkstra search:
+     * one search grows forward from the start over outgoing routes, the other grows backward
+     * from the destination over incoming routes, and the query stops once the two frontiers
+     * cannot produce a shorter connection. Returns the same path lengths as dijkstra while
+     * settling far fewer airports on large networks.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion for finding the shortest path ("cost", "distance", or "time").
+     * @return A list of airport IDs representing the shortest path from start to destination.
+     */
+    public List<Integer> bidirectionalDijkstra(int startId, int destinationId, String criterion) {
+        GraphSnapshot graph = getSnapshot();
+        int start = graph.indexOf(startId);
+        int destination = graph.indexOf(destinationId);
+        if (start < 0 || destination < 0) {
+            return new ArrayList<>();  // Unknown airport, no path
+        }
+
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] reverseOffsets = graph.reverseOffsets();
+        int[] reverseSources = graph.reverseSources();
+        int[] reverseEdges = graph.reverseEdges();
+        int[] weights = graph.weights(Criterion.parse(criterion));
+
+        SearchContext forward = SEARCH_CONTEXT.get();
+        SearchContext backward = BACKWARD_CONTEXT.get();  // prev points one step closer to the destination
+        forward.reset(graph.nodeCount());
+        backward.reset(graph.nodeCount());
+        IndexedMinHeap forwardQueue = forward.heap();
+        IndexedMinHeap backwardQueue = backward.heap();
+
+        forward.relax(start, 0, -1);
+        backward.relax(destination, 0, -1);
+        long best = start == destination ? 0 : Long.MAX_VALUE;  // Length of the best connection found so far
+        int meeting = start == destination ? start : -1;  // Airport where the best connection meets
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            // Stop once no unsettled airport on either side can lead to a shorter connection
+            if ((long) forwardQueue.peekKey() + backwardQueue.peekKey() >= best) break;
+
+            if (forwardQueue.size() <= backwardQueue.size()) {
+                // Expand the smaller frontier: forward step over outgoing routes
+                int node = forwardQueue.poll();
+                int currentDist = forward.dist(node);
+                for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                    int neighbor = targets[edge];
+                    int newDist = currentDist + weights[edge];
+                    if (newDist < forward.dist(neighbor)) {
+                        forward.relax(neighbor, newDist, node);
+                        int remaining = backward.dist(neighbor);
+                        if (remaining != SearchContext.INFINITY && (long) newDist + remaining < best) {
+                            best = (long) newDist + remaining;
+                            meeting = neighbor;
+                        }
+                    }
+                }
+            } else {
+                // Backward step over incoming routes
+                int node = backwardQueue.poll();
+                int currentDist = backward.dist(node);
+                for (int slot = reverseOffsets[node]; slot < reverseOffsets[node + 1]; slot++) {
+                    int neighbor = reverseSources[slot];
+                    int newDist = currentDist + weights[reverseEdges[slot]];
+                    if (newDist < backward.dist(neighbor)) {
+                        backward.relax(neighbor, newDist, node);
+                        int travelled = forward.dist(neighbor);
+                        if (travelled != SearchContext.INFINITY && (long) travelled + newDist < best) {
+                            best = (long) travelled + newDist;
+                            meeting = neighbor;
+                        }
+                    }
+                }
+            }
+        }
+
+        if (meeting < 0) {
+            return new ArrayList<>();  // The two searches never met, no path found
+        }
+
+        // Forward half from the start to the meeting airport, then follow the backward half
+        List<Integer> path = graph.unpackPath(forward.prevArray(), meeting);
+        for (int at = backward.prev(meeting); at != -1; at = backward.prev(at)) {
+            path.add(graph.airportId(at));
+        }
         return path;
     }
+
+    /**
+     * Finds the shortest path between two airports with A* search. The remaining weight to the
+     * destination is estimated from the straight-line distance through the earth times the
+     * smallest weight per unit of that distance of any route, which never overestimates, so the
+     * result has the same length as dijkstra while settling fewer airports. Falls back to plain
+     * Dijkstra when some airport has no location.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion for finding the shortest path ("cost", "distance", or "time").
+     * @return A list of airport IDs representing the shortest path from start to destination.
+     */
+    public List<Integer> aStar(int startId, int destinationId, String criterion) {
+        GraphSnapshot graph = getSnapshot();
+        int start = graph.indexOf(startId);
+        int destination = graph.indexOf(destinationId);
+        if (start < 0 || destination < 0) {
+            return new ArrayList<>();  // Unknown airport, no path
+        }
+
+        Criterion weight = Criterion.parse(criterion);
+        double perChord = graph.weightPerChord(weight);
+        if (perChord == 0) {
+            return goalDirectedSearch(graph, start, destination, graph.weights(weight), (node, target) -> 0);
+        }
+        double[] vectors = graph.unitVectors();
+        double x = vectors[3 * destination];
+        double y = vectors[3 * destination + 1];
+        double z = vectors[3 * destination + 2];
+        return goalDirectedSearch(graph, start, destination, graph.weights(weight), (node, target) -> {
+            double dx = vectors[3 * node] - x;
+            double dy = vectors[3 * node + 1] - y;
+            double dz = vectors[3 * node + 2] - z;
+            // Truncating keeps the integer estimate consistent with the integer route weights
+            return (int) Math.min(Integer.MAX_VALUE / 2, perChord * Math.sqrt(dx * dx + dy * dy + dz * dz));
+        });
+    }
+
+    /**
+     * Finds the shortest path between two airports with A* search guided by landmark (ALT)
+     * lower bounds. Unlike aStar this needs no airport locations and gives useful bounds for
+     * cost too. The landmark tables are built on first use and kept up to date as routes are
+     * added.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion for finding the shortest path ("cost", "distance", or "time").
+     * @return A list of airport IDs representing the shortest path from start to destination.
+     */
+    public List<Integer> landmarkAStar(int startId, int destinationId, String criterion) {
+        GraphSnapshot graph = getSnapshot();
+        int start = graph.indexOf(startId);
+        int destination = graph.indexOf(destinationId);
+        if (start < 0 || destination < 0) {
+            return new ArrayList<>();  // Unknown airport, no path
+        }
+
+        Criterion weight = Criterion.parse(criterion);
+        LowerBound bound = getLandmarkIndex().bound(graph, weight);
+        return goalDirectedSearch(graph, start, destination, graph.weights(weight), bound);
+    }
+
+    /**
+     * Gets the landmark index of the graph, creating it with DEFAULT_LANDMARKS landmarks on
+     * first use. Once created it follows every change to the graph. The index is created and
+     * registered under the lock, so it sees every change made after the snapshot it starts from;
+     * its tables are computed by the first landmark query, outside the lock.
+     *
+     * @return The landmark index.
+     */
+    LandmarkIndex getLandmarkIndex() {
+        LandmarkIndex index = landmarks;
+        if (index == null) {
+            synchronized (this) {
+                if (landmarks == null) {
+                    landmarks = new LandmarkIndex(getSnapshot(), DEFAULT_LANDMARKS);
+                    addGraphListener(landmarks);
+                }
+                index = landmarks;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Runs an A* search over a snapshot. The lower bound must be consistent, which makes the
+     * destination final as soon as it is taken from the queue. It is asked at most once per
+     * reached airport; later improvements of that airport reuse the bound from the context.
+     *
+     * @param graph       The snapshot to search.
+     * @param start       The dense index of the starting airport.
+     * @param destination The dense index of the destination airport.
+     * @param weights     The weight column to minimize.
+     * @param bound       The lower bound on the remaining weight to the destination.
+     * @return A list of airport IDs representing the shortest path from start to destination.
+     */
+    private static List<Integer> goalDirectedSearch(GraphSnapshot graph, int start, int destination,
+                                                    int[] weights, LowerBound bound) {
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int startEstimate = bound.estimate(start, destination);
+        if (startEstimate == LowerBound.UNREACHABLE) {
+            return new ArrayList<>();  // The bound proves there is no path
+        }
+
+        SearchContext context = SEARCH_CONTEXT.get();
+        context.reset(graph.nodeCount());
+        IndexedMinHeap pq = context.heap();  // Ordered by distance so far plus estimate to go
+
+        context.relaxTowards(start, 0, -1, startEstimate);
+
+        while (!pq.isEmpty()) {
+            int node = pq.poll();
+            if (node == destination) break;  // The estimate is consistent, so the destination is final
+            int currentDist = context.dist(node);
+
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int neighbor = targets[edge];
+                int newDist = currentDist + weights[edge];
+                if (newDist < context.dist(neighbor)) {
+                    int remaining = context.bound(neighbor);
+                    if (remaining < 0) {
+                        remaining = bound.estimate(neighbor, destination);
+                        if (remaining == LowerBound.UNREACHABLE) continue;  // Cannot lead to the destination
+                    }
+                    context.relaxTowards(neighbor, newDist, node, remaining);
+                }
+            }
+        }
+
+        if (context.dist(destination) == SearchContext.INFINITY) {
+            return new ArrayList<>();  // No path found
+        }
+        return graph.unpackPath(context.prevArray(), destination);
+    }
+
+    /**
+     * Gets the contraction hierarchy for a criterion, preprocessing it on first use.
+     * The hierarchy is rebuilt when the graph has changed since it was built, so it pays off
+     * when the graph stays unchanged across many queries. Queries for other criteria do not
+     * wait for a rebuild.
+     *
+     * @param criterion The criterion of the hierarchy ("cost", "distance", or "time").
+     * @return The contraction hierarchy of the current graph for the criterion.
+     */
+    ContractionHierarchy getContractionHierarchy(String criterion) {
+        GraphSnapshot graph = getSnapshot();
+        Criterion weight = Criterion.parse(criterion);
+        ContractionHierarchy hierarchy = hierarchies.get(weight);
+        if (hierarchy != null && hierarchy.getSnapshot().version() >= graph.version()) {
+            return hierarchy;
+        }
+        return hierarchies.compute(weight, (c, old) ->
+                old != null && old.getSnapshot().version() >= graph.version() ? old : new ContractionHierarchy(graph, c));
+    }
+
+    /**
+     * Finds the shortest path between two airports using a contraction hierarchy.
+     * Returns the same path lengths as dijkstra, with much faster queries once the hierarchy
+     * for the criterion has been built.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion for finding the shortest path ("cost", "distance", or "time").
+     * @return A list of airport IDs representing the shortest path from start to destination.
+     */
+    public List<Integer> contractionHierarchyPath(int startId, int destinationId, String criterion) {
+        return getContractionHierarchy(criterion).shortestPath(startId, destinationId);
+    }
+
+    /**
+     * Computes shortest paths between every source and every target airport for one criterion.
+     * One single-source search runs per source, stopping once every target is settled, and the
+     * sources are spread over the common ForkJoinPool so a large batch uses every core.
+     * This is much cheaper than one point-to-point query per pair.
+     *
+     * @param sourceIds The IDs of the source airports (matrix rows).
+     * @param targetIds The IDs of the target airports (matrix columns).
+     * @param criterion The criterion for finding the shortest paths ("cost", "distance", or "time").
+     * @return The matrix of path lengths and paths.
+     */
+    public RouteMatrix routeMatrix(Collection<Integer> sourceIds, Collection<Integer> targetIds, String criterion) {
+        GraphSnapshot graph = getSnapshot();
+        int[] weights = graph.weights(Criterion.parse(criterion));
+        int[] sources = sourceIds.stream().mapToInt(Integer::intValue).toArray();
+        int[] targets = targetIds.stream().mapToInt(Integer::intValue).toArray();
+
+        // Map the targets to dense indices once; searches stop when all distinct targets are settled
+        int[] targetNodes = new int[targets.length];
+        boolean[] isTarget = new boolean[graph.nodeCount()];
+        int distinctTargets = 0;
+        for (int column = 0; column < targets.length; column++) {
+            int node = graph.indexOf(targets[column]);
+            targetNodes[column] = node;
+            if (node >= 0 && !isTarget[node]) {
+                isTarget[node] = true;
+                distinctTargets++;
+            }
+        }
+
+        int[] distances = new int[sources.length * targets.length];
+        int[][] paths = new int[sources.length * targets.length][];
+        int targetCount = distinctTargets;
+        IntStream.range(0, sources.length).parallel().forEach(row ->
+                fillMatrixRow(graph, weights, graph.indexOf(sources[row]), targetNodes, isTarget, targetCount,
+                        row, distances, paths));
+        return new RouteMatrix(sources, targets, distances, paths);
+    }
+
+    /**
+     * Finds the shortest paths from one airport to several destinations for one criterion
+     * with a single search that stops once every destination is settled. Answering a group of
+     * queries that share a start this way costs about as much as the farthest one alone. Like
+     * dijkstra, the call counts towards the start airport's tree and reads every path off the
+     * cached tree once the airport is hot.
+     *
+     * @param startId        The ID of the starting airport.
+     * @param destinationIds The IDs of the destination airports.
+     * @param criterion      The criterion for finding the shortest paths ("cost", "distance", or "time").
+     * @return The route to each destination, with an empty path where there is none.
+     */
+    public Map<Integer, RouteSummary> shortestPaths(int startId, Collection<Integer> destinationIds, String criterion) {
+        boolean measured = metrics.isEnabled();
+        long begin = measured ? System.nanoTime() : 0;
+        GraphSnapshot graph = getSnapshot();
+        Criterion c = Criterion.parse(criterion);
+        int[] destinations = destinationIds.stream().mapToInt(Integer::intValue).distinct().toArray();
+        int[] targetNodes = new int[destinations.length];
+        boolean[] isTarget = new boolean[graph.nodeCount()];
+        int distinctTargets = 0;
+        for (int column = 0; column < destinations.length; column++) {
+            int node = graph.indexOf(destinations[column]);
+            targetNodes[column] = node;
+            if (node >= 0) {
+                isTarget[node] = true;
+                distinctTargets++;
+            }
+        }
+
+        int[] distances = new int[destinations.length];
+        int[][] paths = new int[destinations.length][];
+        int start = graph.indexOf(startId);
+        ShortestPathTree tree = null;
+        boolean cacheHit = false;
+        if (caching && start >= 0) {
+            tree = (ShortestPathTree) cache.get(graph, RouteCache.TREE + c.ordinal(), startId, 0);
+            cacheHit = tree != null;
+            cache.record(false, cacheHit);
+            if (tree == null && cache.countOrigin(graph, c, startId)) {
+                tree = cacheTree(graph, startId, start, c);
+            }
+        }
+        if (tree == null) {
+            fillMatrixRow(graph, graph.weights(c), start, targetNodes, isTarget, distinctTargets, 0, distances, paths);
+        }
+        if (measured) {
+            // One search, so it counts as one query whatever the number of destinations
+            metrics.get(c).record(startId, destinations.length == 1 ? destinations[0] : -1,
+                    System.nanoTime() - begin, cacheHit, start < 0 || cacheHit ? null : SEARCH_CONTEXT.get());
+        }
+
+        Map<Integer, RouteSummary> result = new HashMap<>();
+        for (int column = 0; column < destinations.length; column++) {
+            List<Integer> path;
+            if (tree != null) {
+                path = targetNodes[column] < 0 ? new ArrayList<>() : tree.path(graph, targetNodes[column]);
+            } else {
+                path = new ArrayList<>(paths[column] == null ? 0 : paths[column].length);
+                for (int airportId : paths[column] == null ? new int[0] : paths[column]) {
+                    path.add(airportId);
+                }
+            }
+            if (path.isEmpty()) {
+                result.put(destinations[column], new RouteSummary(new ArrayList<>(), 0, 0, 0));  // No path found
+                continue;
+            }
+            result.put(destinations[column], summarize(graph, c, path));
+        }
+        return result;
+    }
+
+    /**
+     * Runs the single-source search of one matrix row and stores its results.
+     * Uses the search context of the calling thread.
+     *
+     * @param graph           The snapshot to search.
+     * @param weights         The weight column to minimize.
+     * @param source          The dense index of the source airport, -1 if unknown.
+     * @param targetNodes     The dense index of each column's target airport, -1 if unknown.
+     * @param isTarget        Which airports are targets.
+     * @param distinctTargets The number of distinct known targets.
+     * @param row             The row to fill.
+     * @param distances       The matrix distances to write into.
+     * @param paths           The matrix paths to write into.
+     */
+    private static void fillMatrixRow(GraphSnapshot graph, int[] weights, int source, int[] targetNodes,
+                                      boolean[] isTarget, int distinctTargets, int row,
+                                      int[] distances, int[][] paths) {
+        int base = row * targetNodes.length;
+        Arrays.fill(distances, base, base + targetNodes.length, RouteMatrix.UNREACHABLE);
+        if (source < 0) {
+            return;  // Unknown airport, nothing is reachable
+        }
+
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        SearchContext context = SEARCH_CONTEXT.get();
+        context.reset(graph.nodeCount());
+        IndexedMinHeap pq = context.heap();
+        context.relax(source, 0, -1);
+
+        int remaining = distinctTargets;
+        while (!pq.isEmpty()) {
+            int node = pq.poll();
+            if (isTarget[node] && --remaining == 0) break;  // Every target is settled
+            int currentDist = context.dist(node);
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int neighbor = targets[edge];
+                int newDist = currentDist + weights[edge];
+                if (newDist < context.dist(neighbor)) {
+                    context.relax(neighbor, newDist, node);
+                }
+            }
+        }
+
+        for (int column = 0; column < targetNodes.length; column++) {
+            int node = targetNodes[column];
+            if (node < 0 || context.dist(node) == SearchContext.INFINITY) continue;
+            distances[base + column] = context.dist(node);
+            int length = 0;
+            for (int at = node; at != -1; at = context.prev(at)) {
+                length++;
+            }
+            int[] path = new int[length];
+            for (int at = node; at != -1; at = context.prev(at)) {
+                path[--length] = graph.airportId(at);
+            }
+            paths[base + column] = path;
+        }
+    }
 }
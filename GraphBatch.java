@@ -0,0 +1,152 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The GraphBatch class collects changes to a Graph and applies them in one step. Nothing in the
+ * batch is visible to queries until commit is called; commit then applies every change under
+ * the graph's write lock, builds the new search snapshot on the committing thread and publishes
+ * it atomically. Queries running meanwhile keep using the previous snapshot without waiting,
+ * so a large schedule update does not slow them down.
+ */
+final class GraphBatch {
+    static final int ADD_AIRPORT = 0;  // Change kinds
+    static final int ADD_ROUTE = 1;
+    static final int REMOVE_ROUTE = 2;
+    static final int UPDATE_ROUTE = 3;
+
+    private final Graph graph;  // Graph the changes are applied to
+    private final List<Change> changes;  // Recorded changes, in order
+    private boolean committed;  // Whether commit was already called
+
+    /**
+     * Constructor to start an empty batch for a graph.
+     *
+     * @param graph The graph to change.
+     */
+    GraphBatch(Graph graph) {
+        this.graph = graph;
+        this.changes = new ArrayList<>();
+    }
+
+    /**
+     * Records the addition of an airport.
+     *
+     * @param id The unique identifier for the airport.
+     * @return This batch.
+     */
+    public GraphBatch addAirport(int id) {
+        return record(ADD_AIRPORT, new Airport(id), null);
+    }
+
+    /**
+     * Records the addition of an airport with a known location.
+     *
+     * @param id        The unique identifier for the airport.
+     * @param latitude  The latitude of the airport in degrees.
+     * @param longitude The longitude of the airport in degrees.
+     * @return This batch.
+     */
+    public GraphBatch addAirport(int id, double latitude, double longitude) {
+        return record(ADD_AIRPORT, new Airport(id, latitude, longitude), null);
+    }
+
+    /**
+     * Records the addition of a route. Applying the change has no effect if there is already
+     * a route between the two airports at that point.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param distance      The distance of the route.
+     * @param travelTime    The travel time of the route.
+     * @param cost          The cost of the route.
+     * @return This batch.
+     */
+    public GraphBatch addRoute(int startId, int destinationId, int distance, int travelTime, int cost) {
+        return record(ADD_ROUTE, null, new Route(startId, destinationId, distance, travelTime, cost));
+    }
+
+    /**
+     * Records the removal of the routes between two airports.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return This batch.
+     */
+    public GraphBatch removeRoute(int startId, int destinationId) {
+        return record(REMOVE_ROUTE, null, new Route(startId, destinationId, 0, 0, 0));
+    }
+
+    /**
+     * Records new values for the routes between two airports. Applying the change has no effect
+     * if there is no route between them at that point.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param distance      The new distance of the route.
+     * @param travelTime    The new travel time of the route.
+     * @param cost          The new cost of the route.
+     * @return This batch.
+     */
+    public GraphBatch updateRoute(int startId, int destinationId, int distance, int travelTime, int cost) {
+        return record(UPDATE_ROUTE, null, new Route(startId, destinationId, distance, travelTime, cost));
+    }
+
+    /**
+     * Gets the number of recorded changes.
+     *
+     * @return The number of changes in the batch.
+     */
+    public int size() {
+        return changes.size();
+    }
+
+    /**
+     * Applies every recorded change to the graph and publishes the resulting snapshot.
+     * A batch can be committed only once.
+     */
+    public void commit() {
+        if (committed) {
+            throw new IllegalStateException("Batch already committed");
+        }
+        committed = true;
+        graph.apply(changes);
+    }
+
+    /**
+     * Adds a change to the batch.
+     *
+     * @param kind    The kind of change.
+     * @param airport The airport to add, or null.
+     * @param route   The route to add, remove or update, or null.
+     * @return This batch.
+     */
+    private GraphBatch record(int kind, Airport airport, Route route) {
+        if (committed) {
+            throw new IllegalStateException("Batch already committed");
+        }
+        changes.add(new Change(kind, airport, route));
+        return this;
+    }
+
+    /**
+     * One recorded change. Removals only use the start and destination of their route.
+     */
+    static final class Change {
+        final int kind;  // ADD_AIRPORT, ADD_ROUTE, REMOVE_ROUTE or UPDATE_ROUTE
+        final Airport airport;  // Airport to add, null for route changes
+        final Route route;  // Route to add, remove or update, null for airport changes
+
+        /**
+         * Constructor to record a change.
+         *
+         * @param kind    The kind of change.
+         * @param airport The airport to add, or null.
+         * @param route   The route to add, remove or update, or null.
+         */
+        Change(int kind, Airport airport, Route route) {
+            this.kind = kind;
+            this.airport = airport;
+            this.route = route;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * The GraphListener interface is notified when airports or routes are added to or removed
+ * from a Graph. Precomputed structures use it to update themselves instead of being rebuilt
+ * from scratch.
+ *
+ * Notifications are delivered in order while the graph's write lock is held, exactly one per
+ * change, so the n-th notification after a snapshot of version v belongs to version v + n.
+ * An updated route is reported as the removal of the old route followed by the addition of
+ * the new one.
+ */
+interface GraphListener {
+    /**
+     * Called after an airport was added to the graph.
+     *
+     * @param airport The airport that was added.
+     */
+    void airportAdded(Airport airport);
+
+    /**
+     * Called after a route was added to the graph.
+     *
+     * @param route The route that was added.
+     */
+    void routeAdded(Route route);
+
+    /**
+     * Called after a route was removed from the graph.
+     *
+     * @param route The route that was removed.
+     */
+    void routeRemoved(Route route);
+}
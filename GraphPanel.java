@@ -0,0 +1,339 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * GraphPanel is a JPanel that visualizes the graph of airports and routes. Dragging pans the
+ * view and the mouse wheel zooms around the pointer; hovering over an airport shows its ID.
+ *
+ * Nothing expensive happens on the event thread. The layout (see NetworkLayout) is computed
+ * once on a worker thread, and again, keeping every known airport in place, only when the
+ * graph changes. The network is drawn into 256-pixel image tiles by worker threads, and
+ * painting just copies the tiles of the visible area, so panning and zooming stay smooth on
+ * networks with tens of thousands of airports. Tiles are kept in a least-recently-used cache;
+ * while a tile is being drawn, the tile one zoom step out is shown enlarged in its place.
+ */
+class GraphPanel extends JPanel {
+    static final int TILE_SIZE = 256;  // Width and height of a tile in pixels
+    static final int MAX_TILES = 128;  // Tiles kept in the cache
+    static final int ZOOM_STEPS = 4;  // Zoom levels per doubling of the scale
+    private static final double BASE_SCALE = 256;  // Pixels per world unit at zoom level 0
+    private static final int MIN_ZOOM = -16;
+    private static final int MAX_ZOOM = 60;
+    private static final int HIT_PIXELS = 6;  // Distance from an airport within which it is hovered
+    private static final Color PATH_COLOR = new Color(30, 90, 220);
+    private static final Stroke PATH_STROKE = new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+
+    private final Graph graph;  // Graph being shown
+    private final ExecutorService workers;  // Threads computing the layout and drawing tiles
+    private final LinkedHashMap<Long, BufferedImage> tiles;  // Drawn tiles, least recently used first
+    private final Set<Long> requested;  // Tiles being drawn, shared with the workers
+    private volatile Set<Long> visible;  // Tiles of the current view; workers skip tiles no longer in it
+    private NetworkLayout layout;  // Current layout, null until the first one is computed
+    private boolean layoutPending;  // Whether a layout is being computed
+    private boolean fitted;  // Whether the view has been fitted to the layout
+    private int zoom;  // Zoom level; the scale doubles every ZOOM_STEPS levels
+    private double offsetX;  // Pixel position of the panel's top-left corner at the current zoom
+    private double offsetY;
+    private Point dragStart;  // Last pointer position of a drag, null when not dragging
+    private List<Integer> highlighted;  // Airport IDs of the route to highlight, empty for none
+
+    /**
+     * Constructor for the GraphPanel.
+     *
+     * @param graph The graph containing airports and routes to visualize.
+     */
+    public GraphPanel(Graph graph) {
+        this.graph = graph;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), task -> {
+            Thread thread = new Thread(task, "graph-panel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.tiles = new LinkedHashMap<>(64, 0.75f, true);
+        this.requested = ConcurrentHashMap.newKeySet();
+        this.visible = new HashSet<>();
+        this.highlighted = new ArrayList<>();
+        setBackground(Color.WHITE);
+        setToolTipText("");  // Registers the panel for tool tips, see getToolTipText
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragStart != null) {
+                    offsetX -= e.getX() - dragStart.x;
+                    offsetY -= e.getY() - dragStart.y;
+                    dragStart = e.getPoint();
+                    repaint();
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragStart = null;
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoomAt(e.getPoint(), -e.getWheelRotation());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Highlights a route, such as the best route found for the selected airports.
+     *
+     * @param path The airport IDs along the route, or an empty list to clear the highlight.
+     */
+    public void setHighlightedPath(List<Integer> path) {
+        highlighted = new ArrayList<>(path);
+        repaint();
+    }
+
+    /**
+     * Zooms in or out, keeping the world point under a pixel in place.
+     *
+     * @param anchor The pixel that stays put.
+     * @param steps  The zoom levels to add, negative to zoom out.
+     */
+    public void zoomAt(Point anchor, int steps) {
+        int target = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom + steps));
+        double factor = scale(target) / scale(zoom);
+        offsetX = (offsetX + anchor.x) * factor - anchor.x;
+        offsetY = (offsetY + anchor.y) * factor - anchor.y;
+        zoom = target;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        drawGraph((Graphics2D) g);
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        if (layout == null) {
+            return null;
+        }
+        double scale = scale(zoom);
+        int node = layout.nearest((offsetX + e.getX()) / scale, (offsetY + e.getY()) / scale, HIT_PIXELS / scale);
+        return node < 0 ? null : "Airport " + layout.getGraph().airportId(node);
+    }
+
+    /**
+     * Draws the graph of airports and routes on the panel from the cached tiles, requesting
+     * the missing ones, and draws the highlighted route on top.
+     *
+     * @param g The Graphics object used for drawing.
+     */
+    private void drawGraph(Graphics2D g) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        if (layout == null || layout.getGraph().version() != snapshot.version()) {
+            requestLayout(snapshot);
+        }
+        if (layout == null) {
+            g.setColor(Color.GRAY);
+            g.drawString("Computing layout...", 10, 20);
+            return;
+        }
+        if (!fitted && getWidth() > 0) {
+            fit();
+        }
+
+        int fromX = Math.floorDiv((int) Math.floor(offsetX), TILE_SIZE);
+        int fromY = Math.floorDiv((int) Math.floor(offsetY), TILE_SIZE);
+        int toX = Math.floorDiv((int) Math.floor(offsetX) + getWidth(), TILE_SIZE);
+        int toY = Math.floorDiv((int) Math.floor(offsetY) + getHeight(), TILE_SIZE);
+        Set<Long> wanted = new HashSet<>();
+        for (int ty = fromY; ty <= toY; ty++) {
+            for (int tx = fromX; tx <= toX; tx++) {
+                wanted.add(key(zoom, tx, ty));
+            }
+        }
+        visible = wanted;
+
+        for (int ty = fromY; ty <= toY; ty++) {
+            for (int tx = fromX; tx <= toX; tx++) {
+                int left = (int) Math.round(tx * (double) TILE_SIZE - offsetX);
+                int top = (int) Math.round(ty * (double) TILE_SIZE - offsetY);
+                BufferedImage tile = tiles.get(key(zoom, tx, ty));
+                if (tile != null) {
+                    g.drawImage(tile, left, top, null);
+                    continue;
+                }
+                requestTile(layout, zoom, tx, ty);
+                drawFallback(g, tx, ty, left, top);
+            }
+        }
+        drawHighlight(g);
+    }
+
+    /**
+     * Fills in for a missing tile with the matching quarter of the tile one doubling out,
+     * if that one is cached.
+     *
+     * @param g    The graphics to draw with.
+     * @param tx   The column of the missing tile.
+     * @param ty   The row of the missing tile.
+     * @param left The pixel position of the missing tile's left edge.
+     * @param top  The pixel position of the missing tile's top edge.
+     */
+    private void drawFallback(Graphics2D g, int tx, int ty, int left, int top) {
+        BufferedImage parent = tiles.get(key(zoom - ZOOM_STEPS, Math.floorDiv(tx, 2), Math.floorDiv(ty, 2)));
+        if (parent == null) {
+            return;
+        }
+        int sourceX = Math.floorMod(tx, 2) * TILE_SIZE / 2;
+        int sourceY = Math.floorMod(ty, 2) * TILE_SIZE / 2;
+        g.drawImage(parent, left, top, left + TILE_SIZE, top + TILE_SIZE,
+                sourceX, sourceY, sourceX + TILE_SIZE / 2, sourceY + TILE_SIZE / 2, null);
+    }
+
+    /**
+     * Draws the highlighted route over the tiles.
+     *
+     * @param g The graphics to draw with.
+     */
+    private void drawHighlight(Graphics2D g) {
+        if (highlighted.size() < 2) {
+            return;
+        }
+        GraphSnapshot snapshot = layout.getGraph();
+        double scale = scale(zoom);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(PATH_COLOR);
+        g.setStroke(PATH_STROKE);
+        int previous = -1;
+        for (int airportId : highlighted) {
+            int node = snapshot.indexOf(airportId);
+            if (node >= 0 && previous >= 0) {
+                g.drawLine((int) Math.round(layout.x(previous) * scale - offsetX),
+                        (int) Math.round(layout.y(previous) * scale - offsetY),
+                        (int) Math.round(layout.x(node) * scale - offsetX),
+                        (int) Math.round(layout.y(node) * scale - offsetY));
+            }
+            previous = node;
+        }
+    }
+
+    /**
+     * Picks the zoom level and offset that show the whole layout in the panel.
+     */
+    private void fit() {
+        double fitScale = Math.min(getWidth() / Math.max(layout.getWidth(), 1e-6),
+                getHeight() / Math.max(layout.getHeight(), 1e-6)) * 0.9;
+        zoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM,
+                (int) Math.floor(ZOOM_STEPS * Math.log(fitScale / BASE_SCALE) / Math.log(2))));
+        double scale = scale(zoom);
+        offsetX = (layout.getMinX() + layout.getWidth() / 2) * scale - getWidth() / 2.0;
+        offsetY = (layout.getMinY() + layout.getHeight() / 2) * scale - getHeight() / 2.0;
+        fitted = true;
+    }
+
+    /**
+     * Starts computing the layout of a snapshot on a worker thread, unless one is already
+     * being computed. The result replaces the current layout on the event thread.
+     *
+     * @param snapshot The snapshot to lay out.
+     */
+    private void requestLayout(GraphSnapshot snapshot) {
+        if (layoutPending) {
+            return;
+        }
+        layoutPending = true;
+        NetworkLayout previous = layout;
+        workers.execute(() -> {
+            NetworkLayout computed = NetworkLayout.compute(snapshot, previous);
+            SwingUtilities.invokeLater(() -> {
+                layout = computed;
+                layoutPending = false;
+                tiles.clear();
+                repaint();
+            });
+        });
+    }
+
+    /**
+     * Starts drawing a tile on a worker thread, unless it is already being drawn. The worker
+     * skips the tile if it has scrolled out of view before its turn comes.
+     *
+     * @param current The layout to draw.
+     * @param level   The zoom level of the tile.
+     * @param tx      The column of the tile.
+     * @param ty      The row of the tile.
+     */
+    private void requestTile(NetworkLayout current, int level, int tx, int ty) {
+        long key = key(level, tx, ty);
+        if (!requested.add(key)) {
+            return;
+        }
+        workers.execute(() -> {
+            if (!visible.contains(key)) {
+                requested.remove(key);
+                return;
+            }
+            BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = tile.createGraphics();
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+            current.paint(g, scale(level), tx * (double) TILE_SIZE, ty * (double) TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            g.dispose();
+            SwingUtilities.invokeLater(() -> {
+                requested.remove(key);
+                if (current != layout) {
+                    return;  // Drawn from a layout that has been replaced
+                }
+                tiles.put(key, tile);
+                Iterator<BufferedImage> eldest = tiles.values().iterator();
+                while (tiles.size() > MAX_TILES && eldest.hasNext()) {
+                    eldest.next();
+                    eldest.remove();
+                }
+                repaint();
+            });
+        });
+    }
+
+    /**
+     * Gets the scale of a zoom level.
+     *
+     * @param level The zoom level.
+     * @return The pixels per world unit.
+     */
+    private static double scale(int level) {
+        return BASE_SCALE * Math.pow(2, level / (double) ZOOM_STEPS);
+    }
+
+    /**
+     * Packs a zoom level and a tile position into one cache key.
+     *
+     * @param level The zoom level.
+     * @param tx    The column of the tile.
+     * @param ty    The row of the tile.
+     * @return The key.
+     */
+    private static long key(int level, int tx, int ty) {
+        return (long) (level & 0xFF) << 56 | (long) (tx & 0xFFFFFFF) << 28 | (ty & 0xFFFFFFF);
+    }
+}
@@ -0,0 +1,449 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The GraphSnapshot class is an immutable compressed-sparse-row (CSR) copy of a Graph.
+ * Airports are renumbered to dense indices 0..n-1 in ascending id order, and the routes leaving
+ * index i occupy the slots offsets[i] to offsets[i + 1] - 1 of the edge columns.
+ * Searches run over these primitive arrays instead of the Airport and Route objects.
+ * Snapshots are never modified after construction, so any number of threads can search the
+ * same snapshot without locking; the version tells snapshots of the same graph apart.
+ */
+final class GraphSnapshot {
+    private final int[] airportIds;  // Dense index -> airport ID, sorted ascending
+    private final int[] offsets;  // First edge slot of each airport (length n + 1)
+    private final int[] targets;  // Destination index of each edge
+    private final int[] distances;  // Distance of each edge
+    private final int[] travelTimes;  // Travel time of each edge
+    private final int[] costs;  // Cost of each edge
+    private final double[] latitudes;  // Latitude of each airport, NaN when unknown
+    private final double[] longitudes;  // Longitude of each airport, NaN when unknown
+    private final double[] unitVectors;  // x, y, z on the unit sphere of each airport, for fast distance bounds
+    private final double[] weightPerChord;  // Smallest weight per unit of straight-line distance of any route, per criterion
+    private volatile int[][] reverse;  // Reverse offsets, sources and forward edge slots, built on first use
+    private final long version;  // Number of graph changes the snapshot reflects
+    private volatile int[] weightTriples;  // Cost, distance and time of each edge side by side, built on first use
+
+    /**
+     * Constructor to wrap already built CSR columns. The arrays are used as-is, not copied.
+     *
+     * @param airportIds  The airport IDs in ascending order.
+     * @param offsets     The first edge slot of each airport, plus the total edge count.
+     * @param targets     The destination index of each edge.
+     * @param distances   The distance of each edge.
+     * @param travelTimes The travel time of each edge.
+     * @param costs       The cost of each edge.
+     * @param latitudes   The latitude of each airport, NaN when unknown.
+     * @param longitudes  The longitude of each airport, NaN when unknown.
+     * @param version     The number of graph changes the snapshot reflects.
+     */
+    GraphSnapshot(int[] airportIds, int[] offsets, int[] targets, int[] distances, int[] travelTimes, int[] costs,
+                  double[] latitudes, double[] longitudes, long version) {
+        this.airportIds = airportIds;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.distances = distances;
+        this.travelTimes = travelTimes;
+        this.costs = costs;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.version = version;
+        this.unitVectors = toUnitVectors(latitudes, longitudes);
+        this.weightPerChord = new double[Criterion.values().length];
+        computeWeightPerChord();
+    }
+
+    /**
+     * Builds a snapshot from the airports of a graph. Each airport contributes the routes in its
+     * own route list, in insertion order. Routes to unknown airports cannot be part of any path
+     * and are left out.
+     *
+     * @param airports The airports to include.
+     * @param version  The number of graph changes the airports reflect.
+     * @return A new snapshot of the airports and their routes.
+     */
+    static GraphSnapshot build(Collection<Airport> airports, long version) {
+        int n = airports.size();
+        Airport[] sorted = airports.toArray(new Airport[0]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.getId(), b.getId()));
+
+        int[] airportIds = new int[n];
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            airportIds[i] = sorted[i].getId();
+            latitudes[i] = sorted[i].getLatitude();
+            longitudes[i] = sorted[i].getLongitude();
+        }
+
+        // First pass: count the usable routes of each airport
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            int count = 0;
+            for (Route route : sorted[i].getRoutes()) {
+                if (Arrays.binarySearch(airportIds, route.getDestinationId()) >= 0) {
+                    count++;
+                }
+            }
+            offsets[i + 1] = offsets[i] + count;
+        }
+
+        // Second pass: fill the edge columns
+        int m = offsets[n];
+        int[] targets = new int[m];
+        int[] distances = new int[m];
+        int[] travelTimes = new int[m];
+        int[] costs = new int[m];
+        int edge = 0;
+        for (int i = 0; i < n; i++) {
+            for (Route route : sorted[i].getRoutes()) {
+                int target = Arrays.binarySearch(airportIds, route.getDestinationId());
+                if (target < 0) continue;
+                targets[edge] = target;
+                distances[edge] = route.getDistance();
+                travelTimes[edge] = route.getTravelTime();
+                costs[edge] = route.getCost();
+                edge++;
+            }
+        }
+
+        return new GraphSnapshot(airportIds, offsets, targets, distances, travelTimes, costs, latitudes, longitudes,
+                version);
+    }
+
+    /**
+     * Gets the number of airports in the snapshot.
+     *
+     * @return The number of airports.
+     */
+    int nodeCount() {
+        return airportIds.length;
+    }
+
+    /**
+     * Gets the version of the snapshot. A snapshot with a higher version was taken after more
+     * changes to the same graph.
+     *
+     * @return The number of graph changes the snapshot reflects.
+     */
+    long version() {
+        return version;
+    }
+
+    /**
+     * Gets the number of routes in the snapshot.
+     *
+     * @return The number of routes.
+     */
+    int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Finds the dense index of an airport.
+     *
+     * @param airportId The ID of the airport.
+     * @return The dense index of the airport, or -1 if it is not part of the snapshot.
+     */
+    int indexOf(int airportId) {
+        int index = Arrays.binarySearch(airportIds, airportId);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Gets the airport ID stored at a dense index.
+     *
+     * @param index The dense index of the airport.
+     * @return The ID of the airport.
+     */
+    int airportId(int index) {
+        return airportIds[index];
+    }
+
+    /**
+     * Gets the latitude of an airport.
+     *
+     * @param index The dense index of the airport.
+     * @return The latitude in degrees, or NaN if unknown.
+     */
+    double latitude(int index) {
+        return latitudes[index];
+    }
+
+    /**
+     * Gets the longitude of an airport.
+     *
+     * @param index The dense index of the airport.
+     * @return The longitude in degrees, or NaN if unknown.
+     */
+    double longitude(int index) {
+        return longitudes[index];
+    }
+
+    /**
+     * Gets all three weights of every edge interleaved as (cost, distance, time) at slots
+     * 3 * edge + Criterion.ordinal(), so a search over all criteria loads one cache line per
+     * edge instead of three. Built on first use. The array is shared, so callers must not
+     * modify it.
+     *
+     * @return The interleaved weight triples.
+     */
+    int[] weightTriples() {
+        int[] triples = weightTriples;
+        if (triples == null) {
+            triples = new int[3 * targets.length];
+            for (int edge = 0; edge < targets.length; edge++) {
+                triples[3 * edge + Criterion.COST.ordinal()] = costs[edge];
+                triples[3 * edge + Criterion.DISTANCE.ordinal()] = distances[edge];
+                triples[3 * edge + Criterion.TIME.ordinal()] = travelTimes[edge];
+            }
+            weightTriples = triples;
+        }
+        return triples;
+    }
+
+    /**
+     * Gets the points of the airports on the unit sphere. The straight line between two points
+     * (the chord) is never longer than the great circle between them, and obeys the triangle
+     * inequality, so it yields consistent distance bounds without any trigonometry. The array
+     * is shared, so callers must not modify it.
+     *
+     * @return The x, y and z coordinates of each airport, three entries per airport.
+     */
+    double[] unitVectors() {
+        return unitVectors;
+    }
+
+    /**
+     * Computes the chord between two airports of the snapshot: their straight-line distance
+     * on the unit sphere.
+     *
+     * @param a The dense index of the first airport.
+     * @param b The dense index of the second airport.
+     * @return The chord length, between 0 and 2, or NaN if either location is unknown.
+     */
+    double chordLength(int a, int b) {
+        double dx = unitVectors[3 * a] - unitVectors[3 * b];
+        double dy = unitVectors[3 * a + 1] - unitVectors[3 * b + 1];
+        double dz = unitVectors[3 * a + 2] - unitVectors[3 * b + 2];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Gets the smallest weight per unit of chord length over all routes for a criterion: the
+     * best price per straight-line distance for cost, the best pace for travel time and the
+     * straightest route for distance. Since a chain of chords is never shorter than the direct
+     * chord, multiplying it by the chord to the destination gives a lower bound on the
+     * remaining weight of any path. It is 0 when some airport has no location, in which case
+     * no such bound exists.
+     *
+     * @param criterion The criterion to get the factor for.
+     * @return The weight per chord length lower bound.
+     */
+    double weightPerChord(Criterion criterion) {
+        return weightPerChord[criterion.ordinal()];
+    }
+
+    /**
+     * Gets the edge offsets array. The array is shared, so callers must not modify it.
+     *
+     * @return The first edge slot of each airport, plus the total edge count.
+     */
+    int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * Gets the edge target array. The array is shared, so callers must not modify it.
+     *
+     * @return The destination index of each edge.
+     */
+    int[] targets() {
+        return targets;
+    }
+
+    /**
+     * Gets the reverse edge offsets array. The array is shared, so callers must not modify it.
+     *
+     * @return The first incoming edge slot of each airport, plus the total edge count.
+     */
+    int[] reverseOffsets() {
+        return reverse()[0];
+    }
+
+    /**
+     * Gets the source of each incoming edge. The array is shared, so callers must not modify it.
+     *
+     * @return The source index of each incoming edge.
+     */
+    int[] reverseSources() {
+        return reverse()[1];
+    }
+
+    /**
+     * Gets the forward edge slot of each incoming edge, which indexes the weight columns.
+     * The array is shared, so callers must not modify it.
+     *
+     * @return The forward edge slot of each incoming edge.
+     */
+    int[] reverseEdges() {
+        return reverse()[2];
+    }
+
+    /**
+     * Gets the reverse adjacency, building it with a counting sort of the edges by target on
+     * first use. Only searches over incoming routes need it, so snapshots that are only
+     * searched forward, such as a freshly opened network file, never pay for it. Concurrent
+     * first calls may each build it; they produce identical arrays.
+     *
+     * @return The reverse offsets, sources and forward edge slots.
+     */
+    private int[][] reverse() {
+        int[][] built = reverse;
+        if (built == null) {
+            int n = airportIds.length;
+            int m = targets.length;
+            int[] reverseOffsets = new int[n + 1];
+            for (int edge = 0; edge < m; edge++) {
+                reverseOffsets[targets[edge] + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                reverseOffsets[i + 1] += reverseOffsets[i];
+            }
+            int[] reverseSources = new int[m];
+            int[] reverseEdges = new int[m];
+            int[] next = Arrays.copyOf(reverseOffsets, n);
+            for (int node = 0; node < n; node++) {
+                for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                    int slot = next[targets[edge]]++;
+                    reverseSources[slot] = node;
+                    reverseEdges[slot] = edge;
+                }
+            }
+            built = new int[][]{reverseOffsets, reverseSources, reverseEdges};
+            reverse = built;
+        }
+        return built;
+    }
+
+    /**
+     * Gets the weight column for a criterion. The array is shared, so callers must not modify it.
+     *
+     * @param criterion The criterion to read weights for.
+     * @return The weight of each edge under the criterion.
+     */
+    int[] weights(Criterion criterion) {
+        switch (criterion) {
+            case DISTANCE:
+                return distances;
+            case TIME:
+                return travelTimes;
+            default:
+                return costs;
+        }
+    }
+
+    /**
+     * Fills weightPerChord with the smallest weight-to-chord ratio over all routes.
+     * Routes between airports at the same location do not constrain the ratio.
+     */
+    private void computeWeightPerChord() {
+        for (int node = 0; node < latitudes.length; node++) {
+            if (Double.isNaN(latitudes[node]) || Double.isNaN(longitudes[node])) {
+                return;  // Without every location there is no admissible bound; leave all factors at 0
+            }
+        }
+        double[] best = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        for (int node = 0; node < latitudes.length; node++) {
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                double chord = chordLength(node, targets[edge]);
+                if (chord <= 0) continue;
+                for (Criterion criterion : Criterion.values()) {
+                    best[criterion.ordinal()] = Math.min(best[criterion.ordinal()], weights(criterion)[edge] / chord);
+                }
+            }
+        }
+        for (int i = 0; i < best.length; i++) {
+            // Shave a little off so rounding in the distance formula never overestimates
+            weightPerChord[i] = best[i] == Double.MAX_VALUE ? 0 : Math.max(0, best[i] * (1 - 1e-9));
+        }
+    }
+
+    /**
+     * Converts latitudes and longitudes into points on the unit sphere.
+     *
+     * @param latitudes  The latitude of each airport in degrees.
+     * @param longitudes The longitude of each airport in degrees.
+     * @return The x, y and z coordinates of each airport, three entries per airport.
+     */
+    private static double[] toUnitVectors(double[] latitudes, double[] longitudes) {
+        double[] vectors = new double[3 * latitudes.length];
+        for (int i = 0; i < latitudes.length; i++) {
+            double phi = Math.toRadians(latitudes[i]);
+            double lambda = Math.toRadians(longitudes[i]);
+            vectors[3 * i] = Math.cos(phi) * Math.cos(lambda);
+            vectors[3 * i + 1] = Math.cos(phi) * Math.sin(lambda);
+            vectors[3 * i + 2] = Math.sin(phi);
+        }
+        return vectors;
+    }
+
+    /**
+     * Computes the shortest-path length from every airport to a destination with a full
+     * Dijkstra search over incoming routes. Multi-criteria searches use these as exact lower
+     * bounds on the remaining weight.
+     *
+     * @param destination The dense index of the destination airport.
+     * @param criterion   The criterion to measure.
+     * @param context     The search context to run the search in.
+     * @return The distance of each airport to the destination, SearchContext.INFINITY if it cannot reach it.
+     */
+    int[] distancesTo(int destination, Criterion criterion, SearchContext context) {
+        int[] weights = weights(criterion);
+        int[] reverseOffsets = reverseOffsets();
+        int[] reverseSources = reverseSources();
+        int[] reverseEdges = reverseEdges();
+        context.reset(nodeCount());
+        IndexedMinHeap queue = context.heap();
+        context.relax(destination, 0, -1);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int currentDist = context.dist(node);
+            for (int slot = reverseOffsets[node]; slot < reverseOffsets[node + 1]; slot++) {
+                int neighbor = reverseSources[slot];
+                int newDist = currentDist + weights[reverseEdges[slot]];
+                if (newDist < context.dist(neighbor)) {
+                    context.relax(neighbor, newDist, node);
+                }
+            }
+        }
+        int[] result = new int[nodeCount()];
+        for (int node = 0; node < result.length; node++) {
+            result[node] = context.dist(node);
+        }
+        return result;
+    }
+
+    /**
+     * Converts a chain of predecessor indices into a list of airport IDs.
+     *
+     * @param prev        The predecessor index of each airport, -1 for the start of the chain.
+     * @param destination The dense index of the last airport of the path.
+     * @return The airport IDs of the path, from start to destination.
+     */
+    List<Integer> unpackPath(int[] prev, int destination) {
+        int length = 0;
+        for (int at = destination; at != -1; at = prev[at]) {
+            length++;
+        }
+        List<Integer> path = new ArrayList<>(length);  // Sized once, the list never grows
+        for (int at = destination; at != -1; at = prev[at]) {
+            path.add(airportIds[at]);
+        }
+        Collections.reverse(path);  // Reverse to get the path from start to destination
+        return path;
+    }
+}
@@ -0,0 +1,197 @@
+import java.util.Arrays;
+
+/**
+ * The IndexedMinHeap class is a binary min-heap of node indices keyed by int priorities.
+ * Each node can be in the heap at most once, and its key can be lowered in place (decrease-key),
+ * so searches never push duplicate entries. All storage is primitive and reused between queries.
+ */
+final class IndexedMinHeap {
+    private int[] heap;  // Heap slots holding node indices
+    private int[] keys;  // Key of each node currently in the heap, indexed by node
+    private int[] positions;  // Heap slot of each node, -1 when the node is not in the heap
+    private int size;  // Number of nodes currently in the heap
+    private int pushes;  // Nodes inserted since the last clear
+    private int polls;  // Nodes removed by poll since the last clear
+
+    /**
+     * Constructor to create a heap for nodes 0..capacity-1.
+     *
+     * @param capacity The number of nodes the heap can hold.
+     */
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        keys = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * Makes sure the heap can hold nodes 0..capacity-1. Only allocates when the heap grows.
+     *
+     * @param capacity The number of nodes the heap must be able to hold.
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity > positions.length) {
+            int oldLength = positions.length;
+            heap = Arrays.copyOf(heap, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            Arrays.fill(positions, oldLength, capacity, -1);
+        }
+    }
+
+    /**
+     * Removes every node from the heap and zeroes the push and poll counts. Runs in time
+     * proportional to the current size.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+        pushes = 0;
+        polls = 0;
+    }
+
+    /**
+     * Gets the number of nodes inserted since the last clear; lowered keys do not count.
+     *
+     * @return The number of pushes.
+     */
+    int pushCount() {
+        return pushes;
+    }
+
+    /**
+     * Gets the number of nodes removed by poll since the last clear.
+     *
+     * @return The number of polls.
+     */
+    int pollCount() {
+        return polls;
+    }
+
+    /**
+     * Checks whether the heap is empty.
+     *
+     * @return true if no nodes are in the heap.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the number of nodes in the heap.
+     *
+     * @return The heap size.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether a node is currently in the heap.
+     *
+     * @param node The node index.
+     * @return true if the node is in the heap.
+     */
+    boolean contains(int node) {
+        return positions[node] >= 0;
+    }
+
+    /**
+     * Gets the smallest key in the heap without removing it. The heap must not be empty.
+     *
+     * @return The smallest key.
+     */
+    int peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Inserts a node, or lowers its key if it is already in the heap with a larger key.
+     *
+     * @param node The node index.
+     * @param key  The new key of the node.
+     * @return true if the node was inserted or its key lowered.
+     */
+    boolean insertOrDecrease(int node, int key) {
+        int position = positions[node];
+        if (position < 0) {
+            position = size++;
+            pushes++;
+            heap[position] = node;
+            positions[node] = position;
+        } else if (key >= keys[node]) {
+            return false;
+        }
+        keys[node] = key;
+        siftUp(position);
+        return true;
+    }
+
+    /**
+     * Removes the node with the smallest key. The heap must not be empty.
+     *
+     * @return The removed node index.
+     */
+    int poll() {
+        int top = heap[0];
+        positions[top] = -1;
+        size--;
+        polls++;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Moves the node at a heap slot up until its parent's key is not larger.
+     *
+     * @param position The heap slot to sift.
+     */
+    private void siftUp(int position) {
+        int node = heap[position];
+        int key = keys[node];
+        while (position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parent = heap[parentPosition];
+            if (keys[parent] <= key) break;
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = node;
+        positions[node] = position;
+    }
+
+    /**
+     * Moves the node at a heap slot down until neither child has a smaller key.
+     *
+     * @param position The heap slot to sift.
+     */
+    private void siftDown(int position) {
+        int node = heap[position];
+        int key = keys[node];
+        int half = size >>> 1;
+        while (position < half) {
+            int childPosition = 2 * position + 1;
+            int child = heap[childPosition];
+            int rightPosition = childPosition + 1;
+            if (rightPosition < size && keys[heap[rightPosition]] < keys[child]) {
+                childPosition = rightPosition;
+                child = heap[childPosition];
+            }
+            if (key <= keys[child]) break;
+            heap[position] = child;
+            positions[child] = position;
+            position = childPosition;
+        }
+        heap[position] = node;
+        positions[node] = position;
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Journey class describes a trip found in a timetable: the scheduled flights taken, in
+ * order, with their departure and arrival times in minutes from the start of the timetable.
+ */
+class Journey {
+    private final int[] airports;  // Airport IDs visited, one more than the number of flights
+    private final int[] departures;  // Departure time of each flight
+    private final int[] arrivals;  // Arrival time of each flight
+
+    /**
+     * Constructor to initialize a journey. The arrays are used as-is, not copied.
+     *
+     * @param airports   The airport IDs visited, from start to destination.
+     * @param departures The departure time of each flight.
+     * @param arrivals   The arrival time of each flight.
+     */
+    Journey(int[] airports, int[] departures, int[] arrivals) {
+        this.airports = airports;
+        this.departures = departures;
+        this.arrivals = arrivals;
+    }
+
+    /**
+     * Checks whether a journey was found.
+     *
+     * @return true if the journey has at least one flight.
+     */
+    public boolean isFound() {
+        return departures.length > 0;
+    }
+
+    /**
+     * Gets the airports along the journey.
+     *
+     * @return The airport IDs from start to destination, empty if no journey was found.
+     */
+    public List<Integer> getPath() {
+        List<Integer> path = new ArrayList<>(airports.length);
+        for (int airport : airports) {
+            path.add(airport);
+        }
+        return path;
+    }
+
+    /**
+     * Gets the number of flights taken.
+     *
+     * @return The number of flights.
+     */
+    public int getFlightCount() {
+        return departures.length;
+    }
+
+    /**
+     * Gets the departure time of one flight.
+     *
+     * @param flight The flight number, 0 for the first.
+     * @return The departure time in minutes.
+     */
+    public int getDepartureTime(int flight) {
+        return departures[flight];
+    }
+
+    /**
+     * Gets the arrival time of one flight.
+     *
+     * @param flight The flight number, 0 for the first.
+     * @return The arrival time in minutes.
+     */
+    public int getArrivalTime(int flight) {
+        return arrivals[flight];
+    }
+
+    /**
+     * Gets the time the journey leaves the start airport.
+     *
+     * @return The departure time of the first flight in minutes.
+     */
+    public int getDepartureTime() {
+        return departures[0];
+    }
+
+    /**
+     * Gets the time the journey reaches the destination.
+     *
+     * @return The arrival time of the last flight in minutes.
+     */
+    public int getArrivalTime() {
+        return arrivals[arrivals.length - 1];
+    }
+
+    /**
+     * Gets the time from the first departure to the last arrival, including connections.
+     *
+     * @return The duration in minutes.
+     */
+    public int getDuration() {
+        return isFound() ? getArrivalTime() - getDepartureTime() : 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Journey{");
+        for (int i = 0; i < departures.length; i++) {
+            text.append(i == 0 ? "" : ", ").append(airports[i]).append(" ").append(clock(departures[i]))
+                    .append(" -> ").append(airports[i + 1]).append(" ").append(clock(arrivals[i]));
+        }
+        return text.append('}').toString();
+    }
+
+    /**
+     * Formats a time as a day and a clock time, such as "d1 07:05".
+     *
+     * @param minutes The time in minutes from the start of the timetable.
+     * @return The formatted time.
+     */
+    private static String clock(int minutes) {
+        return String.format("d%d %02d:%02d", minutes / 1440, minutes % 1440 / 60, minutes % 60);
+    }
+}
@@ -0,0 +1,393 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The KShortestPaths class finds the K shortest loopless routes between two airports for one
+ * criterion with Yen's algorithm: each route after the first is found by leaving an earlier
+ * route at one of its airports (the spur) with a search that may not reuse the airports before
+ * the spur, nor the next airport of any route found so far that shares the same beginning.
+ *
+ * Three things keep it fast enough for interactive use on large networks:
+ * <ul>
+ *     <li>One backward search from the destination gives the exact remaining distance of every
+ *     airport. It yields the first route, and each spur whose shortest remaining route avoids
+ *     the blocked airports simply follows it, with no search at all.</li>
+ *     <li>The other spurs run A* with those distances as the estimate, which stays exact
+ *     whenever the blocked airports do not matter, so the search follows the route.</li>
+ *     <li>Candidates are kept in a lazy heap trimmed to the number of routes still needed, and
+ *     a spur whose lower bound cannot beat the worst of them is skipped. Spurs only start at
+ *     or after the airport where the previous route left its parent (Lawler's refinement).</li>
+ * </ul>
+ *
+ * Routes are sequences of airports; between two consecutive airports the route that is best
+ * for the criterion is used.
+ */
+final class KShortestPaths {
+    private static final int INFINITY = SearchContext.INFINITY;
+
+    private final GraphSnapshot graph;  // Snapshot to search
+    private final Criterion criterion;  // Criterion to minimize
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;  // Weight column of the criterion
+    private final SearchContext context;  // Search state of the backward and spur searches
+    private final int[] blocked;  // Stamp of the spur that blocked each airport, negated for tree walks
+    private int spur;  // Stamp of the current spur
+    private int[] toDestination;  // Exact remaining distance of every airport, INFINITY if none
+    private int spurSearches;  // Spurs that needed an A* search
+    private int treeSpurs;  // Spurs answered by following the remaining-distance tree
+    private int prunedSpurs;  // Spurs skipped because they could not beat the candidates
+
+    /**
+     * Constructor to create a search over a snapshot.
+     *
+     * @param graph     The snapshot to search.
+     * @param criterion The criterion to minimize.
+     */
+    KShortestPaths(GraphSnapshot graph, Criterion criterion) {
+        this.graph = graph;
+        this.criterion = criterion;
+        this.offsets = graph.offsets();
+        this.targets = graph.targets();
+        this.weights = graph.weights(criterion);
+        this.context = new SearchContext();
+        this.blocked = new int[graph.nodeCount()];
+    }
+
+    /**
+     * Finds up to k shortest loopless routes, shortest first.
+     *
+     * @param start       The dense index of the starting airport.
+     * @param destination The dense index of the destination airport.
+     * @param k           The number of routes wanted.
+     * @return The routes as lists of dense airport indices; fewer than k if there are no more.
+     */
+    List<List<Integer>> search(int start, int destination, int k) {
+        List<List<Integer>> routes = new ArrayList<>();
+        if (k <= 0 || start == destination) {
+            return routes;
+        }
+        toDestination = graph.distancesTo(destination, criterion, context);
+        if (toDestination[start] == INFINITY) {
+            return routes;  // No route at all
+        }
+
+        List<int[]> accepted = new ArrayList<>();
+        Set<List<Integer>> seen = new HashSet<>();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        nextStamp();
+        int[] first = treePath(new int[0], start, destination, new ArrayList<>());
+        if (first == null) {
+            aStar(start, destination, new ArrayList<>(), INFINITY);  // The walk ran into a loop of zero-weight routes
+            first = concat(new int[0], start, destination);
+        }
+        Candidate next = new Candidate(first, toDestination[start], 0);
+        seen.add(next.key());
+
+        while (true) {
+            int[] path = next.path;
+            accepted.add(path);
+            routes.add(next.key());
+            int needed = k - accepted.size();
+            if (needed == 0) break;
+
+            int threshold = trim(candidates, needed);  // A candidate must cost less than this to matter
+            int rootCost = 0;
+            for (int i = 0; i < path.length - 1; i++) {
+                if (i >= next.deviation) {
+                    Candidate found = spur(accepted, path, i, rootCost, destination, threshold);
+                    if (found != null && seen.add(found.key())) {
+                        candidates.add(found);
+                    }
+                }
+                rootCost += edgeWeight(path[i], path[i + 1]);
+            }
+            if (candidates.isEmpty()) break;
+            next = candidates.poll();
+        }
+        return routes;
+    }
+
+    /**
+     * Gets the number of spurs that needed an A* search.
+     *
+     * @return The spur search count.
+     */
+    int getSpurSearches() {
+        return spurSearches;
+    }
+
+    /**
+     * Gets the number of spurs answered by following the remaining-distance tree.
+     *
+     * @return The tree spur count.
+     */
+    int getTreeSpurs() {
+        return treeSpurs;
+    }
+
+    /**
+     * Gets the number of spurs skipped because they could not beat the candidates.
+     *
+     * @return The pruned spur count.
+     */
+    int getPrunedSpurs() {
+        return prunedSpurs;
+    }
+
+    /**
+     * Finds the shortest route that follows a path up to one of its airports and then leaves
+     * it on a route no accepted path with the same beginning has taken.
+     *
+     * @param accepted    The routes found so far.
+     * @param path        The route being deviated from.
+     * @param index       The position of the spur airport on the path.
+     * @param rootCost    The weight of the path up to the spur airport.
+     * @param destination The dense index of the destination.
+     * @param threshold   The weight a candidate must stay below, INFINITY for no limit.
+     * @return The candidate, or null if there is none worth keeping.
+     */
+    private Candidate spur(List<int[]> accepted, int[] path, int index, int rootCost, int destination, int threshold) {
+        int node = path[index];
+        if (toDestination[node] == INFINITY || (long) rootCost + toDestination[node] >= threshold) {
+            prunedSpurs++;
+            return null;  // Even the unrestricted remainder cannot beat the candidates
+        }
+
+        // Block the airports before the spur and the next airport of every route sharing the root
+        nextStamp();
+        for (int i = 0; i < index; i++) {
+            blocked[path[i]] = spur;
+        }
+        int[] root = Arrays.copyOf(path, index);
+        List<Integer> bannedHops = new ArrayList<>();
+        for (int[] other : accepted) {
+            if (other.length > index + 1 && Arrays.equals(other, 0, index + 1, path, 0, index + 1)) {
+                bannedHops.add(other[index + 1]);
+            }
+        }
+
+        int[] found = treePath(root, node, destination, bannedHops);
+        int cost;
+        if (found != null) {
+            treeSpurs++;
+            cost = rootCost + toDestination[node];
+        } else {
+            spurSearches++;
+            int limit = threshold == INFINITY ? INFINITY : threshold - rootCost;
+            int remaining = aStar(node, destination, bannedHops, limit);
+            if (remaining == INFINITY) {
+                return null;
+            }
+            found = concat(root, node, destination);
+            cost = rootCost + remaining;
+        }
+        return new Candidate(found, cost, index);
+    }
+
+    /**
+     * Follows the remaining-distance tree from an airport to the destination, avoiding the
+     * airports blocked for the current spur and, on the first hop, the banned next airports.
+     * Among equally short next hops any allowed one is taken.
+     *
+     * @param root        The airports before the first one, copied into the result.
+     * @param from        The dense index of the first airport.
+     * @param destination The dense index of the destination.
+     * @param bannedHops  The airports the first hop may not go to.
+     * @return The path from the root to the destination, or null if the tree path is blocked.
+     */
+    private int[] treePath(int[] root, int from, int destination, List<Integer> bannedHops) {
+        int[] path = Arrays.copyOf(root, root.length + 8);
+        int length = root.length;
+        int node = from;
+        path[length++] = node;
+        blocked[node] = -spur;  // Walked airports are not walked again, zero-weight routes could loop
+        while (node != destination) {
+            int hop = -1;
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int neighbor = targets[edge];
+                if (toDestination[neighbor] == INFINITY
+                        || weights[edge] + toDestination[neighbor] != toDestination[node]) continue;
+                if (blocked[neighbor] == spur || blocked[neighbor] == -spur) continue;
+                if (node == from && bannedHops.contains(neighbor)) continue;
+                hop = neighbor;
+                break;
+            }
+            if (hop < 0) {
+                return null;
+            }
+            if (length == path.length) {
+                path = Arrays.copyOf(path, length * 2);
+            }
+            path[length++] = hop;
+            blocked[hop] = -spur;
+            node = hop;
+        }
+        return Arrays.copyOf(path, length);
+    }
+
+    /**
+     * Runs A* from the spur airport to the destination with the exact remaining distances of
+     * the unrestricted network as the estimate, avoiding blocked airports and banned first hops.
+     *
+     * @param from        The dense index of the spur airport.
+     * @param destination The dense index of the destination.
+     * @param bannedHops  The airports the first hop may not go to.
+     * @param limit       The weight the remainder must stay below, INFINITY for no limit.
+     * @return The weight of the shortest remainder, or INFINITY if there is none below the limit.
+     */
+    private int aStar(int from, int destination, List<Integer> bannedHops, int limit) {
+        context.reset(graph.nodeCount());
+        IndexedMinHeap pq = context.heap();
+        context.relax(from, 0, -1, toDestination[from]);
+        while (!pq.isEmpty()) {
+            int node = pq.poll();
+            if (node == destination) {
+                return context.dist(destination);
+            }
+            int currentDist = context.dist(node);
+            if ((long) currentDist + toDestination[node] >= limit) {
+                return INFINITY;  // Every remaining route is at least this long
+            }
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int neighbor = targets[edge];
+                if (blocked[neighbor] == spur || toDestination[neighbor] == INFINITY) continue;
+                if (node == from && bannedHops.contains(neighbor)) continue;
+                int newDist = currentDist + weights[edge];
+                if (newDist < context.dist(neighbor)) {
+                    context.relax(neighbor, newDist, node, newDist + toDestination[neighbor]);
+                }
+            }
+        }
+        return INFINITY;
+    }
+
+    /**
+     * Joins the root with the remainder found by the last A* search.
+     *
+     * @param root        The airports before the spur.
+     * @param from        The dense index of the spur airport.
+     * @param destination The dense index of the destination.
+     * @return The whole path.
+     */
+    private int[] concat(int[] root, int from, int destination) {
+        int length = 0;
+        for (int at = destination; at != from; at = context.prev(at)) {
+            length++;
+        }
+        int[] path = Arrays.copyOf(root, root.length + length + 1);
+        int i = path.length - 1;
+        for (int at = destination; at != from; at = context.prev(at)) {
+            path[i--] = at;
+        }
+        path[i] = from;
+        return path;
+    }
+
+    /**
+     * Gets the weight of the best route between two consecutive airports.
+     *
+     * @param from The dense index of the first airport.
+     * @param to   The dense index of the second airport.
+     * @return The smallest weight of a route between them.
+     */
+    private int edgeWeight(int from, int to) {
+        int best = INFINITY;
+        for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+            if (targets[edge] == to) {
+                best = Math.min(best, weights[edge]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Drops the candidates that can no longer be among the routes returned, keeping the
+     * cheapest ones.
+     *
+     * @param candidates The candidate heap, trimmed in place.
+     * @param needed     The number of routes still needed.
+     * @return The weight of the worst kept candidate if there are enough of them, else INFINITY.
+     */
+    private static int trim(PriorityQueue<Candidate> candidates, int needed) {
+        if (candidates.size() < needed) {
+            return INFINITY;
+        }
+        Candidate[] sorted = candidates.toArray(new Candidate[0]);
+        Arrays.sort(sorted);
+        if (sorted.length > needed) {
+            candidates.clear();
+            candidates.addAll(Arrays.asList(sorted).subList(0, needed));
+        }
+        return sorted[needed - 1].cost;
+    }
+
+    /**
+     * Starts a new blocking stamp, so the airports blocked for earlier spurs are free again.
+     */
+    private void nextStamp() {
+        if (++spur == Integer.MAX_VALUE) {
+            Arrays.fill(blocked, 0);
+            spur = 1;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "KShortestPaths{" +
+                "spurSearches=" + spurSearches +
+                ", treeSpurs=" + treeSpurs +
+                ", prunedSpurs=" + prunedSpurs +
+                '}';
+    }
+
+    /**
+     * A route waiting in the candidate heap.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        private final int[] path;  // Dense airport indices from start to destination
+        private final int cost;  // Total weight of the route
+        private final int deviation;  // Position where the route left the route it was derived from
+
+        /**
+         * Constructor to create a candidate.
+         *
+         * @param path      The dense airport indices of the route.
+         * @param cost      The total weight of the route.
+         * @param deviation The position of its spur airport.
+         */
+        Candidate(int[] path, int cost, int deviation) {
+            this.path = path;
+            this.cost = cost;
+            this.deviation = deviation;
+        }
+
+        /**
+         * Gets the path as a list, for duplicate detection and results.
+         *
+         * @return The dense airport indices of the route.
+         */
+        List<Integer> key() {
+            List<Integer> key = new ArrayList<>(path.length);
+            for (int node : path) {
+                key.add(node);
+            }
+            return key;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (cost != other.cost) {
+                return Integer.compare(cost, other.cost);
+            }
+            if (path.length != other.path.length) {
+                return Integer.compare(path.length, other.path.length);  // Fewer flights first
+            }
+            return Arrays.compare(path, other.path);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.Arrays;
+
+/**
+ * The LabelHeap class is a binary min-heap of label indices keyed by long priorities, used by
+ * the label-setting searches. Unlike IndexedMinHeap it allows many entries per airport and
+ * never decreases keys; a label that has been overtaken is simply skipped when taken out.
+ */
+final class LabelHeap {
+    private long[] keys;  // Priority of each queued label, in heap order
+    private int[] labels;  // Queued labels, in heap order
+    private int size;  // Number of queued labels
+
+    /**
+     * Constructor to create an empty heap.
+     *
+     * @param capacity The number of labels to make room for up front.
+     */
+    LabelHeap(int capacity) {
+        capacity = Math.max(capacity, 16);
+        keys = new long[capacity];
+        labels = new int[capacity];
+    }
+
+    /**
+     * Removes every label, keeping the storage.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Checks whether the heap is empty.
+     *
+     * @return true if no label is queued.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Queues a label.
+     *
+     * @param label The label index.
+     * @param key   The priority of the label.
+     */
+    void push(int label, long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            labels = Arrays.copyOf(labels, size * 2);
+        }
+        int position = size++;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (keys[parent] <= key) break;
+            keys[position] = keys[parent];
+            labels[position] = labels[parent];
+            position = parent;
+        }
+        keys[position] = key;
+        labels[position] = label;
+    }
+
+    /**
+     * Removes the label with the smallest key. The heap must not be empty.
+     *
+     * @return The label index.
+     */
+    int pop() {
+        int top = labels[0];
+        size--;
+        if (size > 0) {
+            long key = keys[size];
+            int label = labels[size];
+            int position = 0;
+            int half = size >>> 1;
+            while (position < half) {
+                int child = 2 * position + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) break;
+                keys[position] = keys[child];
+                labels[position] = labels[child];
+                position = child;
+            }
+            keys[position] = key;
+            labels[position] = label;
+        }
+        return top;
+    }
+}
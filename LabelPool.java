@@ -0,0 +1,160 @@
+import java.util.Arrays;
+
+/**
+ * The LabelPool class stores the labels of a multi-criteria search in parallel primitive
+ * arrays. A label is a partial route ending at an airport, identified by its index in the
+ * pool, with its accumulated cost, distance, travel time and number of flights and the label
+ * it was extended from. The pool grows as needed and is reused between queries.
+ */
+final class LabelPool {
+    private int[] nodes;  // Airport index each label ends at
+    private int[] parents;  // Label each label was extended from, -1 for the start label
+    private int[] costs;  // Accumulated cost of each label
+    private int[] distances;  // Accumulated distance of each label
+    private int[] travelTimes;  // Accumulated travel time of each label
+    private int[] hops;  // Number of flights of each label
+    private int size;  // Number of labels in the pool
+
+    /**
+     * Constructor to create an empty pool.
+     *
+     * @param capacity The number of labels to make room for up front.
+     */
+    LabelPool(int capacity) {
+        capacity = Math.max(capacity, 16);
+        nodes = new int[capacity];
+        parents = new int[capacity];
+        costs = new int[capacity];
+        distances = new int[capacity];
+        travelTimes = new int[capacity];
+        hops = new int[capacity];
+    }
+
+    /**
+     * Removes every label from the pool, keeping its storage.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gets the number of labels in the pool.
+     *
+     * @return The number of labels.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a label to the pool.
+     *
+     * @param node       The airport index the label ends at.
+     * @param parent     The label it was extended from, -1 for the start label.
+     * @param cost       The accumulated cost.
+     * @param distance   The accumulated distance.
+     * @param travelTime The accumulated travel time.
+     * @param hopCount   The number of flights.
+     * @return The index of the new label.
+     */
+    int add(int node, int parent, int cost, int distance, int travelTime, int hopCount) {
+        if (size == nodes.length) {
+            int capacity = size * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            costs = Arrays.copyOf(costs, capacity);
+            distances = Arrays.copyOf(distances, capacity);
+            travelTimes = Arrays.copyOf(travelTimes, capacity);
+            hops = Arrays.copyOf(hops, capacity);
+        }
+        nodes[size] = node;
+        parents[size] = parent;
+        costs[size] = cost;
+        distances[size] = distance;
+        travelTimes[size] = travelTime;
+        hops[size] = hopCount;
+        return size++;
+    }
+
+    /**
+     * Gets the airport index a label ends at.
+     *
+     * @param label The label index.
+     * @return The airport index.
+     */
+    int node(int label) {
+        return nodes[label];
+    }
+
+    /**
+     * Gets the label a label was extended from.
+     *
+     * @param label The label index.
+     * @return The parent label, or -1 for the start label.
+     */
+    int parent(int label) {
+        return parents[label];
+    }
+
+    /**
+     * Gets the accumulated cost of a label.
+     *
+     * @param label The label index.
+     * @return The cost.
+     */
+    int cost(int label) {
+        return costs[label];
+    }
+
+    /**
+     * Gets the accumulated distance of a label.
+     *
+     * @param label The label index.
+     * @return The distance.
+     */
+    int distance(int label) {
+        return distances[label];
+    }
+
+    /**
+     * Gets the accumulated travel time of a label.
+     *
+     * @param label The label index.
+     * @return The travel time.
+     */
+    int travelTime(int label) {
+        return travelTimes[label];
+    }
+
+    /**
+     * Gets the number of flights of a label.
+     *
+     * @param label The label index.
+     * @return The number of flights.
+     */
+    int hops(int label) {
+        return hops[label];
+    }
+
+    /**
+     * Checks whether one label dominates a candidate within a relative tolerance: every
+     * criterion of the label is at most (1 + epsilon) times the candidate's. With epsilon 0
+     * this is plain Pareto dominance, where equal labels dominate each other.
+     *
+     * @param label      The existing label.
+     * @param cost       The candidate's cost.
+     * @param distance   The candidate's distance.
+     * @param travelTime The candidate's travel time.
+     * @param epsilon    The relative tolerance.
+     * @return true if the label dominates the candidate.
+     */
+    boolean dominates(int label, long cost, long distance, long travelTime, double epsilon) {
+        if (epsilon == 0) {
+            return costs[label] <= cost && distances[label] <= distance && travelTimes[label] <= travelTime;
+        }
+        double factor = 1 + epsilon;
+        return costs[label] <= factor * cost
+                && distances[label] <= factor * distance
+                && travelTimes[label] <= factor * travelTime;
+    }
+}
@@ -0,0 +1,462 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The LandmarkIndex class provides ALT lower bounds (A*, landmarks and triangle inequality)
+ * for all three criteria. A few well spread landmark airports are chosen, and the exact
+ * distances from every airport to each landmark and from each landmark to every airport are
+ * stored. For any airport v and destination t the triangle inequality then gives
+ * d(v, t) >= d(L, t) - d(L, v) and d(v, t) >= d(v, L) - d(t, L), which works for cost as well
+ * as it does for distance, unlike the geographic bound.
+ *
+ * Tables are stored airport-major (airport * landmarkCount + landmark) in one int[] per
+ * criterion and direction, so all bounds of an airport share a cache line. Added routes can
+ * only shorten distances, so they are applied incrementally on the next refresh; adding an
+ * airport or removing a route triggers a full recomputation.
+ *
+ * Tables are never changed once published. A refresh builds new tables (copying only the
+ * columns an added route changes) without holding any lock, and publishes them through a
+ * volatile field, so bound() never blocks and a query still running on an older snapshot keeps
+ * consistent bounds. One thread refreshes at a time; queries on a snapshot the published
+ * tables do not describe yet get the trivial bound meanwhile. Changes are queued under a small
+ * lock of their own, so the graph notifying a change never waits for a refresh.
+ */
+final class LandmarkIndex implements GraphListener {
+    private static final int INFINITY = SearchContext.INFINITY;
+    private static final LowerBound NO_BOUND = (node, destination) -> 0;  // Trivial bound for outdated snapshots
+
+    private final int landmarkCount;  // Number of landmarks requested
+    private final SearchContext context;  // Search state used while filling the tables, owned by the refreshing thread
+    private final AtomicBoolean refreshing;  // Set while one thread builds new tables
+    private final Object pendingLock;  // Guards the pending changes
+    private final List<Route> pendingRoutes;  // Changes since the last refresh, null for airport additions and removals
+    private final List<Long> pendingVersions;  // Graph version of each pending change
+    private long eventVersion;  // Graph version of the last change notified, guarded by pendingLock
+    private volatile Tables tables;  // Tables of the newest snapshot indexed, null until the first refresh
+
+    /**
+     * Constructor to create an index that follows a graph from a snapshot on. The landmarks
+     * are selected and the tables computed by the first refresh, so creating the index is
+     * cheap enough to do under the graph's lock.
+     *
+     * @param snapshot      The snapshot to index.
+     * @param landmarkCount The number of landmarks to select.
+     */
+    LandmarkIndex(GraphSnapshot snapshot, int landmarkCount) {
+        this.landmarkCount = landmarkCount;
+        this.context = new SearchContext();
+        this.refreshing = new AtomicBoolean();
+        this.pendingLock = new Object();
+        this.pendingRoutes = new ArrayList<>();
+        this.pendingVersions = new ArrayList<>();
+        this.eventVersion = snapshot.version();
+    }
+
+    @Override
+    public void airportAdded(Airport airport) {
+        pend(null);
+    }
+
+    @Override
+    public void routeAdded(Route route) {
+        pend(route);
+    }
+
+    @Override
+    public void routeRemoved(Route route) {
+        pend(null);  // Removals lengthen distances, which cannot be applied incrementally
+    }
+
+    /**
+     * Brings the tables up to date with a newer snapshot of the same graph. Changes the
+     * snapshot includes are applied: added routes incrementally, anything else by recomputing
+     * everything. Changes made after the snapshot was taken stay pending. Returns at once if
+     * another thread is refreshing; its tables are published when they are ready.
+     *
+     * @param current The current snapshot of the graph.
+     */
+    void refresh(GraphSnapshot current) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Tables published = tables;
+            if (published != null && current.version() <= published.snapshot.version()) {
+                return;
+            }
+            boolean rebuildNeeded = published == null || current.nodeCount() != published.snapshot.nodeCount();
+            List<Route> added = new ArrayList<>();
+            synchronized (pendingLock) {
+                int included = 0;
+                while (included < pendingVersions.size() && pendingVersions.get(included) <= current.version()) {
+                    Route route = pendingRoutes.get(included++);
+                    if (route == null) {
+                        rebuildNeeded = true;
+                    } else {
+                        added.add(route);
+                    }
+                }
+                pendingRoutes.subList(0, included).clear();
+                pendingVersions.subList(0, included).clear();
+            }
+            tables = rebuildNeeded ? rebuild(current) : extend(published, current, added);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * Gets the lower bound function for a criterion on a snapshot, refreshing the tables first
+     * if the snapshot is newer than they are. The returned object is shared and does not
+     * allocate per call. A query on a snapshot the tables do not describe, older or still being
+     * indexed by another thread, gets the trivial bound 0, which is always valid.
+     *
+     * @param current   The snapshot being searched.
+     * @param criterion The criterion to bound.
+     * @return The landmark lower bound for the criterion.
+     */
+    LowerBound bound(GraphSnapshot current, Criterion criterion) {
+        Tables published = tables;
+        if (published == null || published.snapshot.version() < current.version()) {
+            refresh(current);
+            published = tables;
+        }
+        if (published == null || current.version() != published.snapshot.version()) {
+            return NO_BOUND;
+        }
+        return published.bounds[criterion.ordinal()];
+    }
+
+    /**
+     * Gets the IDs of the landmark airports.
+     *
+     * @return The landmark airport IDs, in selection order, empty before the first refresh.
+     */
+    int[] getLandmarkIds() {
+        Tables published = tables;
+        if (published == null) {
+            return new int[0];
+        }
+        int[] ids = new int[published.landmarks.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = published.snapshot.airportId(published.landmarks[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Queues a change for the next refresh.
+     *
+     * @param route The added route, or null for a change that needs a full recomputation.
+     */
+    private void pend(Route route) {
+        synchronized (pendingLock) {
+            pendingRoutes.add(route);
+            pendingVersions.add(++eventVersion);
+        }
+    }
+
+    /**
+     * Computes the best triangle-inequality bound over all landmarks.
+     *
+     * @param from        The distances from each landmark, airport-major.
+     * @param to          The distances to each landmark, airport-major.
+     * @param count       The number of landmarks.
+     * @param node        The airport to estimate from.
+     * @param destination The destination airport.
+     * @return A lower bound on d(node, destination), or UNREACHABLE if no path can exist.
+     */
+    private static int estimate(int[] from, int[] to, int count, int node, int destination) {
+        int nodeBase = node * count;
+        int destinationBase = destination * count;
+        int best = 0;
+        for (int i = 0; i < count; i++) {
+            int landmarkToNode = from[nodeBase + i];
+            int landmarkToDestination = from[destinationBase + i];
+            if (landmarkToNode != INFINITY) {
+                if (landmarkToDestination == INFINITY) {
+                    return LowerBound.UNREACHABLE;  // The landmark reaches node but not the destination
+                }
+                best = Math.max(best, landmarkToDestination - landmarkToNode);
+            }
+            int nodeToLandmark = to[nodeBase + i];
+            int destinationToLandmark = to[destinationBase + i];
+            if (destinationToLandmark != INFINITY) {
+                if (nodeToLandmark == INFINITY) {
+                    return LowerBound.UNREACHABLE;  // The destination reaches the landmark but node does not
+                }
+                best = Math.max(best, nodeToLandmark - destinationToLandmark);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Selects landmarks and fills every table from scratch.
+     *
+     * @param current The snapshot to index.
+     * @return The new tables.
+     */
+    private Tables rebuild(GraphSnapshot current) {
+        int n = current.nodeCount();
+        int k = Math.min(landmarkCount, n);
+        int[] landmarks = selectLandmarks(current, k);
+        int criteria = Criterion.values().length;
+        Tables next = new Tables(current, landmarks, new int[criteria][], new int[criteria][]);
+        for (Criterion criterion : Criterion.values()) {
+            int c = criterion.ordinal();
+            next.fromLandmark[c] = new int[n * k];
+            next.toLandmark[c] = new int[n * k];
+            for (int i = 0; i < k; i++) {
+                sweep(current, criterion, landmarks[i], false);
+                copyColumn(next.fromLandmark[c], i, n, k);
+                sweep(current, criterion, landmarks[i], true);
+                copyColumn(next.toLandmark[c], i, n, k);
+            }
+        }
+        next.publishBounds();
+        return next;
+    }
+
+    /**
+     * Applies added routes to published tables. The published tables stay untouched: a column
+     * is copied the first time a route shortens one of its distances, and shared otherwise.
+     *
+     * @param published The tables to start from.
+     * @param current   The snapshot that includes the routes.
+     * @param added     The routes added since the published tables were computed.
+     * @return The new tables.
+     */
+    private Tables extend(Tables published, GraphSnapshot current, List<Route> added) {
+        Tables next = new Tables(current, published.landmarks, published.fromLandmark.clone(),
+                published.toLandmark.clone());
+        boolean[] copiedFrom = new boolean[next.fromLandmark.length];  // Whether next owns each from table
+        boolean[] copiedTo = new boolean[next.toLandmark.length];  // Whether next owns each to table
+        for (Route route : added) {
+            int from = current.indexOf(route.getStartId());
+            int to = current.indexOf(route.getDestinationId());
+            if (from < 0 || to < 0) continue;
+            for (Criterion criterion : Criterion.values()) {
+                applyRoute(next, criterion, from, to, criterion.weightOf(route), copiedFrom, copiedTo);
+            }
+        }
+        next.publishBounds();
+        return next;
+    }
+
+    /**
+     * Picks landmarks with the farthest-first heuristic on the distance criterion: each new
+     * landmark is the airport farthest from all landmarks chosen so far. Airports no landmark
+     * reaches count as infinitely far, so every part of a disconnected network gets covered.
+     *
+     * @param current The snapshot to pick landmarks in.
+     * @param count   The number of landmarks to pick.
+     * @return The dense indices of the landmarks.
+     */
+    private int[] selectLandmarks(GraphSnapshot current, int count) {
+        int n = current.nodeCount();
+        int[] chosen = new int[count];
+        if (count == 0) {
+            return chosen;
+        }
+        long[] nearest = new long[n];  // Distance to the nearest chosen landmark
+        Arrays.fill(nearest, Long.MAX_VALUE);
+
+        // Start from the airport farthest from an arbitrary airport
+        sweep(current, Criterion.DISTANCE, 0, false);
+        int candidate = farthest(n, null);
+        for (int i = 0; i < count; i++) {
+            chosen[i] = candidate;
+            sweep(current, Criterion.DISTANCE, candidate, false);
+            for (int node = 0; node < n; node++) {
+                int d = context.dist(node);
+                nearest[node] = Math.min(nearest[node], d == INFINITY ? Long.MAX_VALUE - 1 : d);
+            }
+            nearest[candidate] = -1;  // Never pick the same landmark twice
+            candidate = farthest(n, nearest);
+        }
+        return chosen;
+    }
+
+    /**
+     * Finds the airport with the largest distance, either in the last sweep or in a table of
+     * distances to the nearest landmark.
+     *
+     * @param n       The number of airports.
+     * @param nearest The distance of each airport to its nearest landmark, or null to use the last sweep.
+     * @return The dense index of the farthest airport.
+     */
+    private int farthest(int n, long[] nearest) {
+        int best = 0;
+        long bestDist = -1;
+        for (int node = 0; node < n; node++) {
+            long d = nearest != null ? nearest[node] : context.dist(node) == INFINITY ? -1 : context.dist(node);
+            if (d > bestDist) {
+                bestDist = d;
+                best = node;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Runs a full single-source Dijkstra sweep from a landmark into the search context.
+     *
+     * @param graph     The snapshot to search.
+     * @param criterion The criterion to sweep with.
+     * @param source    The dense index of the landmark.
+     * @param reverse   Whether to follow incoming routes (distances to the landmark).
+     */
+    private void sweep(GraphSnapshot graph, Criterion criterion, int source, boolean reverse) {
+        int[] offsets = reverse ? graph.reverseOffsets() : graph.offsets();
+        int[] neighbors = reverse ? graph.reverseSources() : graph.targets();
+        int[] reverseEdges = graph.reverseEdges();
+        int[] weights = graph.weights(criterion);
+
+        context.reset(graph.nodeCount());
+        IndexedMinHeap queue = context.heap();
+        context.relax(source, 0, -1);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int currentDist = context.dist(node);
+            for (int slot = offsets[node]; slot < offsets[node + 1]; slot++) {
+                int neighbor = neighbors[slot];
+                int newDist = currentDist + weights[reverse ? reverseEdges[slot] : slot];
+                if (newDist < context.dist(neighbor)) {
+                    context.relax(neighbor, newDist, node);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the distances of the last sweep into one landmark column of a table.
+     *
+     * @param table    The table to fill.
+     * @param landmark The landmark column.
+     * @param n        The number of airports.
+     * @param k        The number of landmarks.
+     */
+    private void copyColumn(int[] table, int landmark, int n, int k) {
+        for (int node = 0; node < n; node++) {
+            table[node * k + landmark] = context.dist(node);
+        }
+    }
+
+    /**
+     * Applies a new route to the tables of one criterion. A route from -> to can shorten the
+     * distance from a landmark to "to" (and everything after it), and the distance from
+     * "from" (and everything before it) to a landmark. Only the improved region is searched.
+     *
+     * @param next       The tables being built.
+     * @param criterion  The criterion of the tables.
+     * @param from       The dense index of the route's start airport.
+     * @param to         The dense index of the route's destination airport.
+     * @param weight     The weight of the route for the criterion.
+     * @param copiedFrom Whether next already owns each from table; a shared one is copied before it changes.
+     * @param copiedTo   Whether next already owns each to table.
+     */
+    private void applyRoute(Tables next, Criterion criterion, int from, int to, int weight,
+                            boolean[] copiedFrom, boolean[] copiedTo) {
+        int c = criterion.ordinal();
+        int k = next.landmarks.length;
+        for (int i = 0; i < k; i++) {
+            int viaFrom = next.fromLandmark[c][from * k + i];
+            if (viaFrom != INFINITY && viaFrom + weight < next.fromLandmark[c][to * k + i]) {
+                if (!copiedFrom[c]) {
+                    next.fromLandmark[c] = next.fromLandmark[c].clone();  // Earlier bounds keep the old table
+                    copiedFrom[c] = true;
+                }
+                propagate(next.snapshot, criterion, next.fromLandmark[c], k, i, to, viaFrom + weight, false);
+            }
+            int viaTo = next.toLandmark[c][to * k + i];
+            if (viaTo != INFINITY && viaTo + weight < next.toLandmark[c][from * k + i]) {
+                if (!copiedTo[c]) {
+                    next.toLandmark[c] = next.toLandmark[c].clone();
+                    copiedTo[c] = true;
+                }
+                propagate(next.snapshot, criterion, next.toLandmark[c], k, i, from, viaTo + weight, true);
+            }
+        }
+    }
+
+    /**
+     * Lowers one landmark column starting from an airport whose distance improved, following
+     * routes for as long as distances keep improving (decrease-only dynamic Dijkstra).
+     *
+     * @param graph     The snapshot the table describes.
+     * @param criterion The criterion of the table.
+     * @param table     The table to update.
+     * @param k         The number of landmarks.
+     * @param landmark  The landmark column.
+     * @param start     The airport whose distance improved.
+     * @param distance  The improved distance of that airport.
+     * @param reverse   Whether the table holds distances to the landmark (follow incoming routes).
+     */
+    private void propagate(GraphSnapshot graph, Criterion criterion, int[] table, int k, int landmark, int start,
+                           int distance, boolean reverse) {
+        int[] offsets = reverse ? graph.reverseOffsets() : graph.offsets();
+        int[] neighbors = reverse ? graph.reverseSources() : graph.targets();
+        int[] reverseEdges = graph.reverseEdges();
+        int[] weights = graph.weights(criterion);
+
+        context.reset(graph.nodeCount());
+        IndexedMinHeap queue = context.heap();
+        table[start * k + landmark] = distance;
+        context.relax(start, distance, -1);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int currentDist = context.dist(node);
+            for (int slot = offsets[node]; slot < offsets[node + 1]; slot++) {
+                int neighbor = neighbors[slot];
+                int newDist = currentDist + weights[reverse ? reverseEdges[slot] : slot];
+                if (newDist < table[neighbor * k + landmark]) {
+                    table[neighbor * k + landmark] = newDist;
+                    context.relax(neighbor, newDist, node);
+                }
+            }
+        }
+    }
+
+    /**
+     * The landmarks and distance tables of one snapshot, with the bound functions over them.
+     * Filled in by the refreshing thread and never changed once published.
+     */
+    private static final class Tables {
+        private final GraphSnapshot snapshot;  // Snapshot the tables describe
+        private final int[] landmarks;  // Dense index of each landmark
+        private final int[][] fromLandmark;  // Per criterion: distance from each landmark to each airport
+        private final int[][] toLandmark;  // Per criterion: distance from each airport to each landmark
+        private final LowerBound[] bounds;  // Per criterion: the bound function over the tables
+
+        /**
+         * Constructor to wrap tables. The arrays are used as-is, not copied.
+         *
+         * @param snapshot     The snapshot the tables describe.
+         * @param landmarks    The dense index of each landmark.
+         * @param fromLandmark The distances from the landmarks, per criterion.
+         * @param toLandmark   The distances to the landmarks, per criterion.
+         */
+        Tables(GraphSnapshot snapshot, int[] landmarks, int[][] fromLandmark, int[][] toLandmark) {
+            this.snapshot = snapshot;
+            this.landmarks = landmarks;
+            this.fromLandmark = fromLandmark;
+            this.toLandmark = toLandmark;
+            this.bounds = new LowerBound[fromLandmark.length];
+        }
+
+        /**
+         * Creates the bound functions over the filled tables.
+         */
+        void publishBounds() {
+            int count = landmarks.length;
+            for (int c = 0; c < bounds.length; c++) {
+                int[] from = fromLandmark[c];
+                int[] to = toLandmark[c];
+                bounds[c] = (node, destination) -> estimate(from, to, count, node, destination);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class counts durations in buckets whose width grows with the value, in
+ * the manner of an HDR histogram: every power of two is split into SUB_BUCKETS equal buckets,
+ * so any recorded value is known to within about 6% while one fixed array of counters covers
+ * nanoseconds to centuries. Recording is a bucket computation and an atomic increment; it
+ * allocates nothing and never blocks, so many search threads can record at once.
+ */
+final class LatencyHistogram {
+    static final int SUB_BITS = 4;  // Bits of precision kept per value
+    static final int SUB_BUCKETS = 1 << SUB_BITS;  // Buckets per power of two
+
+    private final AtomicLongArray counts;  // Number of values recorded per bucket
+
+    /**
+     * Constructor to create an empty histogram.
+     */
+    LatencyHistogram() {
+        counts = new AtomicLongArray(SUB_BUCKETS * (64 - SUB_BITS + 1));
+    }
+
+    /**
+     * Records one value.
+     *
+     * @param value The value, such as a duration in nanoseconds; negative values count as 0.
+     */
+    void record(long value) {
+        counts.incrementAndGet(bucketOf(Math.max(0, value)));
+    }
+
+    /**
+     * Gets the number of values recorded.
+     *
+     * @return The number of values.
+     */
+    long count() {
+        long total = 0;
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            total += counts.get(bucket);
+        }
+        return total;
+    }
+
+    /**
+     * Gets the value below which a share of the recorded values lie, rounded up to the end of
+     * its bucket.
+     *
+     * @param quantile The share of values, between 0 and 1.
+     * @return The value at the quantile, 0 if nothing was recorded.
+     */
+    long valueAt(double quantile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int bucket = 0; bucket < snapshot.length; bucket++) {
+            snapshot[bucket] = counts.get(bucket);
+            total += snapshot[bucket];
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < snapshot.length; bucket++) {
+            seen += snapshot[bucket];
+            if (seen >= rank && snapshot[bucket] > 0) {
+                return highestValueOf(bucket);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Forgets every recorded value.
+     */
+    void reset() {
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            counts.set(bucket, 0);
+        }
+    }
+
+    /**
+     * Finds the bucket of a value. Values below SUB_BUCKETS have a bucket each; above that,
+     * the position of the highest set bit picks the power of two and the next SUB_BITS bits
+     * pick the bucket within it.
+     *
+     * @param value The value, not negative.
+     * @return The bucket index.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        return SUB_BUCKETS * (shift + 1) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Gets the largest value that falls into a bucket.
+     *
+     * @param bucket The bucket index.
+     * @return The largest value of the bucket.
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
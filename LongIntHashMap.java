@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+/**
+ * The LongIntHashMap class maps long keys to int values with open addressing and linear
+ * probing over two primitive arrays, so lookups and insertions never box or allocate.
+ * The key 0 is reserved to mark empty slots and cannot be stored.
+ */
+final class LongIntHashMap {
+    static final int MISSING = -1;  // Value returned for keys that are not in the map
+
+    private long[] keys;  // Key of each slot, 0 when empty
+    private int[] values;  // Value of each slot
+    private int size;  // Number of keys stored
+    private int mask;  // Slot count minus one; the slot count is a power of two
+
+    /**
+     * Constructor to create a map sized for an expected number of keys.
+     *
+     * @param expectedSize The number of keys expected.
+     */
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Gets the value stored for a key.
+     *
+     * @param key The key to look up, not 0.
+     * @return The value, or MISSING if the key is not in the map.
+     */
+    int get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long stored = keys[slot];
+            if (stored == key) {
+                return values[slot];
+            }
+            if (stored == 0) {
+                return MISSING;
+            }
+        }
+    }
+
+    /**
+     * Stores a value for a key, replacing any previous value.
+     *
+     * @param key   The key, not 0.
+     * @param value The value to store.
+     */
+    void put(long key, int value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            if (++size * 2 > keys.length) {
+                values[slot] = value;
+                grow();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Gets the number of keys in the map.
+     *
+     * @return The number of keys.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Computes the home slot of a key. The multiplication spreads keys that differ only in
+     * their low bytes, such as airport codes, over the whole table.
+     *
+     * @param key The key.
+     * @return The first slot to probe.
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32 ^ h) & mask;
+    }
+
+    /**
+     * Doubles the table and reinserts every key.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == 0) continue;
+            int slot = slot(key);
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = oldValues[i];
+        }
+    }
+
+    /**
+     * Removes every key, keeping the table size.
+     */
+    void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "LongIntHashMap{size=" + size + ", capacity=" + keys.length + '}';
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * The LowerBound interface estimates the remaining weight from an airport to a destination
+ * for goal-directed (A*) searches. Estimates must never exceed the true remaining weight and
+ * must be consistent: for every route u -> v, estimate(u) <= weight(u, v) + estimate(v).
+ */
+interface LowerBound {
+    int UNREACHABLE = Integer.MAX_VALUE;  // Returned when the destination cannot be reached at all
+
+    /**
+     * Estimates the remaining weight from an airport to the destination.
+     *
+     * @param node        The dense index of the airport to estimate from.
+     * @param destination The dense index of the destination airport.
+     * @return A lower bound on the remaining weight, or UNREACHABLE.
+     */
+    int estimate(int node, int destination);
+}
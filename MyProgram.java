@@ -4,15 +4,15 @@ import java.util.List;
 
 public class MyProgram
 {
+    /**
+     * Starts the flight planner. The arguments are passed on unchanged, so the jar accepts the
+     * same network file or OpenFlights import as FlightPlannerSwing.
+     *
+     * @param args Nothing for a random network, a network file, or an airports and a routes file.
+     */
     public static void main(String[] args)
     {
-        SwingUtilities.invokeLater(new Runnable() {
-            @Override
-            public void run() {
-                FlightPlannerSwing planner = new FlightPlannerSwing();
-                planner.setVisible(true);
-            }
-        });
+        FlightPlannerSwing.main(args);
     }
     
 }
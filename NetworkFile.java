@@ -0,0 +1,273 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The NetworkFile class reads and writes airport networks in a compact binary format that
+ * mirrors the GraphSnapshot layout, so loading a network needs no parsing and creates no
+ * Airport or Route objects.
+ *
+ * Layout, all values little-endian:
+ * header     magic (int), format version (int), airport count n (int), route count m (int)
+ * airports   airport IDs (n ints, ascending), latitudes (n doubles), longitudes (n doubles)
+ * routes     offsets (n + 1 ints), targets (m ints), distances (m ints), travel times (m ints), costs (m ints)
+ *
+ * Reading maps each column with FileChannel.map and copies it into the snapshot arrays in bulk.
+ */
+final class NetworkFile {
+    static final int MAGIC = 0x4152534E;  // "ARSN"
+    static final int FORMAT_VERSION = 1;  // Version of the layout written by this class
+    static final int HEADER_BYTES = 16;  // Size of the header
+
+    private static final int CHUNK_BYTES = 1 << 20;  // Write buffer size
+
+    /**
+     * Prevents instantiation; all methods are static.
+     */
+    private NetworkFile() {
+    }
+
+    /**
+     * Writes the current state of a graph to a file, replacing the file if it exists.
+     *
+     * @param graph The graph to write.
+     * @param file  The file to write to.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(Graph graph, Path file) throws IOException {
+        write(graph.getSnapshot(), file);
+    }
+
+    /**
+     * Writes a snapshot to a file, replacing the file if it exists.
+     *
+     * @param snapshot The snapshot to write.
+     * @param file     The file to write to.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(GraphSnapshot snapshot, Path file) throws IOException {
+        int n = snapshot.nodeCount();
+        int m = snapshot.edgeCount();
+        int[] airportIds = new int[n];
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            airportIds[i] = snapshot.airportId(i);
+            latitudes[i] = snapshot.latitude(i);
+            longitudes[i] = snapshot.longitude(i);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(n).putInt(m);
+            writeInts(channel, buffer, airportIds);
+            writeDoubles(channel, buffer, latitudes);
+            writeDoubles(channel, buffer, longitudes);
+            writeInts(channel, buffer, snapshot.offsets());
+            writeInts(channel, buffer, snapshot.targets());
+            writeInts(channel, buffer, snapshot.weights(Criterion.DISTANCE));
+            writeInts(channel, buffer, snapshot.weights(Criterion.TIME));
+            writeInts(channel, buffer, snapshot.weights(Criterion.COST));
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * Opens a network file as a graph. Queries run on the mapped data right away; Airport and
+     * Route objects are only created if the graph is changed or its airports are listed.
+     *
+     * @param file The file to read.
+     * @return A graph holding the network.
+     * @throws IOException If the file cannot be read or is not a network file.
+     */
+    static Graph load(Path file) throws IOException {
+        return new Graph(read(file));
+    }
+
+    /**
+     * Reads a network file into a snapshot.
+     *
+     * @param file The file to read.
+     * @return A snapshot of the network.
+     * @throws IOException If the file cannot be read or is not a network file.
+     */
+    static GraphSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Not a network file: " + file);
+            }
+            ByteBuffer header = map(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a network file: " + file);
+            }
+            int formatVersion = header.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported network file version " + formatVersion + ": " + file);
+            }
+            int n = header.getInt();
+            int m = header.getInt();
+            long expected = HEADER_BYTES + 4L * n + 16L * n + 4L * (n + 1) + 16L * m;
+            if (n < 0 || m < 0 || size != expected) {
+                throw new IOException("Truncated or corrupt network file: " + file);
+            }
+
+            long position = HEADER_BYTES;
+            int[] airportIds = readInts(channel, position, n);
+            position += 4L * n;
+            double[] latitudes = readDoubles(channel, position, n);
+            position += 8L * n;
+            double[] longitudes = readDoubles(channel, position, n);
+            position += 8L * n;
+            int[] offsets = readInts(channel, position, n + 1);
+            position += 4L * (n + 1);
+            int[] targets = readInts(channel, position, m);
+            position += 4L * m;
+            int[] distances = readInts(channel, position, m);
+            position += 4L * m;
+            int[] travelTimes = readInts(channel, position, m);
+            position += 4L * m;
+            int[] costs = readInts(channel, position, m);
+
+            validate(file, airportIds, offsets, targets);
+            return new GraphSnapshot(airportIds, offsets, targets, distances, travelTimes, costs, latitudes,
+                    longitudes, 0);
+        }
+    }
+
+    /**
+     * Checks the invariants searches rely on: ascending airport IDs, ascending offsets that
+     * cover every route, and route targets that are valid airport indices.
+     *
+     * @param file       The file being read, for error messages.
+     * @param airportIds The airport IDs.
+     * @param offsets    The first route slot of each airport.
+     * @param targets    The destination index of each route.
+     * @throws IOException If an invariant does not hold.
+     */
+    private static void validate(Path file, int[] airportIds, int[] offsets, int[] targets) throws IOException {
+        int n = airportIds.length;
+        for (int i = 1; i < n; i++) {
+            if (airportIds[i] <= airportIds[i - 1]) {
+                throw new IOException("Airport IDs not in ascending order in network file: " + file);
+            }
+        }
+        if (offsets[0] != 0 || offsets[n] != targets.length) {
+            throw new IOException("Corrupt route offsets in network file: " + file);
+        }
+        for (int i = 0; i < n; i++) {
+            if (offsets[i + 1] < offsets[i]) {
+                throw new IOException("Corrupt route offsets in network file: " + file);
+            }
+        }
+        for (int target : targets) {
+            if (target < 0 || target >= n) {
+                throw new IOException("Route to unknown airport in network file: " + file);
+            }
+        }
+    }
+
+    /**
+     * Maps a region of a file as a little-endian buffer.
+     *
+     * @param channel  The file to map.
+     * @param position The first byte of the region.
+     * @param bytes    The size of the region.
+     * @return The mapped region.
+     * @throws IOException If the region cannot be mapped.
+     */
+    private static ByteBuffer map(FileChannel channel, long position, long bytes) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Reads an int column from the file.
+     *
+     * @param channel  The file to read.
+     * @param position The first byte of the column.
+     * @param count    The number of values.
+     * @return The column values.
+     * @throws IOException If the column cannot be mapped.
+     */
+    private static int[] readInts(FileChannel channel, long position, int count) throws IOException {
+        int[] values = new int[count];
+        map(channel, position, 4L * count).asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Reads a double column from the file.
+     *
+     * @param channel  The file to read.
+     * @param position The first byte of the column.
+     * @param count    The number of values.
+     * @return The column values.
+     * @throws IOException If the column cannot be mapped.
+     */
+    private static double[] readDoubles(FileChannel channel, long position, int count) throws IOException {
+        double[] values = new double[count];
+        map(channel, position, 8L * count).asDoubleBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Appends an int column to the file through the write buffer.
+     *
+     * @param channel The file being written.
+     * @param buffer  The write buffer.
+     * @param values  The column values.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        int done = 0;
+        while (done < values.length) {
+            if (buffer.remaining() < 4) {
+                flush(channel, buffer);
+            }
+            int count = Math.min(values.length - done, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(values, done, count);
+            buffer.position(buffer.position() + 4 * count);
+            done += count;
+        }
+    }
+
+    /**
+     * Appends a double column to the file through the write buffer.
+     *
+     * @param channel The file being written.
+     * @param buffer  The write buffer.
+     * @param values  The column values.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void writeDoubles(FileChannel channel, ByteBuffer buffer, double[] values) throws IOException {
+        int done = 0;
+        while (done < values.length) {
+            if (buffer.remaining() < 8) {
+                flush(channel, buffer);
+            }
+            int count = Math.min(values.length - done, buffer.remaining() / 8);
+            buffer.asDoubleBuffer().put(values, done, count);
+            buffer.position(buffer.position() + 8 * count);
+            done += count;
+        }
+    }
+
+    /**
+     * Writes out and empties the write buffer.
+     *
+     * @param channel The file being written.
+     * @param buffer  The write buffer.
+     * @throws IOException If the file cannot be written.
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,310 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * The NetworkGenerator class builds large synthetic airport networks for load and scale tests.
+ * Networks are hub-and-spoke shaped: a small share of the airports are hubs spread over the
+ * globe, every other airport belongs to the region of one hub and lies near it, and the number
+ * of routes per airport follows a heavy-tailed (Pareto) distribution. Spokes mostly fly to their
+ * hub and their neighbours, hubs to their spokes and to other hubs. Distance, travel time and
+ * cost grow with the great-circle distance between the airports, with some noise.
+ *
+ * Generation is reproducible: every airport draws from its own random stream derived from the
+ * seed, so the same seed gives the same network whatever the number of threads. Airports are
+ * generated in parallel straight into GraphSnapshot columns, without Airport or Route objects
+ * and without a duplicate check on strings; duplicate destinations are removed per airport
+ * by sorting its route slice.
+ */
+final class NetworkGenerator {
+    static final double HUB_SHARE = 0.02;  // Share of airports that are hubs
+    static final double PARETO_ALPHA = 1.5;  // Tail index of the route count distribution
+    static final double HUB_POPULARITY = 20;  // How much more popular a hub is than a spoke
+    static final double REGION_SPREAD_DEGREES = 4;  // Standard deviation of a spoke's offset from its hub
+    static final double MAX_HUB_LATITUDE = 70;  // Hubs are placed between these latitudes
+    private static final long STREAM_STEP = 0x9E3779B97F4A7C15L;  // Spacing of per-airport random seeds
+
+    private final int airportCount;  // Number of airports to generate
+    private final int averageRoutes;  // Average number of routes leaving an airport, before duplicates
+    private final long seed;  // Seed of every random stream
+
+    /**
+     * Constructor to configure a generator.
+     *
+     * @param airportCount  The number of airports, at least 2.
+     * @param averageRoutes The average number of routes leaving each airport, at least 1.
+     * @param seed          The seed; equal seeds give equal networks.
+     */
+    NetworkGenerator(int airportCount, int averageRoutes, long seed) {
+        if (airportCount < 2 || averageRoutes < 1) {
+            throw new IllegalArgumentException("Need at least 2 airports and 1 route per airport");
+        }
+        this.airportCount = airportCount;
+        this.averageRoutes = averageRoutes;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the network as a graph. Queries run on the packed network right away.
+     *
+     * @return A new graph holding the generated network.
+     */
+    Graph generateGraph() {
+        return new Graph(generate());
+    }
+
+    /**
+     * Generates the network as a snapshot. Airport IDs are 0 to airportCount - 1. The airports
+     * of a region have consecutive IDs, starting with their hub, so routes mostly stay within a
+     * small range of IDs and searches touch memory in few places.
+     *
+     * @return A new snapshot of the generated network.
+     */
+    GraphSnapshot generate() {
+        int n = airportCount;
+        int hubs = Math.max(1, Math.min(n - 1, (int) Math.round(n * HUB_SHARE)));
+
+        // Hubs get a popularity, then every spoke joins a hub chosen by popularity
+        double[] hubPopularity = new double[hubs];
+        Arrays.setAll(hubPopularity, h -> HUB_POPULARITY * pareto(stream(0, h)));
+        double[] hubWeights = cumulative(hubPopularity);
+        int[] regionOffsets = new int[hubs + 1];  // First airport of each region, plus the airport count
+        for (int spoke = 0; spoke < n - hubs; spoke++) {
+            regionOffsets[pick(hubWeights, stream(1, spoke)) + 1]++;
+        }
+        for (int h = 0; h < hubs; h++) {
+            regionOffsets[h + 1] += regionOffsets[h] + 1;  // The hub itself opens its region
+        }
+        int[] hubIds = Arrays.copyOf(regionOffsets, hubs);
+        int[] region = new int[n];
+        for (int h = 0; h < hubs; h++) {
+            Arrays.fill(region, regionOffsets[h], regionOffsets[h + 1], h);
+        }
+
+        // Hubs are spread over the globe, spokes lie near their hub
+        double[] popularity = new double[n];
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        double sinMax = Math.sin(Math.toRadians(MAX_HUB_LATITUDE));
+        IntStream.range(0, hubs).parallel().forEach(h -> {
+            SplittableRandom random = stream(2, hubIds[h]);
+            popularity[hubIds[h]] = hubPopularity[h];
+            latitudes[hubIds[h]] = Math.toDegrees(Math.asin((2 * random.nextDouble() - 1) * sinMax));
+            longitudes[hubIds[h]] = random.nextDouble() * 360 - 180;
+        });
+        IntStream.range(0, n).parallel().forEach(i -> {
+            int hub = hubIds[region[i]];
+            if (i == hub) return;
+            SplittableRandom random = stream(2, i);
+            popularity[i] = pareto(random);
+            double latitude = latitudes[hub] + gaussian(random) * REGION_SPREAD_DEGREES;
+            latitudes[i] = Math.max(-89, Math.min(89, latitude));
+            double longitude = longitudes[hub]
+                    + gaussian(random) * REGION_SPREAD_DEGREES / Math.cos(Math.toRadians(latitudes[i]));
+            longitudes[i] = ((longitude + 180) % 360 + 360) % 360 - 180;
+        });
+        double[] vectors = new double[3 * n];  // Unit vectors, for great-circle distances without haversine
+        IntStream.range(0, n).parallel().forEach(i -> {
+            double phi = Math.toRadians(latitudes[i]);
+            double lambda = Math.toRadians(longitudes[i]);
+            vectors[3 * i] = Math.cos(phi) * Math.cos(lambda);
+            vectors[3 * i + 1] = Math.cos(phi) * Math.sin(lambda);
+            vectors[3 * i + 2] = Math.sin(phi);
+        });
+
+        // Reserve each airport's requested route count, fill the slices in parallel, then compact
+        double meanPopularity = Arrays.stream(popularity).parallel().sum() / n;
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            long count = Math.round(averageRoutes * popularity[i] / meanPopularity);
+            long end = offsets[i] + Math.max(1, Math.min(n - 1, count));
+            if (end > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Network too large: more than " + end + " routes requested");
+            }
+            offsets[i + 1] = (int) end;
+        }
+        int[] targets = new int[offsets[n]];
+        int[] distances = new int[offsets[n]];
+        int[] travelTimes = new int[offsets[n]];
+        int[] costs = new int[offsets[n]];
+        int[] counts = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> counts[i] = generateRoutes(i, hubIds, hubWeights, region,
+                regionOffsets, vectors, offsets[i], offsets[i + 1] - offsets[i], targets, distances, travelTimes,
+                costs));
+
+        int edges = 0;
+        for (int i = 0; i < n; i++) {
+            int from = offsets[i];
+            offsets[i] = edges;
+            System.arraycopy(targets, from, targets, edges, counts[i]);
+            System.arraycopy(distances, from, distances, edges, counts[i]);
+            System.arraycopy(travelTimes, from, travelTimes, edges, counts[i]);
+            System.arraycopy(costs, from, costs, edges, counts[i]);
+            edges += counts[i];
+        }
+        offsets[n] = edges;
+
+        int[] ids = new int[n];
+        Arrays.setAll(ids, i -> i);
+        return new GraphSnapshot(ids, offsets, Arrays.copyOf(targets, edges), Arrays.copyOf(distances, edges),
+                Arrays.copyOf(travelTimes, edges), Arrays.copyOf(costs, edges), latitudes, longitudes, 0);
+    }
+
+    /**
+     * Generates the routes leaving one airport into its reserved slice of the edge columns.
+     * Spokes fly mostly to their hub and to other airports of their region, sometimes to a far
+     * hub; hubs fly to their region and to other hubs.
+     *
+     * @param airport       The airport the routes leave from.
+     * @param hubIds        The airport ID of each hub.
+     * @param hubWeights    The running totals of the hub popularities.
+     * @param region        The region (hub number) of each airport.
+     * @param regionOffsets The first airport of each region, plus the airport count.
+     * @param vectors       The unit vector of each airport.
+     * @param first         The first slot of the airport's slice.
+     * @param requested     The number of routes to draw, the size of the slice.
+     * @param targets       The destination column.
+     * @param distances     The distance column.
+     * @param travelTimes   The travel time column.
+     * @param costs         The cost column.
+     * @return The number of distinct routes written, at most the requested count.
+     */
+    private int generateRoutes(int airport, int[] hubIds, double[] hubWeights, int[] region, int[] regionOffsets,
+                               double[] vectors, int first, int requested, int[] targets, int[] distances,
+                               int[] travelTimes, int[] costs) {
+        SplittableRandom random = stream(3, airport);
+        int home = region[airport];
+        int regionStart = regionOffsets[home];
+        int regionSize = regionOffsets[home + 1] - regionStart;
+        boolean hub = airport == hubIds[home];
+        for (int k = 0; k < requested; k++) {
+            double roll = random.nextDouble();
+            int destination;
+            if (!hub && k == 0) {
+                destination = hubIds[home];  // Every spoke is served by its hub
+            } else if (roll < (hub ? 0.5 : 0.7)) {
+                destination = regionStart + random.nextInt(regionSize);
+            } else {
+                destination = hubIds[pick(hubWeights, random)];
+            }
+            targets[first + k] = destination;
+        }
+
+        // Drop duplicates and self-loops, then weigh the remaining routes
+        Arrays.sort(targets, first, first + requested);
+        int count = 0;
+        for (int k = 0; k < requested; k++) {
+            int destination = targets[first + k];
+            if (destination == airport || (count > 0 && targets[first + count - 1] == destination)) continue;
+            int slot = first + count++;
+            targets[slot] = destination;
+            double dx = vectors[3 * airport] - vectors[3 * destination];
+            double dy = vectors[3 * airport + 1] - vectors[3 * destination + 1];
+            double dz = vectors[3 * airport + 2] - vectors[3 * destination + 2];
+            double km = 2 * Airport.EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(dx * dx + dy * dy + dz * dz) / 2));
+            boolean trunk = hub && destination == hubIds[region[destination]];
+            double fareFactor = trunk ? 0.8 : 1.0;  // Busy hub-to-hub routes are cheaper per km
+            distances[slot] = Math.max(1, (int) Math.round(km));
+            travelTimes[slot] = RouteImporter.TAXI_MINUTES
+                    + (int) Math.round(km * 60 / RouteImporter.CRUISE_KMH * (0.9 + 0.25 * random.nextDouble()));
+            costs[slot] = RouteImporter.BASE_FARE
+                    + (int) Math.round(km * RouteImporter.FARE_PER_KM * fareFactor * (0.8 + 0.5 * random.nextDouble()));
+        }
+        return count;
+    }
+
+    /**
+     * Creates the random stream of one airport in one generation phase.
+     *
+     * @param phase   The generation phase.
+     * @param airport The airport index.
+     * @return A random stream that depends only on the seed, the phase and the airport.
+     */
+    private SplittableRandom stream(int phase, int airport) {
+        return new SplittableRandom(seed + (phase * (long) airportCount + airport) * STREAM_STEP);
+    }
+
+    /**
+     * Builds the running totals of weights, for picking by weight.
+     *
+     * @param weights The weights.
+     * @return The running totals; the last one is the sum.
+     */
+    private static double[] cumulative(double[] weights) {
+        double[] totals = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            totals[i] = sum;
+        }
+        return totals;
+    }
+
+    /**
+     * Picks an index with probability proportional to its weight.
+     *
+     * @param totals The running totals of the weights.
+     * @param random The random stream to draw from.
+     * @return The picked index.
+     */
+    private static int pick(double[] totals, SplittableRandom random) {
+        double target = random.nextDouble() * totals[totals.length - 1];
+        int index = Arrays.binarySearch(totals, target);
+        return Math.min(totals.length - 1, index >= 0 ? index + 1 : -index - 1);
+    }
+
+    /**
+     * Draws a Pareto distributed popularity of at least 1.
+     *
+     * @param random The random stream to draw from.
+     * @return The popularity.
+     */
+    private static double pareto(SplittableRandom random) {
+        return Math.pow(1 - random.nextDouble(), -1 / PARETO_ALPHA);
+    }
+
+    /**
+     * Draws a standard normal value (Box-Muller).
+     *
+     * @param random The random stream to draw from.
+     * @return A normally distributed value with mean 0 and standard deviation 1.
+     */
+    private static double gaussian(SplittableRandom random) {
+        double u = 1 - random.nextDouble();  // In (0, 1], so the logarithm is finite
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkGenerator{" +
+                "airports=" + airportCount +
+                ", averageRoutes=" + averageRoutes +
+                ", seed=" + seed +
+                '}';
+    }
+
+    /**
+     * Generates a network and writes it to a network file.
+     * Usage: NetworkGenerator airports averageRoutes seed network.bin
+     *
+     * @param args The airport count, the average routes per airport, the seed and the file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: NetworkGenerator airports averageRoutes seed network.bin");
+            System.exit(2);
+        }
+        NetworkGenerator generator = new NetworkGenerator(Integer.parseInt(args[0]), Integer.parseInt(args[1]),
+                Long.parseLong(args[2]));
+        long started = System.nanoTime();
+        GraphSnapshot network = generator.generate();
+        long generated = System.nanoTime();
+        NetworkFile.write(network, Paths.get(args[3]));
+        System.out.println("Generated " + network.nodeCount() + " airports and " + network.targets().length
+                + " routes in " + (generated - started) / 1_000_000 + " ms, written in "
+                + (System.nanoTime() - generated) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,843 @@
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The NetworkLayout class places the airports of a snapshot on a plane for drawing and indexes
+ * them for fast viewport queries. Airports with coordinates are placed on an equirectangular
+ * map; a network without coordinates gets a force-directed layout (Fruchterman and Reingold,
+ * with repulsion limited to nearby airports through a grid so each round is linear). A layout
+ * computed from a previous one keeps every airport the previous one placed where it was, so
+ * the picture does not jump when the network changes.
+ *
+ * Airports are indexed by a uniform grid over the layout's bounds. The routes are bundled by
+ * the grid cells of their two ends at several levels of detail: a zoomed-out view draws one
+ * line per pair of cells, weighted by the number of routes, instead of every route, and a
+ * zoomed-in view looks up only the cell pairs that can cross it: each level files its bundles
+ * by size and position, so drawing a tile visits the bundles near it rather than all of them.
+ *
+ * Layouts are immutable and can be computed and drawn from any thread.
+ */
+final class NetworkLayout {
+    static final int[] GRIDS = {4, 16, 64, 256};  // Cells per side of each level of detail, coarsest first
+    static final int FORCE_ROUNDS = 40;  // Rounds of the force-directed layout
+    private static final int COARSE_GRID = 8;  // Cells per side of the grid whose masses repel far airports
+    private static final int MIN_BUNDLE_PIXELS = 6;  // Smallest on-screen cell of a bundled level
+    private static final int MIN_ROUTE_PIXELS = 24;  // On-screen finest cell from which single routes are drawn
+    private static final int MIN_LABEL_PIXELS = 48;  // On-screen finest cell from which airports are labeled
+    private static final int MAX_CELL_REPULSION = 64;  // Airports of one cell that repel another, at most
+    private static final int MAX_SMOOTH_LINES = 2000;  // Most lines of a rectangle drawn antialiased
+    private static final Color ROUTE_COLOR = new Color(170, 170, 170);  // Opaque, blending is far slower to draw
+    private static final Color AIRPORT_COLOR = Color.RED;
+    private static final Color[] BUNDLE_COLORS = new Color[8];  // Bundle shade by route count class
+    private static final Stroke[] BUNDLE_STROKES = new Stroke[8];  // Bundle width by route count class
+
+    static {
+        for (int i = 0; i < BUNDLE_COLORS.length; i++) {
+            int gray = 215 - 22 * i;  // Darker for bundles of more routes
+            BUNDLE_COLORS[i] = new Color(gray, gray, gray);
+            BUNDLE_STROKES[i] = new BasicStroke(1 + i / 2f);
+        }
+    }
+
+    private final GraphSnapshot graph;  // Snapshot the layout belongs to
+    private final float[] x;  // Horizontal position of each airport, in world units
+    private final float[] y;  // Vertical position of each airport, in world units, growing southwards
+    private final float minX;  // Top-left corner of the positions' bounds
+    private final float minY;
+    private final float width;  // Size of the positions' bounds
+    private final float height;
+    private final float maxX;  // Bottom-right corner of the grid, which is square and covers the bounds
+    private final float maxY;
+    private final int[] cellStart;  // Offset of each finest cell's airports in cellNodes
+    private final int[] cellNodes;  // Airport indices grouped by finest cell
+    private final Bundles[] levels;  // Route bundles per level of detail, coarsest first
+
+    /**
+     * Constructor to index computed positions.
+     *
+     * @param graph The snapshot the positions belong to.
+     * @param x     The horizontal position of each airport.
+     * @param y     The vertical position of each airport.
+     */
+    private NetworkLayout(GraphSnapshot graph, float[] x, float[] y) {
+        this.graph = graph;
+        this.x = x;
+        this.y = y;
+        float lowX = Float.MAX_VALUE;
+        float lowY = Float.MAX_VALUE;
+        float highX = -Float.MAX_VALUE;
+        float highY = -Float.MAX_VALUE;
+        for (int node = 0; node < x.length; node++) {
+            lowX = Math.min(lowX, x[node]);
+            lowY = Math.min(lowY, y[node]);
+            highX = Math.max(highX, x[node]);
+            highY = Math.max(highY, y[node]);
+        }
+        if (x.length == 0) {
+            lowX = lowY = 0;
+            highX = highY = 1;
+        }
+        float extent = Math.max(Math.max(highX - lowX, highY - lowY), 1e-6f);  // Square cells
+        this.minX = lowX;
+        this.minY = lowY;
+        this.width = highX - lowX;
+        this.height = highY - lowY;
+        this.maxX = lowX + extent;
+        this.maxY = lowY + extent;
+
+        int finest = GRIDS[GRIDS.length - 1];
+        int[] cells = new int[x.length];
+        for (int node = 0; node < x.length; node++) {
+            cells[node] = cellOf(node, finest);
+        }
+        this.cellStart = new int[finest * finest + 1];
+        this.cellNodes = groupBy(cells, cellStart);
+        this.levels = new Bundles[GRIDS.length];
+        for (int level = 0; level < GRIDS.length; level++) {
+            levels[level] = bundle(GRIDS[level], level == GRIDS.length - 1);
+        }
+    }
+
+    /**
+     * Computes the layout of a snapshot. Airports the previous layout placed keep their
+     * position; airports without one are placed from their coordinates, next to their placed
+     * neighbors, or, when nothing is placed yet and the network has no coordinates, by the
+     * force-directed layout.
+     *
+     * @param graph    The snapshot to lay out.
+     * @param previous The layout of an earlier snapshot of the same network, or null.
+     * @return The layout.
+     */
+    static NetworkLayout compute(GraphSnapshot graph, NetworkLayout previous) {
+        int n = graph.nodeCount();
+        float[] x = new float[n];
+        float[] y = new float[n];
+        boolean[] placed = new boolean[n];
+        int placedCount = 0;
+        int withCoordinates = 0;
+        for (int node = 0; node < n; node++) {
+            if (!Double.isNaN(graph.latitude(node)) && !Double.isNaN(graph.longitude(node))) {
+                withCoordinates++;
+            }
+        }
+        boolean geographic = withCoordinates * 2 >= n;
+
+        for (int node = 0; node < n; node++) {
+            int before = previous == null ? -1 : previous.graph.indexOf(graph.airportId(node));
+            if (before >= 0) {
+                x[node] = previous.x[before];
+                y[node] = previous.y[before];
+            } else if (geographic && !Double.isNaN(graph.latitude(node)) && !Double.isNaN(graph.longitude(node))) {
+                x[node] = (float) (graph.longitude(node) / 360 + 0.5);  // Equirectangular, one unit around the globe
+                y[node] = (float) (0.5 - graph.latitude(node) / 360);
+            } else {
+                continue;
+            }
+            placed[node] = true;
+            placedCount++;
+        }
+
+        if (placedCount == 0 && n > 0) {
+            forceDirected(graph, x, y);
+        } else if (placedCount < n) {
+            placeNearNeighbors(graph, x, y, placed);
+        }
+        return new NetworkLayout(graph, x, y);
+    }
+
+    /**
+     * Gets the snapshot the layout belongs to.
+     *
+     * @return The snapshot.
+     */
+    GraphSnapshot getGraph() {
+        return graph;
+    }
+
+    /**
+     * Gets the horizontal position of an airport.
+     *
+     * @param node The dense index of the airport.
+     * @return The position in world units.
+     */
+    float x(int node) {
+        return x[node];
+    }
+
+    /**
+     * Gets the vertical position of an airport.
+     *
+     * @param node The dense index of the airport.
+     * @return The position in world units.
+     */
+    float y(int node) {
+        return y[node];
+    }
+
+    /**
+     * Gets the left edge of the layout's bounds.
+     *
+     * @return The smallest horizontal position.
+     */
+    float getMinX() {
+        return minX;
+    }
+
+    /**
+     * Gets the top edge of the layout's bounds.
+     *
+     * @return The smallest vertical position.
+     */
+    float getMinY() {
+        return minY;
+    }
+
+    /**
+     * Gets the width of the layout's bounds.
+     *
+     * @return The width in world units.
+     */
+    float getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the height of the layout's bounds.
+     *
+     * @return The height in world units.
+     */
+    float getHeight() {
+        return height;
+    }
+
+    /**
+     * Finds the airport closest to a point, looking only at the grid cells within a radius.
+     *
+     * @param px     The horizontal position of the point.
+     * @param py     The vertical position of the point.
+     * @param radius The largest distance to accept, in world units.
+     * @return The dense index of the closest airport, or -1 if none is within the radius.
+     */
+    int nearest(double px, double py, double radius) {
+        int finest = GRIDS[GRIDS.length - 1];
+        int fromX = column(px - radius, finest);
+        int toX = column(px + radius, finest);
+        int fromY = row(py - radius, finest);
+        int toY = row(py + radius, finest);
+        int best = -1;
+        double bestDistance = radius * radius;
+        for (int cy = fromY; cy <= toY; cy++) {
+            for (int cx = fromX; cx <= toX; cx++) {
+                int cell = cy * finest + cx;
+                for (int slot = cellStart[cell]; slot < cellStart[cell + 1]; slot++) {
+                    int node = cellNodes[slot];
+                    double dx = x[node] - px;
+                    double dy = y[node] - py;
+                    double distance = dx * dx + dy * dy;
+                    if (distance <= bestDistance) {
+                        bestDistance = distance;
+                        best = node;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Draws the part of the network inside a rectangle of a zoomed view. Routes are bundled
+     * by grid cell unless the view is zoomed in far enough to tell single routes apart.
+     *
+     * @param g      The graphics to draw with; its origin is the rectangle's top-left corner.
+     * @param scale  The pixels per world unit of the view.
+     * @param left   The view's horizontal pixel position of the rectangle's left edge.
+     * @param top    The view's vertical pixel position of the rectangle's top edge.
+     * @param width  The width of the rectangle in pixels.
+     * @param height The height of the rectangle in pixels.
+     */
+    void paint(Graphics2D g, double scale, double left, double top, int width, int height) {
+        double finestPixels = (maxX - minX) / GRIDS[GRIDS.length - 1] * scale;
+        boolean labels = finestPixels >= MIN_LABEL_PIXELS;
+        double margin = (labels ? 80 : 6) / scale;  // Airports just outside may reach in with their dot or label
+        double fromX = left / scale - margin;
+        double toX = (left + width) / scale + margin;
+        double fromY = top / scale - margin;
+        double toY = (top + height) / scale + margin;
+        Rectangle2D view = new Rectangle2D.Double(fromX, fromY, toX - fromX, toY - fromY);
+
+        // Routes: single ones when zoomed in, otherwise the finest bundles that are still a few pixels wide
+        int level = 0;
+        while (level + 1 < levels.length && (maxX - minX) / GRIDS[level + 1] * scale >= MIN_BUNDLE_PIXELS) {
+            level++;
+        }
+        Bundles bundles = levels[level];
+        boolean single = level == levels.length - 1 && finestPixels >= MIN_ROUTE_PIXELS;
+        int[] targets = graph.targets();
+        int[] lines = new int[5 * 256];  // End points and shade of each line to draw
+        int lineCount = 0;
+        int nearby = 0;  // Lines whose bundle's box reaches the rectangle, drawn or not
+        for (int pair : bundles.crossing(fromX, fromY, toX, toY)) {
+            int a = bundles.from[pair];
+            int b = bundles.to[pair];
+            int first = single ? bundles.start[pair] : 0;
+            int end = single ? bundles.start[pair + 1] : 1;
+            nearby += end - first;
+            if (5 * (lineCount + end - first) > lines.length) {
+                lines = Arrays.copyOf(lines, Math.max(lines.length * 2, 5 * (lineCount + end - first)));
+            }
+            for (int slot = first; slot < end; slot++) {
+                float x1 = single ? x[bundles.sources[slot]] : bundles.centerX[a];
+                float y1 = single ? y[bundles.sources[slot]] : bundles.centerY[a];
+                float x2 = single ? x[targets[bundles.edges[slot]]] : bundles.centerX[b];
+                float y2 = single ? y[targets[bundles.edges[slot]]] : bundles.centerY[b];
+                if (!view.intersectsLine(x1, y1, x2, y2)) continue;  // Long lines often only pass nearby
+                int at = 5 * lineCount++;
+                lines[at] = pixel(x1, scale, left);
+                lines[at + 1] = pixel(y1, scale, top);
+                lines[at + 2] = pixel(x2, scale, left);
+                lines[at + 3] = pixel(y2, scale, top);
+                lines[at + 4] = single ? -1 : Math.min(BUNDLE_COLORS.length - 1,
+                        31 - Integer.numberOfLeadingZeros(bundles.weight[pair]));
+            }
+        }
+
+        // Antialiasing costs several times more per shape, so only sparse rectangles get it
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, nearby <= MAX_SMOOTH_LINES
+                ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setColor(ROUTE_COLOR);
+        for (int i = 0; i < lineCount; i++) {
+            int at = 5 * i;
+            int shade = lines[at + 4];
+            if (shade >= 0) {
+                g.setColor(BUNDLE_COLORS[shade]);
+                g.setStroke(BUNDLE_STROKES[shade]);
+            }
+            g.drawLine(lines[at], lines[at + 1], lines[at + 2], lines[at + 3]);
+        }
+        g.setStroke(BUNDLE_STROKES[0]);
+
+        // Airports in the grid cells the rectangle overlaps; small dots are drawn once per pixel
+        int finest = GRIDS[GRIDS.length - 1];
+        int size = finestPixels >= MIN_ROUTE_PIXELS ? 10 : finestPixels >= MIN_BUNDLE_PIXELS ? 4 : 2;
+        boolean[] covered = size < 10 ? new boolean[width * height] : null;
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                size == 10 ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+        g.setColor(AIRPORT_COLOR);
+        for (int cy = row(fromY, finest); cy <= row(toY, finest); cy++) {
+            for (int cx = column(fromX, finest); cx <= column(toX, finest); cx++) {
+                int cell = cy * finest + cx;
+                for (int slot = cellStart[cell]; slot < cellStart[cell + 1]; slot++) {
+                    int node = cellNodes[slot];
+                    if (x[node] < fromX || x[node] > toX || y[node] < fromY || y[node] > toY) continue;
+                    int px = pixel(x[node], scale, left);
+                    int py = pixel(y[node], scale, top);
+                    if (covered == null) {
+                        g.fillOval(px - size / 2, py - size / 2, size, size);
+                    } else if (px < 0 || py < 0 || px >= width || py >= height || !covered[py * width + px]) {
+                        if (px >= 0 && py >= 0 && px < width && py < height) {
+                            covered[py * width + px] = true;
+                        }
+                        g.fillRect(px - size / 2, py - size / 2, size, size);
+                    }
+                    if (labels) {
+                        g.drawString("Airport " + graph.airportId(node), px - 10, py - 10);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a world position to a pixel position of a view rectangle.
+     *
+     * @param world  The position in world units.
+     * @param scale  The pixels per world unit.
+     * @param origin The view's pixel position of the rectangle's edge.
+     * @return The pixel position within the rectangle.
+     */
+    private static int pixel(float world, double scale, double origin) {
+        return (int) Math.round(world * scale - origin);
+    }
+
+    /**
+     * Gets the grid column of a horizontal position, clamped to the grid.
+     *
+     * @param px    The horizontal position.
+     * @param cells The cells per side of the grid.
+     * @return The column.
+     */
+    private int column(double px, int cells) {
+        int column = (int) Math.floor((px - minX) / (maxX - minX) * cells);
+        return Math.max(0, Math.min(cells - 1, column));
+    }
+
+    /**
+     * Gets the grid row of a vertical position, clamped to the grid.
+     *
+     * @param py    The vertical position.
+     * @param cells The cells per side of the grid.
+     * @return The row.
+     */
+    private int row(double py, int cells) {
+        int row = (int) Math.floor((py - minY) / (maxY - minY) * cells);
+        return Math.max(0, Math.min(cells - 1, row));
+    }
+
+    /**
+     * Gets the grid cell of an airport.
+     *
+     * @param node  The dense index of the airport.
+     * @param cells The cells per side of the grid.
+     * @return The cell, row by row.
+     */
+    private int cellOf(int node, int cells) {
+        return row(y[node], cells) * cells + column(x[node], cells);
+    }
+
+    /**
+     * Bundles the routes by the grid cells of their two ends, ignoring direction.
+     *
+     * @param cells  The cells per side of the grid.
+     * @param routes Whether to keep the routes of each bundle, for drawing them one by one.
+     * @return The bundles.
+     */
+    private Bundles bundle(int cells, boolean routes) {
+        int n = x.length;
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] nodeCells = new int[n];
+        float[] sumX = new float[cells * cells];
+        float[] sumY = new float[cells * cells];
+        int[] members = new int[cells * cells];
+        for (int node = 0; node < n; node++) {
+            int cell = cellOf(node, cells);
+            nodeCells[node] = cell;
+            sumX[cell] += x[node];
+            sumY[cell] += y[node];
+            members[cell]++;
+        }
+
+        // Sort the routes by cell pair with one primitive sort of (pair, route) keys
+        long cellCount = (long) cells * cells;
+        long[] keys = new long[offsets[n]];
+        for (int node = 0; node < n; node++) {
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int a = nodeCells[node];
+                int b = nodeCells[targets[edge]];
+                long pair = Math.min(a, b) * cellCount + Math.max(a, b);
+                keys[edge] = pair << 32 | edge;
+            }
+        }
+        Arrays.parallelSort(keys);
+
+        Bundles bundles = new Bundles(cells, keys.length, routes);
+        for (int cell = 0; cell < members.length; cell++) {
+            bundles.centerX[cell] = members[cell] == 0 ? 0 : sumX[cell] / members[cell];
+            bundles.centerY[cell] = members[cell] == 0 ? 0 : sumY[cell] / members[cell];
+        }
+        int[] sourceOf = routes ? sources(offsets, n) : null;
+        for (int i = 0; i < keys.length; i++) {
+            long pair = keys[i] >>> 32;
+            if (i == 0 || pair != keys[i - 1] >>> 32) {
+                bundles.add((int) (pair / cellCount), (int) (pair % cellCount), i);
+            }
+            bundles.weight[bundles.count - 1]++;
+            if (routes) {
+                int edge = (int) keys[i];
+                bundles.edges[i] = edge;
+                bundles.sources[i] = sourceOf[edge];
+            }
+        }
+        bundles.finish(keys.length);
+        return bundles;
+    }
+
+    /**
+     * Gets the start airport of every route.
+     *
+     * @param offsets The route offsets of the snapshot.
+     * @param n       The number of airports.
+     * @return The start airport index of each route.
+     */
+    private static int[] sources(int[] offsets, int n) {
+        int[] sources = new int[offsets[n]];
+        for (int node = 0; node < n; node++) {
+            Arrays.fill(sources, offsets[node], offsets[node + 1], node);
+        }
+        return sources;
+    }
+
+    /**
+     * Groups items by a key with a counting sort.
+     *
+     * @param keys   The key of each item, below starts.length - 1.
+     * @param starts Filled with the offset of each key's group; one longer than the number of keys.
+     * @return The items grouped by key.
+     */
+    private static int[] groupBy(int[] keys, int[] starts) {
+        Arrays.fill(starts, 0);
+        for (int key : keys) {
+            starts[key + 1]++;
+        }
+        for (int i = 0; i + 1 < starts.length; i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] grouped = new int[keys.length];
+        int[] next = Arrays.copyOf(starts, starts.length - 1);
+        for (int item = 0; item < keys.length; item++) {
+            grouped[next[keys[item]]++] = item;
+        }
+        return grouped;
+    }
+
+    /**
+     * Places every airport with a force-directed layout in the unit square: routes pull their
+     * ends together, airports push each other apart, and the moves shrink every round. Nearby
+     * airports repel one by one through a fine grid; farther ones repel as the total mass at
+     * the centre of each cell of a coarse grid, which keeps every round linear.
+     *
+     * @param graph The snapshot to lay out.
+     * @param x     Filled with the horizontal positions.
+     * @param y     Filled with the vertical positions.
+     */
+    private static void forceDirected(GraphSnapshot graph, float[] x, float[] y) {
+        int n = x.length;
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        for (int node = 0; node < n; node++) {
+            SplittableRandom random = new SplittableRandom(graph.airportId(node));  // Same start every time
+            x[node] = (float) random.nextDouble();
+            y[node] = (float) random.nextDouble();
+        }
+
+        double k = Math.sqrt(1.0 / n);  // Ideal distance between airports
+        int fine = Math.max(1, Math.min(1024, (int) (1 / (2 * k))));  // Fine cells are about 2k wide
+        int coarse = Math.min(fine, COARSE_GRID);
+        int ratio = Math.max(1, fine / coarse);  // Fine cells per coarse cell, per side
+        coarse = (fine + ratio - 1) / ratio;
+        int[] nodeCells = new int[n];
+        int[] starts = new int[fine * fine + 1];
+        float[] massX = new float[coarse * coarse];
+        float[] massY = new float[coarse * coarse];
+        int[] mass = new int[coarse * coarse];
+        float[] dx = new float[n];
+        float[] dy = new float[n];
+        double temperature = 0.1;
+        for (int round = 0; round < FORCE_ROUNDS; round++) {
+            Arrays.fill(massX, 0);
+            Arrays.fill(massY, 0);
+            Arrays.fill(mass, 0);
+            for (int node = 0; node < n; node++) {
+                int cx = Math.max(0, Math.min(fine - 1, (int) (x[node] * fine)));
+                int cy = Math.max(0, Math.min(fine - 1, (int) (y[node] * fine)));
+                nodeCells[node] = cy * fine + cx;
+                int big = cy / ratio * coarse + cx / ratio;
+                massX[big] += x[node];
+                massY[big] += y[node];
+                mass[big]++;
+            }
+            for (int big = 0; big < mass.length; big++) {
+                if (mass[big] > 0) {
+                    massX[big] /= mass[big];
+                    massY[big] /= mass[big];
+                }
+            }
+            int[] grouped = groupBy(nodeCells, starts);
+            Arrays.fill(dx, 0);
+            Arrays.fill(dy, 0);
+
+            for (int node = 0; node < n; node++) {
+                int cx = nodeCells[node] % fine;
+                int cy = nodeCells[node] / fine;
+
+                // Far airports, as the masses of the coarse cells other than the airport's own
+                int own = cy / ratio * coarse + cx / ratio;
+                for (int big = 0; big < mass.length; big++) {
+                    if (mass[big] == 0 || big == own) continue;
+                    double ddx = x[node] - massX[big];
+                    double ddy = y[node] - massY[big];
+                    double squared = Math.max(1e-12, ddx * ddx + ddy * ddy);
+                    double force = mass[big] * k * k / squared;  // Direction and 1/distance in one
+                    dx[node] += (float) (ddx * force);
+                    dy[node] += (float) (ddy * force);
+                }
+
+                // Near airports one by one, from the fine cells of the same coarse cell
+                int fromX = cx / ratio * ratio;
+                int fromY = cy / ratio * ratio;
+                for (int oy = Math.max(fromY, cy - 1); oy <= Math.min(Math.min(fine, fromY + ratio) - 1, cy + 1); oy++) {
+                    for (int ox = Math.max(fromX, cx - 1); ox <= Math.min(Math.min(fine, fromX + ratio) - 1, cx + 1); ox++) {
+                        int cell = oy * fine + ox;
+                        int end = Math.min(starts[cell + 1], starts[cell] + MAX_CELL_REPULSION);
+                        for (int slot = starts[cell]; slot < end; slot++) {
+                            int other = grouped[slot];
+                            if (other == node) continue;
+                            double ddx = x[node] - x[other];
+                            double ddy = y[node] - y[other];
+                            double squared = Math.max(1e-12, ddx * ddx + ddy * ddy);
+                            double force = k * k / squared;
+                            dx[node] += (float) (ddx * force);
+                            dy[node] += (float) (ddy * force);
+                        }
+                    }
+                }
+            }
+            for (int node = 0; node < n; node++) {
+                for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                    int target = targets[edge];
+                    double ddx = x[node] - x[target];
+                    double ddy = y[node] - y[target];
+                    double distance = Math.sqrt(ddx * ddx + ddy * ddy);
+                    float fx = (float) (ddx * distance / k);  // Direction times distance squared over k
+                    float fy = (float) (ddy * distance / k);
+                    dx[node] -= fx;
+                    dy[node] -= fy;
+                    dx[target] += fx;
+                    dy[target] += fy;
+                }
+            }
+            for (int node = 0; node < n; node++) {
+                double length = Math.max(1e-9, Math.sqrt(dx[node] * dx[node] + dy[node] * dy[node]));
+                double step = Math.min(length, temperature);
+                x[node] = (float) Math.max(0, Math.min(1, x[node] + dx[node] / length * step));
+                y[node] = (float) Math.max(0, Math.min(1, y[node] + dy[node] / length * step));
+            }
+            temperature *= 0.92;
+        }
+    }
+
+    /**
+     * Places the airports not placed yet next to the average of their placed neighbors,
+     * repeating while that places more of them. Any still left get a fixed spot within the
+     * bounds of the placed ones.
+     *
+     * @param graph  The snapshot being laid out.
+     * @param x      The horizontal positions, filled in for new airports.
+     * @param y      The vertical positions, filled in for new airports.
+     * @param placed Whether each airport is placed, updated in place.
+     */
+    private static void placeNearNeighbors(GraphSnapshot graph, float[] x, float[] y, boolean[] placed) {
+        int n = x.length;
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] reverseOffsets = graph.reverseOffsets();
+        int[] reverseSources = graph.reverseSources();
+        float lowX = Float.MAX_VALUE;
+        float lowY = Float.MAX_VALUE;
+        float highX = -Float.MAX_VALUE;
+        float highY = -Float.MAX_VALUE;
+        for (int node = 0; node < n; node++) {
+            if (!placed[node]) continue;
+            lowX = Math.min(lowX, x[node]);
+            lowY = Math.min(lowY, y[node]);
+            highX = Math.max(highX, x[node]);
+            highY = Math.max(highY, y[node]);
+        }
+        float jitter = Math.max(highX - lowX, highY - lowY) / 200;
+
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (int node = 0; node < n; node++) {
+                if (placed[node]) continue;
+                double sumX = 0;
+                double sumY = 0;
+                int count = 0;
+                for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                    if (placed[targets[edge]]) {
+                        sumX += x[targets[edge]];
+                        sumY += y[targets[edge]];
+                        count++;
+                    }
+                }
+                for (int slot = reverseOffsets[node]; slot < reverseOffsets[node + 1]; slot++) {
+                    if (placed[reverseSources[slot]]) {
+                        sumX += x[reverseSources[slot]];
+                        sumY += y[reverseSources[slot]];
+                        count++;
+                    }
+                }
+                if (count == 0) continue;
+                SplittableRandom random = new SplittableRandom(graph.airportId(node));
+                x[node] = (float) (sumX / count + (random.nextDouble() - 0.5) * jitter);
+                y[node] = (float) (sumY / count + (random.nextDouble() - 0.5) * jitter);
+                placed[node] = true;
+                progress = true;
+            }
+        }
+        for (int node = 0; node < n; node++) {
+            if (placed[node]) continue;
+            SplittableRandom random = new SplittableRandom(graph.airportId(node));  // No placed neighbor at all
+            x[node] = (float) (lowX + random.nextDouble() * (highX - lowX));
+            y[node] = (float) (lowY + random.nextDouble() * (highY - lowY));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkLayout{" +
+                "airports=" + x.length +
+                ", bounds=" + minX + "," + minY + " - " + maxX + "," + maxY +
+                ", bundles=" + levels[levels.length - 1].count +
+                '}';
+    }
+
+    /**
+     * The routes of one level of detail, bundled by the grid cells of their two ends.
+     */
+    private final class Bundles {
+        private final int cells;  // Cells per side of the grid
+        private final float[] centerX;  // Average position of the airports of each cell
+        private final float[] centerY;
+        private int[] from;  // First cell of each bundle
+        private int[] to;  // Second cell of each bundle
+        private int[] weight;  // Number of routes in each bundle
+        private int[] start;  // Offset of each bundle's routes in edges, when kept
+        private final int[] edges;  // Routes grouped by bundle, or null
+        private final int[] sources;  // Start airport of each grouped route, or null
+        private int count;  // Number of bundles
+        private int[] classStart;  // First block of each size class in blockStart
+        private int[] blockStart;  // Offset of each block's bundles in byBlock
+        private int[] byBlock;  // Bundles grouped by size class and the block of their top-left cell
+
+        /**
+         * Constructor to create empty bundles.
+         *
+         * @param cells      The cells per side of the grid.
+         * @param routeCount The number of routes.
+         * @param routes     Whether to keep the routes of each bundle.
+         */
+        Bundles(int cells, int routeCount, boolean routes) {
+            this.cells = cells;
+            this.centerX = new float[cells * cells];
+            this.centerY = new float[cells * cells];
+            int capacity = Math.max(16, Math.min(routeCount, cells * cells));
+            this.from = new int[capacity];
+            this.to = new int[capacity];
+            this.weight = new int[capacity];
+            this.start = new int[capacity + 1];
+            this.edges = routes ? new int[routeCount] : null;
+            this.sources = routes ? new int[routeCount] : null;
+        }
+
+        /**
+         * Starts a new bundle.
+         *
+         * @param a     The first cell.
+         * @param b     The second cell.
+         * @param first The position of its first route in the sorted routes.
+         */
+        void add(int a, int b, int first) {
+            if (count == from.length) {
+                from = Arrays.copyOf(from, count * 2);
+                to = Arrays.copyOf(to, count * 2);
+                weight = Arrays.copyOf(weight, count * 2);
+                start = Arrays.copyOf(start, count * 2 + 1);
+            }
+            from[count] = a;
+            to[count] = b;
+            start[count] = first;
+            count++;
+        }
+
+        /**
+         * Closes the last bundle and indexes the bundles for crossing. A bundle is filed under
+         * the smallest size class whose blocks, squares of a power of two cells, are as wide
+         * and high as the box around its two cells, in the block that holds the box's top-left
+         * cell. Each bundle is filed once, however long it is.
+         *
+         * @param routeCount The number of routes.
+         */
+        void finish(int routeCount) {
+            start[count] = routeCount;
+            int classes = Integer.numberOfTrailingZeros(cells) + 1;  // Blocks of 1, 2, 4, ... cells per side
+            classStart = new int[classes + 1];
+            for (int size = 0; size < classes; size++) {
+                int blocks = cells >> size;
+                classStart[size + 1] = classStart[size] + blocks * blocks;
+            }
+            int[] keys = new int[count];
+            for (int pair = 0; pair < count; pair++) {
+                int left = Math.min(from[pair] % cells, to[pair] % cells);
+                int top = Math.min(from[pair] / cells, to[pair] / cells);
+                int span = Math.max(Math.abs(from[pair] % cells - to[pair] % cells),
+                        Math.abs(from[pair] / cells - to[pair] / cells));
+                int size = 32 - Integer.numberOfLeadingZeros(span);  // Smallest class with more than span cells
+                keys[pair] = classStart[size] + (top >> size) * (cells >> size) + (left >> size);
+            }
+            blockStart = new int[classStart[classes] + 1];
+            byBlock = groupBy(keys, blockStart);
+        }
+
+        /**
+         * Finds the bundles whose routes can cross a rectangle, visiting only the blocks near
+         * it: a bundle reaches less than two blocks of its class to the right and down from
+         * the block it is filed in, so blocks further than one to the left or above the
+         * rectangle cannot hold a crossing bundle.
+         *
+         * @param fromX The left edge of the rectangle.
+         * @param fromY The top edge of the rectangle.
+         * @param toX   The right edge of the rectangle.
+         * @param toY   The bottom edge of the rectangle.
+         * @return The bundles that pass crosses, in bundle order.
+         */
+        int[] crossing(double fromX, double fromY, double toX, double toY) {
+            int left = Math.max(0, column(fromX, cells) - 1);  // One cell to spare for rounding at cell edges
+            int right = Math.min(cells - 1, column(toX, cells) + 1);
+            int top = Math.max(0, row(fromY, cells) - 1);
+            int bottom = Math.min(cells - 1, row(toY, cells) + 1);
+            int[] found = new int[64];
+            int foundCount = 0;
+            for (int size = 0; size + 1 < classStart.length; size++) {
+                int blocks = cells >> size;
+                for (int by = Math.max(0, (top >> size) - 1); by <= bottom >> size; by++) {
+                    for (int bx = Math.max(0, (left >> size) - 1); bx <= right >> size; bx++) {
+                        int block = classStart[size] + by * blocks + bx;
+                        for (int slot = blockStart[block]; slot < blockStart[block + 1]; slot++) {
+                            int pair = byBlock[slot];
+                            if (!crosses(from[pair], to[pair], fromX, fromY, toX, toY)) continue;
+                            if (foundCount == found.length) {
+                                found = Arrays.copyOf(found, foundCount * 2);
+                            }
+                            found[foundCount++] = pair;
+                        }
+                    }
+                }
+            }
+            found = Arrays.copyOf(found, foundCount);
+            Arrays.sort(found);  // Same drawing order in every tile, so shared lines overlap alike
+            return found;
+        }
+
+        /**
+         * Checks whether a route between two cells can cross a rectangle, by testing the box
+         * around both cells.
+         *
+         * @param a     The first cell.
+         * @param b     The second cell.
+         * @param fromX The left edge of the rectangle.
+         * @param fromY The top edge of the rectangle.
+         * @param toX   The right edge of the rectangle.
+         * @param toY   The bottom edge of the rectangle.
+         * @return false if no route of the bundle can cross the rectangle.
+         */
+        boolean crosses(int a, int b, double fromX, double fromY, double toX, double toY) {
+            double cellSize = (maxX - minX) / cells;
+            int columnA = a % cells;
+            int columnB = b % cells;
+            int rowA = a / cells;
+            int rowB = b / cells;
+            double left = minX + Math.min(columnA, columnB) * cellSize;
+            double right = minX + (Math.max(columnA, columnB) + 1) * cellSize;
+            double top = minY + Math.min(rowA, rowB) * cellSize;
+            double bottom = minY + (Math.max(rowA, rowB) + 1) * cellSize;
+            return right >= fromX && left <= toX && bottom >= fromY && top <= toY;
+        }
+    }
+}
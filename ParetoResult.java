@@ -0,0 +1,75 @@
+import java.util.List;
+
+/**
+ * The ParetoResult class holds the outcome of a multi-criteria route search: the routes on
+ * the Pareto frontier over cost, distance and travel time, and counters describing how much
+ * work the search did.
+ */
+class ParetoResult {
+    private final List<RouteSummary> routes;  // Non-dominated routes, cheapest first
+    private final int labelsCreated;  // Partial routes created during the search
+    private final int labelsPruned;  // Partial routes discarded as dominated
+    private final boolean truncated;  // Whether the search stopped early at its label limit
+
+    /**
+     * Constructor to initialize a result.
+     *
+     * @param routes        The non-dominated routes, cheapest first.
+     * @param labelsCreated The number of partial routes created.
+     * @param labelsPruned  The number of partial routes discarded as dominated.
+     * @param truncated     Whether the search hit its label limit.
+     */
+    public ParetoResult(List<RouteSummary> routes, int labelsCreated, int labelsPruned, boolean truncated) {
+        this.routes = routes;
+        this.labelsCreated = labelsCreated;
+        this.labelsPruned = labelsPruned;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Gets the routes on the Pareto frontier: no other route is at least as good in cost,
+     * distance and travel time and better in one of them.
+     *
+     * @return The non-dominated routes, cheapest first.
+     */
+    public List<RouteSummary> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Gets the number of partial routes the search created.
+     *
+     * @return The number of labels created.
+     */
+    public int getLabelsCreated() {
+        return labelsCreated;
+    }
+
+    /**
+     * Gets the number of partial routes the search discarded because another route dominated them.
+     *
+     * @return The number of labels pruned.
+     */
+    public int getLabelsPruned() {
+        return labelsPruned;
+    }
+
+    /**
+     * Checks whether the search stopped at its label limit, in which case the frontier may be incomplete.
+     *
+     * @return true if the search was cut short.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public String toString() {
+        return "ParetoResult{" +
+                "routes=" + routes +
+                ", labelsCreated=" + labelsCreated +
+                ", labelsPruned=" + labelsPruned +
+                ", truncated=" + truncated +
+                '}';
+    }
+}
@@ -0,0 +1,208 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ParetoSearch class finds the Pareto frontier of routes between two airports over cost,
+ * distance and travel time (a multi-criteria label-setting search in the style of Martins'
+ * algorithm). Labels are taken from a priority queue in order of their summed criteria plus
+ * exact per-criterion lower bounds to the destination, so a label is never dominated by one
+ * taken later and can be settled as soon as it is taken.
+ *
+ * Work is bounded in three ways: labels dominated by a settled label at the same airport are
+ * dropped, labels that cannot beat a route already found (even with the lower bounds added)
+ * are dropped, and the search stops at a label limit. An epsilon above 0 makes dominance
+ * tolerant, which thins out near-duplicate routes and shrinks the frontier.
+ */
+final class ParetoSearch {
+    static final int DEFAULT_MAX_LABELS = 1_000_000;  // Label limit used by Graph.paretoRoutes
+
+    private final double epsilon;  // Relative tolerance of the dominance test
+    private final int maxResults;  // Stop once this many routes are found
+    private final int maxLabels;  // Stop once this many labels are created
+    private final LabelPool pool;  // All labels of the current query
+    private final SearchContext context;  // Search state for the lower-bound searches
+    private int[] nextSettled;  // Next settled label at the same airport, per label
+    private int[] settledHeads;  // First settled label of each airport, -1 for none
+    private final LabelHeap heap;  // Labels keyed by summed criteria plus bounds
+
+    /**
+     * Constructor to create a search with the given limits.
+     *
+     * @param epsilon    The relative dominance tolerance, 0 for the exact frontier.
+     * @param maxResults The maximum number of routes to return.
+     * @param maxLabels  The maximum number of labels to create before giving up.
+     */
+    ParetoSearch(double epsilon, int maxResults, int maxLabels) {
+        this.epsilon = epsilon;
+        this.maxResults = maxResults;
+        this.maxLabels = maxLabels;
+        this.pool = new LabelPool(1024);
+        this.context = new SearchContext();
+        this.nextSettled = new int[1024];
+        this.settledHeads = new int[0];
+        this.heap = new LabelHeap(1024);
+    }
+
+    /**
+     * Finds the non-dominated routes between two airports of a snapshot.
+     *
+     * @param graph       The snapshot to search.
+     * @param start       The dense index of the starting airport.
+     * @param destination The dense index of the destination airport.
+     * @return The Pareto frontier and the search counters.
+     */
+    ParetoResult search(GraphSnapshot graph, int start, int destination) {
+        List<RouteSummary> routes = new ArrayList<>();
+        int[] toCost = graph.distancesTo(destination, Criterion.COST, context);
+        if (toCost[start] == SearchContext.INFINITY) {
+            return new ParetoResult(routes, 0, 0, false);  // The destination cannot be reached
+        }
+        int[] toDistance = graph.distancesTo(destination, Criterion.DISTANCE, context);
+        int[] toTime = graph.distancesTo(destination, Criterion.TIME, context);
+
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] triples = graph.weightTriples();
+        int costSlot = Criterion.COST.ordinal();
+        int distanceSlot = Criterion.DISTANCE.ordinal();
+        int timeSlot = Criterion.TIME.ordinal();
+
+        pool.clear();
+        heap.clear();
+        if (settledHeads.length < graph.nodeCount()) {
+            settledHeads = new int[graph.nodeCount()];
+        }
+        Arrays.fill(settledHeads, 0, graph.nodeCount(), -1);
+        int[] results = new int[16];
+        int resultCount = 0;
+        int pruned = 0;
+        boolean truncated = false;
+
+        int root = pool.add(start, -1, 0, 0, 0, 0);
+        heap.push(root, (long) toCost[start] + toDistance[start] + toTime[start]);
+
+        search:
+        while (!heap.isEmpty()) {
+            int label = heap.pop();
+            int node = pool.node(label);
+            int cost = pool.cost(label);
+            int distance = pool.distance(label);
+            int travelTime = pool.travelTime(label);
+
+            // A label queued earlier may have been overtaken while it waited
+            if (isDominatedAt(node, cost, distance, travelTime)
+                    || isDominatedByResults(results, resultCount, (long) cost + toCost[node],
+                    (long) distance + toDistance[node], (long) travelTime + toTime[node])) {
+                pruned++;
+                continue;
+            }
+            settle(node, label);
+
+            if (node == destination) {
+                if (resultCount == results.length) {
+                    results = Arrays.copyOf(results, resultCount * 2);
+                }
+                results[resultCount++] = label;
+                if (resultCount >= maxResults) break;
+                continue;
+            }
+
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int neighbor = targets[edge];
+                if (toCost[neighbor] == SearchContext.INFINITY) continue;  // Dead end for this destination
+                int newCost = cost + triples[3 * edge + costSlot];
+                int newDistance = distance + triples[3 * edge + distanceSlot];
+                int newTime = travelTime + triples[3 * edge + timeSlot];
+                long boundCost = (long) newCost + toCost[neighbor];
+                long boundDistance = (long) newDistance + toDistance[neighbor];
+                long boundTime = (long) newTime + toTime[neighbor];
+
+                if (isDominatedAt(neighbor, newCost, newDistance, newTime)
+                        || isDominatedByResults(results, resultCount, boundCost, boundDistance, boundTime)) {
+                    pruned++;
+                    continue;
+                }
+                if (pool.size() >= maxLabels) {
+                    truncated = true;
+                    break search;
+                }
+                int child = pool.add(neighbor, label, newCost, newDistance, newTime, pool.hops(label) + 1);
+                heap.push(child, boundCost + boundDistance + boundTime);
+            }
+        }
+
+        for (int i = 0; i < resultCount; i++) {
+            routes.add(toSummary(graph, results[i]));
+        }
+        routes.sort((a, b) -> Integer.compare(a.getTotalCost(), b.getTotalCost()));
+        return new ParetoResult(routes, pool.size(), pruned, truncated);
+    }
+
+    /**
+     * Checks whether a settled label at an airport dominates the given criteria.
+     *
+     * @param node       The airport index.
+     * @param cost       The candidate's cost.
+     * @param distance   The candidate's distance.
+     * @param travelTime The candidate's travel time.
+     * @return true if the candidate is dominated.
+     */
+    private boolean isDominatedAt(int node, int cost, int distance, int travelTime) {
+        for (int label = settledHeads[node]; label != -1; label = nextSettled[label]) {
+            if (pool.dominates(label, cost, distance, travelTime, epsilon)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a route already found dominates the best possible completion of a label.
+     *
+     * @param results     The labels of the routes found so far.
+     * @param resultCount The number of routes found so far.
+     * @param cost        The label's cost plus the lower bound to the destination.
+     * @param distance    The label's distance plus the lower bound to the destination.
+     * @param travelTime  The label's travel time plus the lower bound to the destination.
+     * @return true if no completion of the label can join the frontier.
+     */
+    private boolean isDominatedByResults(int[] results, int resultCount, long cost, long distance, long travelTime) {
+        for (int i = 0; i < resultCount; i++) {
+            if (pool.dominates(results[i], cost, distance, travelTime, epsilon)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a label to the settled labels of its airport.
+     *
+     * @param node  The airport index.
+     * @param label The label to settle.
+     */
+    private void settle(int node, int label) {
+        if (label >= nextSettled.length) {
+            nextSettled = Arrays.copyOf(nextSettled, Math.max(label + 1, nextSettled.length * 2));
+        }
+        nextSettled[label] = settledHeads[node];
+        settledHeads[node] = label;
+    }
+
+    /**
+     * Converts a destination label into a route summary by following its parent labels.
+     *
+     * @param graph The snapshot the label belongs to.
+     * @param label The destination label.
+     * @return The route the label describes.
+     */
+    private RouteSummary toSummary(GraphSnapshot graph, int label) {
+        Integer[] path = new Integer[pool.hops(label) + 1];
+        for (int at = label, i = path.length - 1; at != -1; at = pool.parent(at), i--) {
+            path[i] = graph.airportId(pool.node(at));
+        }
+        return new RouteSummary(new ArrayList<>(Arrays.asList(path)), pool.distance(label),
+                pool.travelTime(label), pool.cost(label));
+    }
+}
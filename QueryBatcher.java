@@ -0,0 +1,220 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The QueryBatcher class answers shortest-path queries on a pool of search threads and groups
+ * waiting queries that share a start airport and criterion into one search. A search from a
+ * start settles airports in order of distance, so one search that stops at the farthest
+ * destination of a group answers every query in it (see Graph.shortestPaths).
+ *
+ * Queries are not held back to fill a batch. A query joins the open batch of its start and
+ * criterion, or opens a new one that is queued for the next free thread; batches only grow
+ * while every thread is busy, which is exactly when merging searches pays off.
+ */
+final class QueryBatcher {
+    private final Graph graph;  // The graph to search
+    private final int maxBatchSize;  // Most queries answered by one search, 1 disables batching
+    private final ExecutorService searchers;  // Threads that run the batches
+    private final Map<Long, Batch> open;  // Batches that still accept queries, by start and criterion, guarded by this
+    private final ArrayDeque<Batch> ready;  // Batches waiting for a thread in arrival order, guarded by this
+    private final AtomicLong queries;  // Queries answered so far
+    private final AtomicLong searches;  // Searches run so far
+    private final AtomicLong failures;  // Searches that threw
+
+    /**
+     * Constructor to create a batcher with its own search threads.
+     *
+     * @param graph        The graph to search.
+     * @param threads      The number of search threads.
+     * @param maxBatchSize The most queries one search answers; 1 disables batching.
+     */
+    QueryBatcher(Graph graph, int threads, int maxBatchSize) {
+        this.graph = graph;
+        this.maxBatchSize = maxBatchSize;
+        this.searchers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "route-search");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.open = new HashMap<>();
+        this.ready = new ArrayDeque<>();
+        this.queries = new AtomicLong();
+        this.searches = new AtomicLong();
+        this.failures = new AtomicLong();
+    }
+
+    /**
+     * Queues a shortest-path query. Never blocks; the result completes on a search thread.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion for finding the shortest path ("cost", "distance", or "time").
+     * @return The route, completing with an empty path if there is none.
+     */
+    CompletableFuture<RouteSummary> submit(int startId, int destinationId, String criterion) {
+        CompletableFuture<RouteSummary> result = new CompletableFuture<>();
+        long key = ((long) startId << 2) | Criterion.parse(criterion).ordinal();
+        boolean queued;
+        synchronized (this) {
+            Batch batch = open.get(key);
+            queued = batch == null;
+            if (queued) {
+                batch = new Batch(key, startId, criterion);
+                ready.add(batch);
+                if (maxBatchSize > 1) {
+                    open.put(key, batch);
+                }
+            }
+            batch.add(destinationId, result);
+            if (batch.size() >= maxBatchSize) {
+                open.remove(key);  // Full, later queries start a new batch
+            }
+        }
+        if (queued) {
+            searchers.execute(this::runNext);  // One task per batch, so no batch waits for a task
+        }
+        return result;
+    }
+
+    /**
+     * Takes the oldest waiting batch and answers all of its queries with one search.
+     */
+    private void runNext() {
+        Batch batch;
+        synchronized (this) {
+            batch = ready.poll();
+            open.remove(batch.key, batch);  // Closed from here on, its destinations are fixed
+        }
+        try {
+            Map<Integer, RouteSummary> routes = graph.shortestPaths(batch.startId, batch.destinations, batch.criterion);
+            searches.incrementAndGet();
+            for (int i = 0; i < batch.size(); i++) {
+                // Hand each query its own copy, two of them may ask for the same destination
+                RouteSummary route = routes.get(batch.destinationIds.get(i));
+                batch.results.get(i).complete(new RouteSummary(new ArrayList<>(route.getPath()),
+                        route.getTotalDistance(), route.getTotalTravelTime(), route.getTotalCost()));
+            }
+            queries.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            for (CompletableFuture<RouteSummary> result : batch.results) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Stops the search threads. Batches already queued are still answered.
+     */
+    void shutdown() {
+        searchers.shutdown();
+    }
+
+    /**
+     * Gets the number of queries answered so far.
+     *
+     * @return The number of queries.
+     */
+    long getQueryCount() {
+        return queries.get();
+    }
+
+    /**
+     * Gets the number of searches run so far.
+     *
+     * @return The number of searches.
+     */
+    long getSearchCount() {
+        return searches.get();
+    }
+
+    /**
+     * Gets the number of searches that failed with an exception.
+     *
+     * @return The number of failed searches.
+     */
+    long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Gets the average number of queries answered per search.
+     *
+     * @return The average batch size, 0 before the first search.
+     */
+    double getAverageBatchSize() {
+        long count = searches.get();
+        return count == 0 ? 0 : (double) queries.get() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryBatcher{" +
+                "queries=" + queries.get() +
+                ", searches=" + searches.get() +
+                ", failures=" + failures.get() +
+                ", maxBatchSize=" + maxBatchSize +
+                '}';
+    }
+
+    /**
+     * The queries waiting for one search: a start airport, a criterion and the destinations.
+     */
+    private static final class Batch {
+        final long key;  // The start airport and criterion packed into one key
+        final int startId;  // The ID of the shared starting airport
+        final String criterion;  // The shared criterion
+        final List<Integer> destinationIds;  // Destination of each query, in arrival order
+        final List<CompletableFuture<RouteSummary>> results;  // Result of each query, in arrival order
+        final Set<Integer> destinations;  // Distinct destinations to search for
+
+        /**
+         * Constructor to create an empty batch.
+         *
+         * @param key       The start airport and criterion packed into one key.
+         * @param startId   The ID of the starting airport.
+         * @param criterion The criterion of the search.
+         */
+        Batch(long key, int startId, String criterion) {
+            this.key = key;
+            this.startId = startId;
+            this.criterion = criterion;
+            this.destinationIds = new ArrayList<>();
+            this.results = new ArrayList<>();
+            this.destinations = new HashSet<>();
+        }
+
+        /**
+         * Adds a query to the batch.
+         *
+         * @param destinationId The ID of the destination airport.
+         * @param result        The future to complete with the route.
+         */
+        void add(int destinationId, CompletableFuture<RouteSummary> result) {
+            destinationIds.add(destinationId);
+            results.add(result);
+            destinations.add(destinationId);
+        }
+
+        /**
+         * Gets the number of queries in the batch.
+         *
+         * @return The number of queries.
+         */
+        int size() {
+            return results.size();
+        }
+    }
+}
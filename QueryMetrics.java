@@ -0,0 +1,173 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The QueryMetrics class collects what the route queries of one criterion cost: a latency
+ * histogram and totals of cache hits, settled airports, relaxed edges and heap pushes. It also
+ * remembers the slowest query, so a pathological start and destination can be reproduced.
+ * Counters are LongAdders, so search threads recording at the same time do not contend.
+ */
+final class QueryMetrics implements QueryMetricsMBean {
+    private final RoutingMetrics owner;  // Holds the switch shared by every criterion
+    private final Criterion criterion;  // The criterion measured
+    private final LatencyHistogram latencies;  // Query latencies in nanoseconds
+    private final LongAdder queries;  // Queries measured
+    private final LongAdder cacheHits;  // Queries answered without a search
+    private final LongAdder settled;  // Airports settled by the searches
+    private final LongAdder relaxed;  // Edges that lowered a tentative distance
+    private final LongAdder pushes;  // Airports pushed onto the heaps
+    private volatile long slowestNanos;  // Latency of the slowest query, guarded by this for writes
+    private volatile String slowest;  // Description of the slowest query, guarded by this for writes
+
+    /**
+     * Constructor to create empty metrics for one criterion.
+     *
+     * @param owner     The metrics of the graph, which turn measuring on and off.
+     * @param criterion The criterion measured.
+     */
+    QueryMetrics(RoutingMetrics owner, Criterion criterion) {
+        this.owner = owner;
+        this.criterion = criterion;
+        this.latencies = new LatencyHistogram();
+        this.queries = new LongAdder();
+        this.cacheHits = new LongAdder();
+        this.settled = new LongAdder();
+        this.relaxed = new LongAdder();
+        this.pushes = new LongAdder();
+        this.slowest = "";
+    }
+
+    /**
+     * Records one query.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport, or -1 for a query with several.
+     * @param nanos         How long the query took.
+     * @param cacheHit      Whether the route cache answered the query.
+     * @param context       The search context the query ran in, or null if it did not search.
+     */
+    void record(int startId, int destinationId, long nanos, boolean cacheHit, SearchContext context) {
+        latencies.record(nanos);
+        queries.increment();
+        if (cacheHit) {
+            cacheHits.increment();
+        }
+        int settledNodes = 0;
+        int relaxedEdges = 0;
+        if (context != null) {
+            settledNodes = context.heap().pollCount();
+            relaxedEdges = context.relaxedCount();
+            settled.add(settledNodes);
+            relaxed.add(relaxedEdges);
+            pushes.add(context.heap().pushCount());
+        }
+        if (nanos > slowestNanos) {
+            synchronized (this) {
+                if (nanos > slowestNanos) {
+                    slowestNanos = nanos;
+                    slowest = "from=" + startId + " to=" + destinationId + " micros=" + nanos / 1000
+                            + " settled=" + settledNodes + " relaxed=" + relaxedEdges;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return owner.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        owner.setEnabled(enabled);
+    }
+
+    @Override
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getNodesSettled() {
+        return settled.sum();
+    }
+
+    @Override
+    public long getEdgesRelaxed() {
+        return relaxed.sum();
+    }
+
+    @Override
+    public long getHeapPushes() {
+        return pushes.sum();
+    }
+
+    @Override
+    public double getLatencyP50Micros() {
+        return latencies.valueAt(0.50) / 1000.0;
+    }
+
+    @Override
+    public double getLatencyP99Micros() {
+        return latencies.valueAt(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getLatencyP999Micros() {
+        return latencies.valueAt(0.999) / 1000.0;
+    }
+
+    @Override
+    public double getLatencyMaxMicros() {
+        return slowestNanos / 1000.0;
+    }
+
+    @Override
+    public String getSlowestQuery() {
+        return slowest;
+    }
+
+    @Override
+    public synchronized void reset() {
+        latencies.reset();
+        queries.reset();
+        cacheHits.reset();
+        settled.reset();
+        relaxed.reset();
+        pushes.reset();
+        slowestNanos = 0;
+        slowest = "";
+    }
+
+    /**
+     * Gets the criterion measured.
+     *
+     * @return The criterion.
+     */
+    Criterion getCriterion() {
+        return criterion;
+    }
+
+    @Override
+    public String toString() {
+        long count = queries.sum();
+        long searched = Math.max(1, count - cacheHits.sum());
+        return "QueryMetrics{" +
+                "criterion=" + criterion +
+                ", queries=" + count +
+                ", cacheHits=" + cacheHits.sum() +
+                ", settledPerSearch=" + settled.sum() / searched +
+                ", relaxedPerSearch=" + relaxed.sum() / searched +
+                ", pushesPerSearch=" + pushes.sum() / searched +
+                ", p50Micros=" + getLatencyP50Micros() +
+                ", p99Micros=" + getLatencyP99Micros() +
+                ", p999Micros=" + getLatencyP999Micros() +
+                ", maxMicros=" + getLatencyMaxMicros() +
+                ", slowest=" + slowest +
+                '}';
+    }
+}
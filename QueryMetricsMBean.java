@@ -0,0 +1,94 @@
+/**
+ * The QueryMetricsMBean interface is the JMX view of the route query metrics of one criterion
+ * (see QueryMetrics). JMX only exposes public interfaces, hence the modifier.
+ */
+public interface QueryMetricsMBean {
+    /**
+     * Checks whether queries are being measured.
+     *
+     * @return true if metrics are recorded.
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns measuring on or off for every criterion of the graph.
+     *
+     * @param enabled Whether to record metrics.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Gets the number of queries measured.
+     *
+     * @return The number of queries.
+     */
+    long getQueries();
+
+    /**
+     * Gets the number of queries answered from the route cache without a search.
+     *
+     * @return The number of cache hits.
+     */
+    long getCacheHits();
+
+    /**
+     * Gets the number of airports settled by the searches.
+     *
+     * @return The total of settled airports.
+     */
+    long getNodesSettled();
+
+    /**
+     * Gets the number of edges that lowered a tentative distance in the searches.
+     *
+     * @return The total of relaxed edges.
+     */
+    long getEdgesRelaxed();
+
+    /**
+     * Gets the number of airports pushed onto the search heaps.
+     *
+     * @return The total of heap pushes.
+     */
+    long getHeapPushes();
+
+    /**
+     * Gets the median query latency.
+     *
+     * @return The latency in microseconds.
+     */
+    double getLatencyP50Micros();
+
+    /**
+     * Gets the 99th percentile of the query latency.
+     *
+     * @return The latency in microseconds.
+     */
+    double getLatencyP99Micros();
+
+    /**
+     * Gets the 99.9th percentile of the query latency.
+     *
+     * @return The latency in microseconds.
+     */
+    double getLatencyP999Micros();
+
+    /**
+     * Gets the largest query latency.
+     *
+     * @return The latency in microseconds.
+     */
+    double getLatencyMaxMicros();
+
+    /**
+     * Describes the slowest query measured, to find pathological queries.
+     *
+     * @return The airports, latency and search effort of the query, or an empty string.
+     */
+    String getSlowestQuery();
+
+    /**
+     * Forgets everything measured so far.
+     */
+    void reset();
+}
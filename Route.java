@@ -1,13 +1,14 @@
 /**
  * The Route class represents a flight route between two airports.
  * It encapsulates the start and destination airport IDs, distance, travel time, and cost of the route.
+ * Routes are immutable; updating a route replaces it with a new Route object.
  */
 class Route {
-    private int startId;  // Start airport ID
-    private int destinationId;  // Destination airport ID
-    private int distance;  // Distance of the route
-    private int travelTime;  // Travel time in minutes
-    private int cost;  // Cost of the route
+    private final int startId;  // Start airport ID
+    private final int destinationId;  // Destination airport ID
+    private final int distance;  // Distance of the route
+    private final int travelTime;  // Travel time in minutes
+    private final int cost;  // Cost of the route
 
     /**
      * Constructor to initialize a route with start airport ID, destination airport ID, distance, travel time, and cost.
@@ -0,0 +1,458 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RouteCache class remembers the results of recent route queries so repeated lookups of the
+ * same start, destination and criterion are answered without searching. Entries are evicted in
+ * least-recently-used order once their total weight (roughly the number of ints they hold)
+ * exceeds the capacity.
+ *
+ * Every entry belongs to one graph version. When a query arrives with a snapshot of a newer
+ * version, for example after addRoute or updateRoute, cached paths and results are dropped
+ * first, so a stale route is never returned.
+ *
+ * Origins that are queried often get their whole shortest-path tree cached: one full search
+ * from the origin answers every destination afterwards by walking the tree back, in time
+ * proportional to the path length. Trees survive route changes: the cache listens to the
+ * graph, and on the first query of a newer version it repairs each tree with the routes added,
+ * removed and updated in between (see ShortestPathTree). Adding an airport drops the trees.
+ *
+ * Repairs run outside the cache's lock. The query that moves the cache to a newer version
+ * takes the trees out and repairs them on its own thread, while other queries see a cache
+ * without those trees; a repaired tree is put back only if the cache is still at that version
+ * and nobody has cached a tree for its origin meanwhile. Changes are queued under a separate
+ * lock, so the graph notifying a change never waits for a repair or a lookup.
+ */
+final class RouteCache implements GraphListener {
+    static final int TREE_THRESHOLD = 4;  // Path queries from one origin before its whole tree is cached
+    static final int MAX_TRACKED_ORIGINS = 4096;  // Origins whose query counts are tracked at once
+    static final int MAX_PENDING = 1 << 16;  // Changes kept for tree repairs before the trees are dropped
+
+    // Entry kinds, one per criterion, then trees per criterion and bestRoutes results
+    static final int TREE = Criterion.values().length;
+    static final int BEST_ROUTES = 2 * Criterion.values().length;
+
+    private final long capacity;  // Largest total weight of the entries
+    private final LinkedHashMap<Key, Entry> entries;  // Entries from least to most recently used
+    private final Map<Key, Integer> originQueries;  // Path queries per origin and criterion since the last tree
+    private final Object pendingLock;  // Guards the pending changes; taken after this, never before
+    private final List<GraphBatch.Change> pendingChanges;  // Changes not yet applied to the trees, guarded by pendingLock
+    private final List<Long> pendingVersions;  // Graph version of each pending change, guarded by pendingLock
+    private volatile long version;  // Graph version the entries belong to, written under this
+    private long eventVersion;  // Graph version of the last change notified, guarded by pendingLock
+    private long discardedThrough = -1;  // Last graph version whose change was dropped from the queue, guarded by pendingLock
+    private long weight;  // Total weight of the entries
+    private final LongAdder hits;  // Lookups answered from a cached path or result
+    private final LongAdder treeHits;  // Lookups answered from a cached shortest-path tree
+    private final LongAdder misses;  // Lookups that had to search
+    private long evictions;  // Entries dropped to stay within capacity
+    private long invalidations;  // Times the cache was dropped because the graph changed
+    private long repairs;  // Trees repaired instead of dropped
+
+    /**
+     * Constructor to create an empty cache for a graph.
+     *
+     * @param capacity The largest total weight of the entries.
+     * @param version  The current version of the graph.
+     */
+    RouteCache(long capacity, long version) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.originQueries = new HashMap<>();
+        this.pendingLock = new Object();
+        this.pendingChanges = new ArrayList<>();
+        this.pendingVersions = new ArrayList<>();
+        this.version = version;
+        this.eventVersion = version;
+        this.hits = new LongAdder();
+        this.treeHits = new LongAdder();
+        this.misses = new LongAdder();
+    }
+
+    @Override
+    public void airportAdded(Airport airport) {
+        pend(new GraphBatch.Change(GraphBatch.ADD_AIRPORT, airport, null));
+    }
+
+    @Override
+    public void routeAdded(Route route) {
+        pend(new GraphBatch.Change(GraphBatch.ADD_ROUTE, null, route));
+    }
+
+    @Override
+    public void routeRemoved(Route route) {
+        pend(new GraphBatch.Change(GraphBatch.REMOVE_ROUTE, null, route));
+    }
+
+    /**
+     * Looks up a cached value. Brings the cache up to date first if the graph has changed.
+     *
+     * @param current     The snapshot being queried.
+     * @param kind        The entry kind: a criterion ordinal, TREE plus a criterion ordinal, or BEST_ROUTES.
+     * @param start       The start airport ID.
+     * @param destination The destination airport ID, or 0 for trees.
+     * @return The cached value, or null if there is none.
+     */
+    Object get(GraphSnapshot current, int kind, int start, int destination) {
+        validate(current);
+        synchronized (this) {
+            if (current.version() != version) {
+                return null;  // An older snapshot, or the graph changed again meanwhile
+            }
+            Entry entry = entries.get(new Key(kind, start, destination));
+            return entry == null ? null : entry.value;
+        }
+    }
+
+    /**
+     * Stores a value, evicting the least recently used entries if the cache grows too large.
+     * Values computed on a snapshot other than the cache's version are not stored.
+     *
+     * @param current     The snapshot the value was computed on.
+     * @param kind        The entry kind.
+     * @param start       The start airport ID.
+     * @param destination The destination airport ID, or 0 for trees.
+     * @param value       The value to store; it must not be changed afterwards.
+     * @param weight      The weight of the value.
+     */
+    void put(GraphSnapshot current, int kind, int start, int destination, Object value, long weight) {
+        validate(current);
+        synchronized (this) {
+            if (current.version() != version || weight > capacity) {
+                return;
+            }
+            if (value instanceof ShortestPathTree && current.version() < discardedThrough()) {
+                return;  // Later changes to the tree's snapshot were dropped, it could not be repaired
+            }
+            store(new Key(kind, start, destination), new Entry(value, weight));
+        }
+    }
+
+    /**
+     * Counts a path query from an origin and tells whether the origin has become hot enough
+     * to cache its whole shortest-path tree.
+     *
+     * @param current   The snapshot being queried.
+     * @param criterion The criterion of the query.
+     * @param start     The start airport ID.
+     * @return true if the caller should compute and store the tree.
+     */
+    boolean countOrigin(GraphSnapshot current, Criterion criterion, int start) {
+        validate(current);
+        synchronized (this) {
+            if (current.version() != version) {
+                return false;
+            }
+            if (originQueries.size() >= MAX_TRACKED_ORIGINS) {
+                originQueries.clear();  // Forget cold origins rather than growing without bound
+            }
+            Key key = new Key(TREE + criterion.ordinal(), start, 0);
+            int count = originQueries.merge(key, 1, Integer::sum);
+            if (count < TREE_THRESHOLD) {
+                return false;
+            }
+            originQueries.remove(key);
+            return true;
+        }
+    }
+
+    /**
+     * Records how a lookup was answered.
+     *
+     * @param hit  Whether a cached path or result answered it.
+     * @param tree Whether a cached tree answered it.
+     */
+    void record(boolean hit, boolean tree) {
+        if (hit) {
+            hits.increment();
+        } else if (tree) {
+            treeHits.increment();
+        } else {
+            misses.increment();
+        }
+    }
+
+    /**
+     * Drops every entry.
+     */
+    synchronized void clear() {
+        entries.clear();
+        originQueries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Gets the number of lookups answered from a cached path or result.
+     *
+     * @return The hit count.
+     */
+    long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups answered from a cached shortest-path tree.
+     *
+     * @return The tree hit count.
+     */
+    long getTreeHits() {
+        return treeHits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that had to search.
+     *
+     * @return The miss count.
+     */
+    long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of entries evicted to stay within capacity.
+     *
+     * @return The eviction count.
+     */
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Gets the number of times the cache was dropped because the graph changed.
+     *
+     * @return The invalidation count.
+     */
+    synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Gets the number of trees repaired after route changes instead of being dropped.
+     *
+     * @return The repair count.
+     */
+    synchronized long getRepairs() {
+        return repairs;
+    }
+
+    /**
+     * Gets the number of cached entries.
+     *
+     * @return The entry count.
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the total weight of the cached entries.
+     *
+     * @return The weight.
+     */
+    synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Moves the cache to a newer graph version. Cached paths and results are dropped; trees are
+     * taken out and repaired with the changes the snapshot includes, without holding the lock,
+     * or dropped if an airport was added. Changes made after the snapshot was taken stay
+     * pending. Does nothing for a snapshot that is not newer than the cache.
+     *
+     * @param current The snapshot being queried.
+     */
+    private void validate(GraphSnapshot current) {
+        if (current.version() <= version) {
+            return;
+        }
+        List<Route> removed = new ArrayList<>();
+        List<Route> added = new ArrayList<>();
+        List<Key> treeKeys = new ArrayList<>();
+        List<Entry> trees = new ArrayList<>();
+        synchronized (this) {
+            if (current.version() <= version) {
+                return;  // Another query moved the cache first
+            }
+            boolean treesStale = takeChanges(current.version(), removed, added);
+            if (!entries.isEmpty()) {
+                invalidations++;
+            }
+            for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+                if (!treesStale && entry.getValue().value instanceof ShortestPathTree) {
+                    treeKeys.add(entry.getKey());
+                    trees.add(entry.getValue());
+                }
+            }
+            entries.clear();
+            weight = 0;
+            version = current.version();
+        }
+
+        for (int i = 0; i < trees.size(); i++) {
+            Entry tree = trees.get(i);
+            trees.set(i, new Entry(((ShortestPathTree) tree.value).repair(current, removed, added), tree.weight));
+        }
+
+        synchronized (this) {
+            if (version != current.version()) {
+                return;  // The graph changed again meanwhile; these trees missed those changes
+            }
+            for (int i = 0; i < trees.size(); i++) {
+                if (!entries.containsKey(treeKeys.get(i))) {
+                    store(treeKeys.get(i), trees.get(i));
+                    repairs++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the pending changes a snapshot includes off the queue.
+     *
+     * @param through The version of the snapshot.
+     * @param removed Receives the routes removed, with their old values.
+     * @param added   Receives the routes added.
+     * @return true if the trees cannot be repaired, because an airport was added or changes were dropped.
+     */
+    private boolean takeChanges(long through, List<Route> removed, List<Route> added) {
+        synchronized (pendingLock) {
+            boolean treesStale = version < discardedThrough;  // Changes the trees need were dropped
+            int included = 0;
+            while (included < pendingVersions.size() && pendingVersions.get(included) <= through) {
+                GraphBatch.Change change = pendingChanges.get(included++);
+                if (change.kind == GraphBatch.ADD_AIRPORT) {
+                    treesStale = true;
+                } else {
+                    (change.kind == GraphBatch.REMOVE_ROUTE ? removed : added).add(change.route);
+                }
+            }
+            pendingChanges.subList(0, included).clear();
+            pendingVersions.subList(0, included).clear();
+            return treesStale;
+        }
+    }
+
+    /**
+     * Gets the last graph version whose change was dropped from the queue.
+     *
+     * @return The version, or -1 if no change was ever dropped.
+     */
+    private long discardedThrough() {
+        synchronized (pendingLock) {
+            return discardedThrough;
+        }
+    }
+
+    /**
+     * Adds an entry and evicts the least recently used entries while the cache is too large.
+     * The caller holds the lock.
+     *
+     * @param key   The key of the entry.
+     * @param entry The entry to add or replace.
+     */
+    private void store(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entry.weight;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > capacity && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Queues a change for the next tree repair.
+     *
+     * @param change The change to queue.
+     */
+    private void pend(GraphBatch.Change change) {
+        synchronized (pendingLock) {
+            eventVersion++;
+            if (pendingChanges.size() >= MAX_PENDING) {
+                discardedThrough = eventVersion - 1;  // Too many changes to replay, recomputing is cheaper
+                pendingChanges.clear();
+                pendingVersions.clear();
+            }
+            pendingChanges.add(change);
+            pendingVersions.add(eventVersion);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RouteCache{" +
+                "entries=" + entries.size() +
+                ", weight=" + weight + "/" + capacity +
+                ", hits=" + hits.sum() +
+                ", treeHits=" + treeHits.sum() +
+                ", misses=" + misses.sum() +
+                ", evictions=" + evictions +
+                ", invalidations=" + invalidations +
+                ", repairs=" + repairs +
+                '}';
+    }
+
+    /**
+     * Identifies a cached value by its kind, start and destination.
+     */
+    private static final class Key {
+        private final int kind;  // Entry kind
+        private final int start;  // Start airport ID
+        private final int destination;  // Destination airport ID, 0 for trees
+
+        /**
+         * Constructor to create a key.
+         *
+         * @param kind        The entry kind.
+         * @param start       The start airport ID.
+         * @param destination The destination airport ID.
+         */
+        Key(int kind, int start, int destination) {
+            this.kind = kind;
+            this.start = start;
+            this.destination = destination;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return kind == key.kind && start == key.start && destination == key.destination;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, start, destination);
+        }
+    }
+
+    /**
+     * A cached value and its weight.
+     */
+    private static final class Entry {
+        private final Object value;  // Cached path, tree or result
+        private final long weight;  // Weight counted against the capacity
+
+        /**
+         * Constructor to create an entry.
+         *
+         * @param value  The cached value.
+         * @param weight The weight of the value.
+         */
+        Entry(Object value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
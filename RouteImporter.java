@@ -0,0 +1,600 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The RouteImporter class streams airport and route files into a packed graph without creating
+ * a String, Airport or Route object per line. Files are read through a fixed-size NIO buffer,
+ * fields are located in place, and numbers are parsed straight from the bytes. Routes are
+ * collected in primitive columns and sorted into a GraphSnapshot at the end, so memory grows
+ * with the packed size of the network only.
+ *
+ * Airport codes (IATA, ICAO or any other code of at most 8 ASCII characters) are packed into a
+ * long and mapped to dense int IDs 0, 1, 2, ... in the order they are first seen.
+ *
+ * Two route formats are accepted, line by line:
+ * OpenFlights routes.dat  airline, airline ID, source code, source ID, destination code, destination ID,
+ *                         codeshare, stops, equipment. Distance, travel time and cost are estimated
+ *                         from the great-circle distance, so both airports need a location.
+ * Plain CSV               start code, destination code, distance, travel time, cost.
+ * Airports are read from OpenFlights airports.dat (ID, name, city, country, IATA, ICAO, latitude,
+ * longitude, ...). Lines that do not parse, such as headers, are counted and skipped.
+ */
+final class RouteImporter {
+    static final int BUFFER_BYTES = 1 << 20;  // Read buffer size; also the longest line accepted
+    static final int MAX_FIELDS = 16;  // Fields beyond this are ignored
+    static final double CRUISE_KMH = 800;  // Cruise speed used to estimate travel time
+    static final int TAXI_MINUTES = 30;  // Fixed time added to every estimated flight
+    static final int BASE_FARE = 50;  // Fixed part of an estimated fare
+    static final double FARE_PER_KM = 0.12;  // Distance part of an estimated fare
+
+    private final LongIntHashMap airportIds;  // Packed code -> dense airport ID
+    private long[] codes;  // Packed main code of each airport
+    private double[] latitudes;  // Latitude of each airport, NaN when unknown
+    private double[] longitudes;  // Longitude of each airport, NaN when unknown
+    private int airportCount;
+
+    private int[] starts;  // Start airport of each route
+    private int[] destinations;  // Destination airport of each route
+    private int[] distances;  // Distance of each route
+    private int[] travelTimes;  // Travel time of each route
+    private int[] costs;  // Cost of each route
+    private int routeCount;
+
+    private final ByteBuffer buffer;  // Read buffer, backed by an array for direct access
+    private final int[] fieldStarts;  // Start offset of each field of the current line
+    private final int[] fieldEnds;  // End offset (exclusive) of each field of the current line
+    private long bytesRead;  // Bytes read from all files so far
+    private long linesRead;  // Lines read from all files so far
+    private long skippedLines;  // Lines that did not parse or referenced unknown airports
+    private long elapsedNanos;  // Time spent reading and parsing
+
+    /**
+     * Constructor to create an importer with no airports or routes.
+     */
+    RouteImporter() {
+        airportIds = new LongIntHashMap(1024);
+        codes = new long[1024];
+        latitudes = new double[1024];
+        longitudes = new double[1024];
+        starts = new int[4096];
+        destinations = new int[4096];
+        distances = new int[4096];
+        travelTimes = new int[4096];
+        costs = new int[4096];
+        buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        fieldStarts = new int[MAX_FIELDS];
+        fieldEnds = new int[MAX_FIELDS];
+    }
+
+    /**
+     * Reads an OpenFlights airports file. Each airport gets one dense ID, reachable through both
+     * its IATA and its ICAO code.
+     *
+     * @param file The airports file.
+     * @throws IOException If the file cannot be read.
+     */
+    void readAirports(Path file) throws IOException {
+        read(file, true);
+    }
+
+    /**
+     * Reads a routes file in OpenFlights or plain CSV format.
+     *
+     * @param file The routes file.
+     * @throws IOException If the file cannot be read.
+     */
+    void readRoutes(Path file) throws IOException {
+        read(file, false);
+    }
+
+    /**
+     * Packs the imported airports and routes into a snapshot. Airports are numbered in the
+     * order they were first seen.
+     *
+     * @return A snapshot of the imported network.
+     */
+    GraphSnapshot toSnapshot() {
+        int n = airportCount;
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+        }
+
+        // Counting sort of the route columns by start airport
+        int[] offsets = new int[n + 1];
+        for (int route = 0; route < routeCount; route++) {
+            offsets[starts[route] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] targets = new int[routeCount];
+        int[] sortedDistances = new int[routeCount];
+        int[] sortedTimes = new int[routeCount];
+        int[] sortedCosts = new int[routeCount];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int route = 0; route < routeCount; route++) {
+            int slot = next[starts[route]]++;
+            targets[slot] = destinations[route];
+            sortedDistances[slot] = distances[route];
+            sortedTimes[slot] = travelTimes[route];
+            sortedCosts[slot] = costs[route];
+        }
+        return new GraphSnapshot(ids, offsets, targets, sortedDistances, sortedTimes, sortedCosts,
+                Arrays.copyOf(latitudes, n), Arrays.copyOf(longitudes, n), 0);
+    }
+
+    /**
+     * Packs the imported network into a graph. The graph creates Airport and Route objects only
+     * if it is changed or listed.
+     *
+     * @return A graph holding the imported network.
+     */
+    Graph toGraph() {
+        return new Graph(toSnapshot());
+    }
+
+    /**
+     * Gets the dense ID of an airport code.
+     *
+     * @param code The airport code.
+     * @return The airport ID, or -1 if the code is unknown.
+     */
+    int airportId(String code) {
+        byte[] bytes = code.getBytes(StandardCharsets.US_ASCII);
+        long packed = pack(bytes, 0, bytes.length);
+        return packed == 0 ? -1 : airportIds.get(packed);
+    }
+
+    /**
+     * Gets the main code of an airport: its IATA code if it has one, else the code it was
+     * first seen with.
+     *
+     * @param id The dense airport ID.
+     * @return The airport code.
+     */
+    String airportCode(int id) {
+        long packed = codes[id];
+        byte[] bytes = new byte[8];
+        int length = 0;
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            byte b = (byte) (packed >>> shift);
+            if (b != 0) {
+                bytes[length++] = b;
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Gets the number of airports imported.
+     *
+     * @return The number of airports.
+     */
+    int getAirportCount() {
+        return airportCount;
+    }
+
+    /**
+     * Gets the number of routes imported.
+     *
+     * @return The number of routes.
+     */
+    int getRouteCount() {
+        return routeCount;
+    }
+
+    /**
+     * Gets the number of lines skipped because they did not parse or referenced unknown airports.
+     *
+     * @return The number of skipped lines.
+     */
+    long getSkippedLines() {
+        return skippedLines;
+    }
+
+    /**
+     * Gets the number of bytes read from all files.
+     *
+     * @return The number of bytes read.
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Gets the parse throughput over all files read so far.
+     *
+     * @return The throughput in megabytes (10^6 bytes) per second.
+     */
+    double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesRead * 1000.0 / elapsedNanos;
+    }
+
+    /**
+     * Reads a file chunk by chunk and hands every complete line to the line parser. A line
+     * cut off at the end of the buffer is moved to the front and completed by the next read.
+     *
+     * @param file     The file to read.
+     * @param airports Whether the file holds airports rather than routes.
+     * @throws IOException If the file cannot be read or has a line longer than the buffer.
+     */
+    private void read(Path file, boolean airports) throws IOException {
+        long started = System.nanoTime();
+        byte[] data = buffer.array();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                int count = channel.read(buffer);
+                if (count < 0) {
+                    endOfFile = true;
+                } else {
+                    bytesRead += count;
+                }
+                int limit = buffer.position();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (data[i] == '\n') {
+                        parseLine(data, lineStart, i, airports);
+                        lineStart = i + 1;
+                    }
+                }
+                if (endOfFile && lineStart < limit) {
+                    parseLine(data, lineStart, limit, airports);  // Last line without a newline
+                    lineStart = limit;
+                }
+                if (lineStart == 0 && limit == data.length) {
+                    throw new IOException("Line longer than " + BUFFER_BYTES + " bytes in " + file);
+                }
+                System.arraycopy(data, lineStart, data, 0, limit - lineStart);
+                buffer.position(limit - lineStart);
+            }
+        } finally {
+            elapsedNanos += System.nanoTime() - started;
+        }
+    }
+
+    /**
+     * Parses one line of an airports or routes file.
+     *
+     * @param data     The buffer holding the line.
+     * @param start    The first byte of the line.
+     * @param end      The end of the line (exclusive), without the newline.
+     * @param airports Whether the line is an airport rather than a route.
+     */
+    private void parseLine(byte[] data, int start, int end, boolean airports) {
+        linesRead++;
+        if (end > start && data[end - 1] == '\r') {
+            end--;
+        }
+        if (end == start || data[start] == '#') {
+            return;  // Blank line or comment
+        }
+        int fields = splitFields(data, start, end);
+        boolean parsed;
+        if (airports) {
+            parsed = fields >= 8 && parseAirport(data);
+        } else if (fields >= 9) {
+            parsed = parseOpenFlightsRoute(data);
+        } else {
+            parsed = fields == 5 && parseCsvRoute(data);
+        }
+        if (!parsed) {
+            skippedLines++;
+        }
+    }
+
+    /**
+     * Parses an OpenFlights airport line whose fields have been split.
+     *
+     * @param data The buffer holding the line.
+     * @return true if the airport was added.
+     */
+    private boolean parseAirport(byte[] data) {
+        long iata = packField(data, 4);
+        long icao = packField(data, 5);
+        double latitude = parseDouble(data, fieldStarts[6], fieldEnds[6]);
+        double longitude = parseDouble(data, fieldStarts[7], fieldEnds[7]);
+        if ((iata == 0 && icao == 0) || Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return false;
+        }
+        int id = airportIds.get(iata != 0 ? iata : icao);
+        if (id == LongIntHashMap.MISSING) {
+            id = newAirport(iata != 0 ? iata : icao);
+        }
+        latitudes[id] = latitude;
+        longitudes[id] = longitude;
+        if (iata != 0) {
+            airportIds.put(iata, id);
+        }
+        if (icao != 0) {
+            airportIds.put(icao, id);
+        }
+        return true;
+    }
+
+    /**
+     * Parses an OpenFlights route line whose fields have been split. Both airports must be
+     * known with a location; the weights are estimated from the great-circle distance.
+     *
+     * @param data The buffer holding the line.
+     * @return true if the route was added.
+     */
+    private boolean parseOpenFlightsRoute(byte[] data) {
+        long startCode = packField(data, 2);
+        long destinationCode = packField(data, 4);
+        if (startCode == 0 || destinationCode == 0) {
+            return false;
+        }
+        int start = airportIds.get(startCode);
+        int destination = airportIds.get(destinationCode);
+        if (start < 0 || destination < 0 || start == destination) {
+            return false;
+        }
+        double km = Airport.greatCircleDistance(latitudes[start], longitudes[start],
+                latitudes[destination], longitudes[destination]);
+        if (Double.isNaN(km)) {
+            return false;
+        }
+        int distance = (int) Math.round(km);
+        int travelTime = TAXI_MINUTES + (int) Math.round(km * 60 / CRUISE_KMH);
+        int cost = BASE_FARE + (int) Math.round(km * FARE_PER_KM);
+        addRoute(start, destination, distance, travelTime, cost);
+        return true;
+    }
+
+    /**
+     * Parses a plain CSV route line whose fields have been split. Unknown airport codes are
+     * registered as new airports without a location.
+     *
+     * @param data The buffer holding the line.
+     * @return true if the route was added.
+     */
+    private boolean parseCsvRoute(byte[] data) {
+        long startCode = packField(data, 0);
+        long destinationCode = packField(data, 1);
+        int distance = parseInt(data, fieldStarts[2], fieldEnds[2]);
+        int travelTime = parseInt(data, fieldStarts[3], fieldEnds[3]);
+        int cost = parseInt(data, fieldStarts[4], fieldEnds[4]);
+        if (startCode == 0 || destinationCode == 0 || distance < 0 || travelTime < 0 || cost < 0) {
+            return false;
+        }
+        int start = airportIds.get(startCode);
+        if (start == LongIntHashMap.MISSING) {
+            start = newAirport(startCode);
+            airportIds.put(startCode, start);
+        }
+        int destination = airportIds.get(destinationCode);
+        if (destination == LongIntHashMap.MISSING) {
+            destination = newAirport(destinationCode);
+            airportIds.put(destinationCode, destination);
+        }
+        addRoute(start, destination, distance, travelTime, cost);
+        return true;
+    }
+
+    /**
+     * Splits a line into fields at commas. A field in double quotes may contain commas; its
+     * bounds exclude the quotes. Escaped quotes inside a field are kept as they are.
+     *
+     * @param data  The buffer holding the line.
+     * @param start The first byte of the line.
+     * @param end   The end of the line (exclusive).
+     * @return The number of fields found, at most MAX_FIELDS.
+     */
+    private int splitFields(byte[] data, int start, int end) {
+        int count = 0;
+        int i = start;
+        while (count < MAX_FIELDS) {
+            if (i < end && data[i] == '"') {
+                int fieldStart = ++i;
+                while (i < end && !(data[i] == '"' && (i + 1 == end || data[i + 1] != '"'))) {
+                    i += data[i] == '"' ? 2 : 1;  // Skip escaped quotes ("")
+                }
+                fieldStarts[count] = fieldStart;
+                fieldEnds[count] = Math.min(i, end);
+                i++;  // Closing quote
+                while (i < end && data[i] != ',') {
+                    i++;
+                }
+            } else {
+                fieldStarts[count] = i;
+                while (i < end && data[i] != ',') {
+                    i++;
+                }
+                fieldEnds[count] = i;
+            }
+            count++;
+            if (i >= end) break;
+            i++;  // Comma
+        }
+        return count;
+    }
+
+    /**
+     * Packs a field holding an airport code into a long, one byte per character.
+     *
+     * @param data  The buffer holding the line.
+     * @param field The field index.
+     * @return The packed code, or 0 if the field is empty, "\N", too long or not printable.
+     */
+    private long packField(byte[] data, int field) {
+        return pack(data, fieldStarts[field], fieldEnds[field]);
+    }
+
+    /**
+     * Packs up to 8 printable ASCII characters into a long. Distinct codes give distinct values
+     * because no character packs to 0.
+     *
+     * @param data  The bytes to pack.
+     * @param start The first byte.
+     * @param end   The end (exclusive).
+     * @return The packed code, or 0 if the range is empty, "\N", too long or not printable.
+     */
+    private static long pack(byte[] data, int start, int end) {
+        int length = end - start;
+        if (length <= 0 || length > 8 || (length == 2 && data[start] == '\\' && data[start + 1] == 'N')) {
+            return 0;
+        }
+        long packed = 0;
+        for (int i = start; i < end; i++) {
+            byte b = data[i];
+            if (b <= ' ' || b > '~') {
+                return 0;
+            }
+            packed = packed << 8 | b;
+        }
+        return packed;
+    }
+
+    /**
+     * Parses a non-negative decimal integer.
+     *
+     * @param data  The bytes to parse.
+     * @param start The first byte.
+     * @param end   The end (exclusive).
+     * @return The value, or -1 if the range is not a number that fits in an int.
+     */
+    private static int parseInt(byte[] data, int start, int end) {
+        if (start >= end || end - start > 10) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    /**
+     * Parses a decimal number with an optional sign and fraction, such as a coordinate.
+     * Up to 18 significant digits are used, which is exact for coordinates.
+     *
+     * @param data  The bytes to parse.
+     * @param start The first byte.
+     * @param end   The end (exclusive).
+     * @return The value, or NaN if the range is not a number.
+     */
+    private static double parseDouble(byte[] data, int start, int end) {
+        int i = start;
+        boolean negative = i < end && data[i] == '-';
+        if (negative || (i < end && data[i] == '+')) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;  // Number of kept digits after the decimal point
+        boolean point = false;
+        for (; i < end; i++) {
+            byte b = data[i];
+            if (b == '.' && !point) {
+                point = true;
+            } else if (b >= '0' && b <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (point) scale++;
+                } else if (!point) {
+                    scale--;  // Integer digit beyond the precision kept
+                }
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double value = scale >= 0 ? mantissa / Math.pow(10, scale) : mantissa * Math.pow(10, -scale);
+        return negative ? -value : value;
+    }
+
+    /**
+     * Registers a new airport without a location.
+     *
+     * @param code The packed code of the airport.
+     * @return The dense ID of the new airport.
+     */
+    private int newAirport(long code) {
+        if (airportCount == codes.length) {
+            int capacity = airportCount * 2;
+            codes = Arrays.copyOf(codes, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+        }
+        codes[airportCount] = code;
+        latitudes[airportCount] = Double.NaN;
+        longitudes[airportCount] = Double.NaN;
+        return airportCount++;
+    }
+
+    /**
+     * Appends a route to the route columns.
+     *
+     * @param start       The dense ID of the start airport.
+     * @param destination The dense ID of the destination airport.
+     * @param distance    The distance of the route.
+     * @param travelTime  The travel time of the route.
+     * @param cost        The cost of the route.
+     */
+    private void addRoute(int start, int destination, int distance, int travelTime, int cost) {
+        if (routeCount == starts.length) {
+            int capacity = routeCount + (routeCount >> 1);
+            starts = Arrays.copyOf(starts, capacity);
+            destinations = Arrays.copyOf(destinations, capacity);
+            distances = Arrays.copyOf(distances, capacity);
+            travelTimes = Arrays.copyOf(travelTimes, capacity);
+            costs = Arrays.copyOf(costs, capacity);
+        }
+        starts[routeCount] = start;
+        destinations[routeCount] = destination;
+        distances[routeCount] = distance;
+        travelTimes[routeCount] = travelTime;
+        costs[routeCount] = cost;
+        routeCount++;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteImporter{" +
+                "airports=" + airportCount +
+                ", routes=" + routeCount +
+                ", lines=" + linesRead +
+                ", skipped=" + skippedLines +
+                ", MB/s=" + String.format("%.1f", getMegabytesPerSecond()) +
+                '}';
+    }
+
+    /**
+     * Converts airport and route files into a network file and reports the parse throughput.
+     * Usage: RouteImporter [airports.dat] routes.dat network.bin
+     *
+     * @param args The optional airports file, the routes file and the network file to write.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: RouteImporter [airports.dat] routes.dat network.bin");
+            System.exit(2);
+        }
+        RouteImporter importer = new RouteImporter();
+        if (args.length == 3) {
+            importer.readAirports(Paths.get(args[0]));
+        }
+        importer.readRoutes(Paths.get(args[args.length - 2]));
+        NetworkFile.write(importer.toSnapshot(), Paths.get(args[args.length - 1]));
+        System.out.println("Imported " + importer.getAirportCount() + " airports and " + importer.getRouteCount()
+                + " routes (" + importer.getSkippedLines() + " lines skipped) from " + importer.getBytesRead()
+                + " bytes at " + String.format("%.1f", importer.getMegabytesPerSecond()) + " MB/s");
+    }
+}
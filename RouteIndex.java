@@ -0,0 +1,187 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The RouteIndex class finds the direct routes between two airports in constant time. The
+ * airport pair is packed into one long key (start ID in the high half, destination ID in the
+ * low half) and looked up with open addressing and linear probing over primitive arrays, so
+ * keys are never boxed. A slot holds the single Route between its pair, or a Route[] when a
+ * network opened from a file has parallel routes.
+ *
+ * The index is not synchronized; Graph only uses it while holding its lock.
+ */
+final class RouteIndex {
+    private long[] keys;  // Packed airport pair of each slot
+    private Object[] values;  // Route or Route[] of each slot, null when empty
+    private int size;  // Number of airport pairs stored
+    private int mask;  // Slot count minus one; the slot count is a power of two
+
+    /**
+     * Constructor to create an empty index.
+     */
+    RouteIndex() {
+        keys = new long[16];
+        values = new Object[16];
+        mask = 15;
+    }
+
+    /**
+     * Packs an airport pair into a key.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return The key of the pair.
+     */
+    static long key(int startId, int destinationId) {
+        return (long) startId << 32 | (destinationId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Checks whether there is at least one route between two airports.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return true if a direct route exists.
+     */
+    boolean contains(int startId, int destinationId) {
+        return find(key(startId, destinationId)) >= 0;
+    }
+
+    /**
+     * Gets the routes between two airports.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return A read-only list of the direct routes, empty if there are none.
+     */
+    List<Route> get(int startId, int destinationId) {
+        int slot = find(key(startId, destinationId));
+        if (slot < 0) {
+            return Collections.emptyList();
+        }
+        Object value = values[slot];
+        if (value instanceof Route) {
+            return Collections.singletonList((Route) value);
+        }
+        return Collections.unmodifiableList(Arrays.asList((Route[]) value));  // Arrays are replaced, never changed
+    }
+
+    /**
+     * Adds a route to the index, next to any routes already stored for its airport pair.
+     *
+     * @param route The route to add.
+     */
+    void add(Route route) {
+        long key = key(route.getStartId(), route.getDestinationId());
+        int slot = slot(key);
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        Object value = values[slot];
+        if (value == null) {
+            keys[slot] = key;
+            values[slot] = route;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        } else if (value instanceof Route) {
+            values[slot] = new Route[]{(Route) value, route};
+        } else {
+            Route[] parallel = (Route[]) value;
+            Route[] extended = Arrays.copyOf(parallel, parallel.length + 1);
+            extended[parallel.length] = route;
+            values[slot] = extended;
+        }
+    }
+
+    /**
+     * Removes every route between two airports.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return true if the pair had routes.
+     */
+    boolean remove(int startId, int destinationId) {
+        int slot = find(key(startId, destinationId));
+        if (slot < 0) {
+            return false;
+        }
+        values[slot] = null;
+        size--;
+
+        // Shift later entries of the probe run back so lookups never stop at the hole
+        int hole = slot;
+        for (int next = (slot + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                values[next] = null;
+                hole = next;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of airport pairs with at least one route.
+     *
+     * @return The number of pairs.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Finds the slot of a key.
+     *
+     * @param key The packed airport pair.
+     * @return The slot, or -1 if the key is not in the index.
+     */
+    private int find(long key) {
+        for (int slot = slot(key); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Computes the home slot of a key. The multiplication mixes both airport IDs into the
+     * bits that select the slot.
+     *
+     * @param key The key.
+     * @return The first slot to probe.
+     */
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32 ^ h) & mask;
+    }
+
+    /**
+     * Doubles the table and reinserts every pair.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = slot(oldKeys[i]);
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RouteIndex{pairs=" + size + ", capacity=" + keys.length + '}';
+    }
+}
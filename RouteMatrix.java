@@ -0,0 +1,107 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The RouteMatrix class holds the result of a many-to-many route query: the shortest-path
+ * length and path between every source and every target airport for one criterion.
+ * Rows are sources and columns are targets, in the order they were requested.
+ */
+final class RouteMatrix {
+    static final int UNREACHABLE = -1;  // Distance of pairs with no path
+
+    private final int[] sourceIds;  // Airport ID of each row
+    private final int[] targetIds;  // Airport ID of each column
+    private final int[] distances;  // Shortest-path length of each pair, row-major
+    private final int[][] paths;  // Airport IDs along each shortest path, row-major, null if unreachable
+
+    /**
+     * Constructor to wrap computed matrix data. The arrays are used as-is, not copied.
+     *
+     * @param sourceIds The airport ID of each row.
+     * @param targetIds The airport ID of each column.
+     * @param distances The shortest-path length of each pair, row-major.
+     * @param paths     The path of each pair, row-major.
+     */
+    RouteMatrix(int[] sourceIds, int[] targetIds, int[] distances, int[][] paths) {
+        this.sourceIds = sourceIds;
+        this.targetIds = targetIds;
+        this.distances = distances;
+        this.paths = paths;
+    }
+
+    /**
+     * Gets the number of source airports (rows).
+     *
+     * @return The number of rows.
+     */
+    public int getSourceCount() {
+        return sourceIds.length;
+    }
+
+    /**
+     * Gets the number of target airports (columns).
+     *
+     * @return The number of columns.
+     */
+    public int getTargetCount() {
+        return targetIds.length;
+    }
+
+    /**
+     * Gets the airport ID of a row.
+     *
+     * @param row The row index.
+     * @return The source airport ID.
+     */
+    public int getSourceId(int row) {
+        return sourceIds[row];
+    }
+
+    /**
+     * Gets the airport ID of a column.
+     *
+     * @param column The column index.
+     * @return The target airport ID.
+     */
+    public int getTargetId(int column) {
+        return targetIds[column];
+    }
+
+    /**
+     * Gets the shortest-path length between a source and a target.
+     *
+     * @param row    The row index of the source.
+     * @param column The column index of the target.
+     * @return The path length, or UNREACHABLE if there is no path.
+     */
+    public int getDistance(int row, int column) {
+        return distances[row * targetIds.length + column];
+    }
+
+    /**
+     * Gets the shortest path between a source and a target.
+     *
+     * @param row    The row index of the source.
+     * @param column The column index of the target.
+     * @return A list of airport IDs from source to target, empty if there is no path.
+     */
+    public List<Integer> getPath(int row, int column) {
+        int[] path = paths[row * targetIds.length + column];
+        List<Integer> result = new ArrayList<>(path == null ? 0 : path.length);
+        if (path != null) {
+            for (int id : path) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteMatrix{" +
+                "sources=" + Arrays.toString(sourceIds) +
+                ", targets=" + Arrays.toString(targetIds) +
+                '}';
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.List;
+
+/**
+ * The RouteSummary class describes a route found by a search: the airports along it and
+ * its total distance, travel time and cost.
+ */
+class RouteSummary {
+    private final List<Integer> path;  // Airport IDs from start to destination, empty if no route was found
+    private final int totalDistance;  // Sum of the route distances along the path
+    private final int totalTravelTime;  // Sum of the route travel times along the path
+    private final int totalCost;  // Sum of the route costs along the path
+
+    /**
+     * Constructor to initialize a summary with its path and totals.
+     *
+     * @param path            The airport IDs along the route.
+     * @param totalDistance   The total distance of the route.
+     * @param totalTravelTime The total travel time of the route.
+     * @param totalCost       The total cost of the route.
+     */
+    public RouteSummary(List<Integer> path, int totalDistance, int totalTravelTime, int totalCost) {
+        this.path = path;
+        this.totalDistance = totalDistance;
+        this.totalTravelTime = totalTravelTime;
+        this.totalCost = totalCost;
+    }
+
+    /**
+     * Checks whether a route was found.
+     *
+     * @return true if the path is not empty.
+     */
+    public boolean isFound() {
+        return !path.isEmpty();
+    }
+
+    /**
+     * Gets the airports along the route.
+     *
+     * @return The airport IDs from start to destination, empty if no route was found.
+     */
+    public List<Integer> getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the total distance of the route.
+     *
+     * @return The total distance in kilometers.
+     */
+    public int getTotalDistance() {
+        return totalDistance;
+    }
+
+    /**
+     * Gets the total travel time of the route.
+     *
+     * @return The total travel time in minutes.
+     */
+    public int getTotalTravelTime() {
+        return totalTravelTime;
+    }
+
+    /**
+     * Gets the total cost of the route.
+     *
+     * @return The total cost.
+     */
+    public int getTotalCost() {
+        return totalCost;
+    }
+
+    @Override
+    public String toString() {
+        return "RouteSummary{" +
+                "path=" + path +
+                ", totalDistance=" + totalDistance +
+                ", totalTravelTime=" + totalTravelTime +
+                ", totalCost=" + totalCost +
+                '}';
+    }
+}
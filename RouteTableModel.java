@@ -0,0 +1,96 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The RouteTableModel class shows routes in a JTable without copying them into table rows.
+ * Cells are read from the routes when the table paints them, and the table only paints the
+ * rows in view, so a list of a million direct routes costs no more to show than a list of ten.
+ * Routes can be appended in chunks while a search is still running.
+ *
+ * Like every Swing model it must only be used on the event thread.
+ */
+class RouteTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Start", "Destination", "Distance", "Travel Time", "Cost"};
+
+    private final List<Route> routes;  // Rows of the table, in order
+
+    /**
+     * Constructor to create an empty model.
+     */
+    public RouteTableModel() {
+        this.routes = new ArrayList<>();
+    }
+
+    /**
+     * Removes every row.
+     */
+    public void clear() {
+        int count = routes.size();
+        if (count > 0) {
+            routes.clear();
+            fireTableRowsDeleted(0, count - 1);
+        }
+    }
+
+    /**
+     * Appends routes as new rows.
+     *
+     * @param more The routes to append; the list is copied.
+     */
+    public void addRoutes(List<Route> more) {
+        if (more.isEmpty()) {
+            return;
+        }
+        int first = routes.size();
+        routes.addAll(more);
+        fireTableRowsInserted(first, routes.size() - 1);
+    }
+
+    /**
+     * Gets the route shown in a row.
+     *
+     * @param row The row index.
+     * @return The route.
+     */
+    public Route getRoute(int row) {
+        return routes.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return routes.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return Integer.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Route route = routes.get(row);
+        switch (column) {
+            case 0:
+                return route.getStartId();
+            case 1:
+                return route.getDestinationId();
+            case 2:
+                return route.getDistance();
+            case 3:
+                return route.getTravelTime();
+            default:
+                return route.getCost();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RoutingMetrics class measures the route queries of a graph, with one QueryMetrics per
+ * criterion. It is off unless the system property routing.metrics is true or it is turned on
+ * at run time; while off, a query pays for reading one volatile flag. The search loops always
+ * count settled airports, relaxed edges and heap pushes in their reused search context, which
+ * costs an increment each; the counts are only read when a query is measured.
+ *
+ * The metrics can be published as JMX MBeans and printed periodically to a stream.
+ */
+final class RoutingMetrics {
+    static final String JMX_DOMAIN = "AirportRouteSimulation";  // Domain of the MBean names
+
+    private volatile boolean enabled;  // Whether queries are measured
+    private final QueryMetrics[] byCriterion;  // Metrics per criterion, indexed by ordinal
+    private ScheduledExecutorService dumper;  // Prints the metrics periodically, null when not running, guarded by this
+
+    /**
+     * Constructor to create metrics that are initially on or off.
+     *
+     * @param enabled Whether to measure queries from the start.
+     */
+    RoutingMetrics(boolean enabled) {
+        this.enabled = enabled;
+        Criterion[] criteria = Criterion.values();
+        this.byCriterion = new QueryMetrics[criteria.length];
+        for (Criterion criterion : criteria) {
+            byCriterion[criterion.ordinal()] = new QueryMetrics(this, criterion);
+        }
+    }
+
+    /**
+     * Checks whether queries are being measured.
+     *
+     * @return true if metrics are recorded.
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns measuring on or off.
+     *
+     * @param enabled Whether to record metrics.
+     */
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Gets the metrics of one criterion.
+     *
+     * @param criterion The criterion.
+     * @return Its metrics.
+     */
+    QueryMetrics get(Criterion criterion) {
+        return byCriterion[criterion.ordinal()];
+    }
+
+    /**
+     * Forgets everything measured so far.
+     */
+    void reset() {
+        for (QueryMetrics metrics : byCriterion) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Publishes the metrics of every criterion on the platform MBean server, under
+     * AirportRouteSimulation:type=RoutingMetrics,name=<name>,criterion=<criterion>.
+     *
+     * @param name The name that tells this graph's metrics apart from others.
+     * @throws JMException If the MBeans cannot be registered, for example because the name is taken.
+     */
+    void registerMBeans(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (QueryMetrics metrics : byCriterion) {
+            server.registerMBean(metrics, objectName(name, metrics.getCriterion()));
+        }
+    }
+
+    /**
+     * Removes the MBeans published by registerMBeans.
+     *
+     * @param name The name the metrics were published under.
+     * @throws JMException If an MBean cannot be unregistered.
+     */
+    void unregisterMBeans(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (QueryMetrics metrics : byCriterion) {
+            server.unregisterMBean(objectName(name, metrics.getCriterion()));
+        }
+    }
+
+    /**
+     * Builds the JMX name of one criterion's metrics.
+     *
+     * @param name      The name of the graph's metrics.
+     * @param criterion The criterion.
+     * @return The object name.
+     * @throws JMException If the name is malformed.
+     */
+    private static ObjectName objectName(String name, Criterion criterion) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=RoutingMetrics,name=" + ObjectName.quote(name)
+                + ",criterion=" + criterion.name().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Starts printing the metrics of every criterion that has seen queries, one line each, at
+     * a fixed period on a background thread. Replaces a dump that is already running.
+     *
+     * @param periodSeconds The time between dumps.
+     * @param out           The stream to print to.
+     */
+    synchronized void startDump(long periodSeconds, PrintStream out) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "routing-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            for (QueryMetrics metrics : byCriterion) {
+                if (metrics.getQueries() > 0) {
+                    out.println(metrics);
+                }
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic dump, if one is running.
+     */
+    synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("RoutingMetrics{enabled=").append(enabled);
+        for (QueryMetrics metrics : byCriterion) {
+            text.append(", ").append(metrics);
+        }
+        return text.append('}').toString();
+    }
+}
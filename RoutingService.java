@@ -0,0 +1,313 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.JMException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The RoutingService class answers route queries over HTTP without the Swing interface, using
+ * the JDK's built-in server. Queries are handed to a QueryBatcher, so concurrent queries from
+ * the same airport share one search, and answered as JSON:
+ *
+ * GET /route?from=1&to=2&criterion=cost   the shortest route, its path and totals
+ * GET /stats                              query, search and rejection counters
+ *
+ * Request threads never wait for a search: the response is written once the search completes.
+ * At most maxInFlight queries are accepted at a time; beyond that the service answers
+ * 503 with a Retry-After header right away, so an overload shows up as fast rejections the
+ * client can back off from instead of a queue that grows until every request times out.
+ *
+ * Usage: RoutingService [--port 8080] [--network network.bin | --airports 10000 --routes 8]
+ *                       [--threads n] [--max-in-flight 1024] [--max-batch 64] [--metrics seconds]
+ *
+ * With --metrics the query metrics of the graph are turned on, published over JMX and printed
+ * at the given period.
+ */
+final class RoutingService {
+    static final int DEFAULT_MAX_IN_FLIGHT = 1024;  // Queries accepted at once before rejecting
+    static final int DEFAULT_MAX_BATCH = 64;  // Queries answered by one search at most
+
+    private final HttpServer server;  // Accepts connections and parses requests
+    private final ExecutorService exchanges;  // Threads that read requests and write responses
+    private final QueryBatcher batcher;  // Runs the searches
+    private final Semaphore inFlight;  // One permit per query that may be accepted
+    private final int maxInFlight;  // Number of permits
+    private final AtomicLong rejected;  // Queries turned away because too many were in flight
+    private final AtomicLong badRequests;  // Requests with missing or malformed parameters
+
+    /**
+     * Constructor to create a service on a port. The service does not accept requests until
+     * it is started.
+     *
+     * @param graph        The graph to answer queries on.
+     * @param port         The port to listen on, 0 for any free port.
+     * @param threads      The number of search threads.
+     * @param maxInFlight  The most queries accepted at once.
+     * @param maxBatchSize The most queries one search answers; 1 disables batching.
+     * @throws IOException If the port cannot be bound.
+     */
+    RoutingService(Graph graph, int port, int threads, int maxInFlight, int maxBatchSize) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.exchanges = Executors.newFixedThreadPool(Math.max(2, threads), runnable -> {
+            Thread thread = new Thread(runnable, "route-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batcher = new QueryBatcher(graph, threads, maxBatchSize);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.rejected = new AtomicLong();
+        this.badRequests = new AtomicLong();
+        server.setExecutor(exchanges);
+        server.createContext("/route", this::handleRoute);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and shuts the threads down.
+     */
+    void stop() {
+        server.stop(0);
+        batcher.shutdown();
+        exchanges.shutdown();
+    }
+
+    /**
+     * Gets the port the service listens on.
+     *
+     * @return The port.
+     */
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Gets the batcher that runs the searches, for its counters.
+     *
+     * @return The batcher.
+     */
+    QueryBatcher getBatcher() {
+        return batcher;
+    }
+
+    /**
+     * Gets the number of queries rejected because too many were in flight.
+     *
+     * @return The number of rejected queries.
+     */
+    long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Answers a route query. Returns as soon as the query is queued; the response is written
+     * when its search completes.
+     *
+     * @param exchange The request and response.
+     * @throws IOException If an error response cannot be written.
+     */
+    private void handleRoute(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "{\"error\":\"use GET\"}");
+            return;
+        }
+        Map<String, String> params = queryParameters(exchange.getRequestURI());
+        String criterion = params.getOrDefault("criterion", "cost");
+        int startId;
+        int destinationId;
+        try {
+            startId = Integer.parseInt(params.get("from"));
+            destinationId = Integer.parseInt(params.get("to"));
+        } catch (NumberFormatException e) {
+            badRequests.incrementAndGet();
+            respond(exchange, 400, "{\"error\":\"from and to must be airport IDs\"}");
+            return;
+        }
+        if (!criterion.equals("cost") && !criterion.equals("distance") && !criterion.equals("time")) {
+            badRequests.incrementAndGet();
+            respond(exchange, 400, "{\"error\":\"criterion must be cost, distance or time\"}");
+            return;
+        }
+        if (!inFlight.tryAcquire()) {
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, "{\"error\":\"too many queries in flight\"}");
+            return;
+        }
+
+        batcher.submit(startId, destinationId, criterion).whenCompleteAsync((route, failure) -> {
+            inFlight.release();
+            try {
+                if (failure != null) {
+                    respond(exchange, 500, "{\"error\":\"search failed\"}");
+                } else {
+                    respond(exchange, 200, toJson(startId, destinationId, criterion, route));
+                }
+            } catch (IOException e) {
+                exchange.close();  // The client went away
+            }
+        }, exchanges);
+    }
+
+    /**
+     * Answers a request for the service counters.
+     *
+     * @param exchange The request and response.
+     * @throws IOException If the response cannot be written.
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "{\"queries\":" + batcher.getQueryCount() +
+                ",\"searches\":" + batcher.getSearchCount() +
+                ",\"averageBatchSize\":" + String.format(Locale.ROOT, "%.2f", batcher.getAverageBatchSize()) +
+                ",\"failures\":" + batcher.getFailureCount() +
+                ",\"inFlight\":" + (maxInFlight - inFlight.availablePermits()) +
+                ",\"rejected\":" + rejected.get() +
+                ",\"badRequests\":" + badRequests.get() + "}");
+    }
+
+    /**
+     * Writes a JSON response and closes the exchange.
+     *
+     * @param exchange The exchange to answer.
+     * @param status   The HTTP status code.
+     * @param json     The response body.
+     * @throws IOException If the response cannot be written.
+     */
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Splits the query string of a request into its parameters. Airport IDs and criteria need
+     * no URL decoding.
+     *
+     * @param uri The request URI.
+     * @return The parameters by name.
+     */
+    private static Map<String, String> queryParameters(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                params.put(pair.substring(0, equals), pair.substring(equals + 1));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Converts a route into the JSON body of a route response.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion the route was found for.
+     * @param route         The route.
+     * @return The JSON text.
+     */
+    private static String toJson(int startId, int destinationId, String criterion, RouteSummary route) {
+        StringBuilder json = new StringBuilder(64 + 8 * route.getPath().size());
+        json.append("{\"from\":").append(startId)
+                .append(",\"to\":").append(destinationId)
+                .append(",\"criterion\":\"").append(criterion)
+                .append("\",\"found\":").append(route.isFound())
+                .append(",\"path\":[");
+        List<Integer> path = route.getPath();
+        for (int i = 0; i < path.size(); i++) {
+            json.append(i == 0 ? "" : ",").append(path.get(i));
+        }
+        return json.append("],\"distance\":").append(route.getTotalDistance())
+                .append(",\"travelTime\":").append(route.getTotalTravelTime())
+                .append(",\"cost\":").append(route.getTotalCost())
+                .append('}').toString();
+    }
+
+    /**
+     * Starts the service on a network file or a generated network and runs until stopped.
+     *
+     * @param args The options, see the class comment.
+     * @throws IOException  If the network cannot be read or the port cannot be bound.
+     * @throws JMException  If the metrics cannot be published over JMX.
+     */
+    public static void main(String[] args) throws IOException, JMException {
+        int port = 8080;
+        String network = null;
+        int airports = 10_000;
+        int averageRoutes = 8;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+        int maxBatch = DEFAULT_MAX_BATCH;
+        int metricsPeriod = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--network":
+                    network = args[++i];
+                    break;
+                case "--airports":
+                    airports = Integer.parseInt(args[++i]);
+                    break;
+                case "--routes":
+                    averageRoutes = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-in-flight":
+                    maxInFlight = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-batch":
+                    maxBatch = Integer.parseInt(args[++i]);
+                    break;
+                case "--metrics":
+                    metricsPeriod = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Graph graph = network != null ? NetworkFile.load(Paths.get(network))
+                : new NetworkGenerator(airports, averageRoutes, 42).generateGraph();
+        if (metricsPeriod > 0) {
+            graph.getMetrics().setEnabled(true);
+            graph.getMetrics().registerMBeans("RoutingService");
+            graph.getMetrics().startDump(metricsPeriod, System.out);
+        }
+        RoutingService service = new RoutingService(graph, port, threads, maxInFlight, maxBatch);
+        service.start();
+        System.out.println("Routing service listening on port " + service.getPort() + " with " + threads
+                + " search threads");
+    }
+}
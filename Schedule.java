@@ -0,0 +1,152 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Schedule class collects the scheduled departures of the routes of a Graph and the minimum
+ * connection time of its airports, and compiles them into a Timetable for time-dependent
+ * queries. Times are in minutes; a daily schedule uses 0 to 1439 and can be repeated over
+ * several days when compiled, so overnight journeys are found.
+ *
+ * A flight takes the travel time of its route unless an explicit arrival time is given.
+ */
+final class Schedule {
+    static final int DEFAULT_CONNECTION_MINUTES = 45;  // Minimum connection time of airports without their own
+    static final int MINUTES_PER_DAY = 1440;
+
+    private final Graph graph;  // Graph whose routes the flights serve
+    private final Map<Integer, Integer> connectionTimes;  // Minimum connection time by airport ID
+    private int[] flights;  // Start ID, destination ID, departure and arrival of each flight
+    private int flightCount;
+
+    /**
+     * Constructor to start an empty schedule for a graph.
+     *
+     * @param graph The graph whose routes are scheduled.
+     */
+    Schedule(Graph graph) {
+        this.graph = graph;
+        this.connectionTimes = new HashMap<>();
+        this.flights = new int[4 * 64];
+    }
+
+    /**
+     * Adds a flight on an existing route. Its arrival is the departure plus the route's travel
+     * time; with parallel routes the fastest one is used.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param departure     The departure time in minutes.
+     * @return This schedule.
+     * @throws IllegalArgumentException If there is no route between the airports.
+     */
+    public Schedule addFlight(int startId, int destinationId, int departure) {
+        List<Route> routes = graph.getDirectRoutes(startId, destinationId);
+        if (routes.isEmpty()) {
+            throw new IllegalArgumentException("No route from " + startId + " to " + destinationId);
+        }
+        int travelTime = Integer.MAX_VALUE;
+        for (Route route : routes) {
+            travelTime = Math.min(travelTime, route.getTravelTime());
+        }
+        return addFlight(startId, destinationId, departure, departure + travelTime);
+    }
+
+    /**
+     * Adds a flight with explicit departure and arrival times.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param departure     The departure time in minutes.
+     * @param arrival       The arrival time in minutes, not before the departure.
+     * @return This schedule.
+     */
+    public Schedule addFlight(int startId, int destinationId, int departure, int arrival) {
+        if (departure < 0 || arrival < departure) {
+            throw new IllegalArgumentException("Invalid flight times " + departure + " - " + arrival);
+        }
+        if (4 * flightCount == flights.length) {
+            flights = Arrays.copyOf(flights, flights.length * 2);
+        }
+        int at = 4 * flightCount++;
+        flights[at] = startId;
+        flights[at + 1] = destinationId;
+        flights[at + 2] = departure;
+        flights[at + 3] = arrival;
+        return this;
+    }
+
+    /**
+     * Sets the minimum time needed to change flights at an airport.
+     *
+     * @param airportId The ID of the airport.
+     * @param minutes   The minimum connection time in minutes, not negative.
+     * @return This schedule.
+     */
+    public Schedule setConnectionTime(int airportId, int minutes) {
+        if (minutes < 0) {
+            throw new IllegalArgumentException("Invalid connection time " + minutes);
+        }
+        connectionTimes.put(airportId, minutes);
+        return this;
+    }
+
+    /**
+     * Gets the number of flights added.
+     *
+     * @return The number of flights.
+     */
+    public int size() {
+        return flightCount;
+    }
+
+    /**
+     * Compiles the schedule for one pass of its flights.
+     *
+     * @return A timetable of the flights.
+     */
+    Timetable compile() {
+        return compile(1);
+    }
+
+    /**
+     * Compiles the schedule, repeating every flight once per day. Flights to or from airports
+     * not in the graph are left out.
+     *
+     * @param days The number of days to cover, at least 1.
+     * @return A timetable of the flights.
+     */
+    Timetable compile(int days) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        int[] connectionMinutes = new int[snapshot.nodeCount()];
+        for (int node = 0; node < connectionMinutes.length; node++) {
+            connectionMinutes[node] = connectionTimes.getOrDefault(snapshot.airportId(node), DEFAULT_CONNECTION_MINUTES);
+        }
+
+        int[] connections = new int[4 * flightCount * days];
+        int count = 0;
+        for (int day = 0; day < days; day++) {
+            int offset = day * MINUTES_PER_DAY;
+            for (int flight = 0; flight < flightCount; flight++) {
+                int from = snapshot.indexOf(flights[4 * flight]);
+                int to = snapshot.indexOf(flights[4 * flight + 1]);
+                if (from < 0 || to < 0) continue;
+                connections[4 * count] = from;
+                connections[4 * count + 1] = to;
+                connections[4 * count + 2] = flights[4 * flight + 2] + offset;
+                connections[4 * count + 3] = flights[4 * flight + 3] + offset;
+                count++;
+            }
+        }
+        return new Timetable(snapshot, Arrays.copyOf(connections, 4 * count), connectionMinutes);
+    }
+
+    @Override
+    public String toString() {
+        return "Schedule{" +
+                "flights=" + flightCount +
+                ", connectionTimes=" + connectionTimes.size() +
+                '}';
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+/**
+ * The SearchContext class holds the working state of one shortest-path search: tentative
+ * distances, predecessors and the priority queue. A context is reused across queries on the
+ * same thread. Instead of clearing the arrays before each query, every entry is tagged with
+ * the generation that wrote it, so starting a new query is O(1) and allocates nothing.
+ */
+final class SearchContext {
+    static final int INFINITY = Integer.MAX_VALUE;  // Distance of airports not reached yet
+
+    private int[] dist;  // Tentative distance per airport index
+    private int[] prev;  // Predecessor airport index per airport index
+    private int[] bounds;  // Lower bound to the destination per airport index, for goal-directed searches
+    private int[] stamps;  // Generation that last wrote dist/prev of each airport index
+    private int generation;  // Generation of the current query
+    private int relaxations;  // Distances lowered in the current query
+    private final IndexedMinHeap heap;  // Queue of reached but unsettled airports
+
+    /**
+     * Constructor to create an empty context. Arrays are sized on the first reset.
+     */
+    SearchContext() {
+        dist = new int[0];
+        prev = new int[0];
+        bounds = new int[0];
+        stamps = new int[0];
+        heap = new IndexedMinHeap(0);
+    }
+
+    /**
+     * Prepares the context for a new query over a graph with the given number of airports.
+     *
+     * @param nodeCount The number of airports in the graph being searched.
+     */
+    void reset(int nodeCount) {
+        if (nodeCount > stamps.length) {
+            dist = new int[nodeCount];
+            prev = new int[nodeCount];
+            bounds = new int[nodeCount];
+            stamps = new int[nodeCount];
+            generation = 0;
+        }
+        heap.ensureCapacity(nodeCount);
+        heap.clear();
+        relaxations = 0;
+        if (++generation == 0) {
+            // Generation counter wrapped around, old stamps could collide with new ones
+            Arrays.fill(stamps, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Gets the tentative distance of an airport in the current query.
+     *
+     * @param node The airport index.
+     * @return The distance, or INFINITY if the airport has not been reached.
+     */
+    int dist(int node) {
+        return stamps[node] == generation ? dist[node] : INFINITY;
+    }
+
+    /**
+     * Gets the predecessor of an airport in the current query.
+     *
+     * @param node The airport index.
+     * @return The predecessor index, or -1 if there is none.
+     */
+    int prev(int node) {
+        return stamps[node] == generation ? prev[node] : -1;
+    }
+
+    /**
+     * Records a new tentative distance and predecessor for an airport and queues it.
+     *
+     * @param node     The airport index.
+     * @param distance The new distance.
+     * @param previous The predecessor index, -1 for the start airport.
+     */
+    void relax(int node, int distance, int previous) {
+        relax(node, distance, previous, distance);
+    }
+
+    /**
+     * Records a new tentative distance and predecessor for an airport and queues it with a
+     * priority other than its distance, as goal-directed searches do.
+     *
+     * @param node     The airport index.
+     * @param distance The new distance.
+     * @param previous The predecessor index, -1 for the start airport.
+     * @param priority The key to queue the airport with.
+     */
+    void relax(int node, int distance, int previous, int priority) {
+        stamps[node] = generation;
+        dist[node] = distance;
+        prev[node] = previous;
+        relaxations++;
+        heap.insertOrDecrease(node, priority);
+    }
+
+    /**
+     * Records a new tentative distance and predecessor for an airport and queues it by distance
+     * plus a lower bound on the weight still to go, as goal-directed searches do. The bound is
+     * kept with the airport, so it is computed once per airport and query however often the
+     * airport's distance drops.
+     *
+     * @param node     The airport index.
+     * @param distance The new distance.
+     * @param previous The predecessor index, -1 for the start airport.
+     * @param bound    The lower bound from the airport to the destination.
+     */
+    void relaxTowards(int node, int distance, int previous, int bound) {
+        bounds[node] = bound;
+        relax(node, distance, previous, distance + bound);
+    }
+
+    /**
+     * Gets the lower bound recorded by relaxTowards for an airport in the current query.
+     *
+     * @param node The airport index.
+     * @return The bound, or -1 if the airport has not been reached yet.
+     */
+    int bound(int node) {
+        return stamps[node] == generation ? bounds[node] : -1;
+    }
+
+    /**
+     * Gets the number of times relax lowered a distance in the current query.
+     *
+     * @return The number of relaxed edges, including the start airport.
+     */
+    int relaxedCount() {
+        return relaxations;
+    }
+
+    /**
+     * Counts distances lowered outside relax, by searches that keep their own distance arrays
+     * but use this context's heap, so their effort is measured like any other search.
+     *
+     * @param count The number of distances lowered.
+     */
+    void countRelaxations(int count) {
+        relaxations += count;
+    }
+
+    /**
+     * Records a distance and predecessor for an airport without queueing it, for scans that
+     * do not use the priority queue.
+     *
+     * @param node     The airport index.
+     * @param distance The new distance.
+     * @param previous The predecessor, -1 for none.
+     */
+    void set(int node, int distance, int previous) {
+        stamps[node] = generation;
+        dist[node] = distance;
+        prev[node] = previous;
+    }
+
+    /**
+     * Gets the priority queue of the current query.
+     *
+     * @return The heap of unsettled airports.
+     */
+    IndexedMinHeap heap() {
+        return heap;
+    }
+
+    /**
+     * Gets the raw predecessor array. Only entries written in the current query are valid,
+     * which holds for every airport on a path found by the query.
+     *
+     * @return The predecessor array.
+     */
+    int[] prevArray() {
+        return prev;
+    }
+}
@@ -0,0 +1,279 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ShortestPathTree class holds the shortest distance and the predecessor of every airport
+ * as seen from one start airport, for one criterion. Any destination's shortest path is read
+ * off by walking the predecessors back to the start.
+ *
+ * A tree can be repaired after routes change instead of being recomputed (dynamic shortest
+ * paths in the style of Ramalingam and Reps). Airports whose tree path used a removed or
+ * changed route lose their distance, together with everything below them in the tree. They are
+ * seeded from their in-routes that come from unaffected airports, and every added route that
+ * shortens a distance seeds its destination. Added routes are weighed as they are in the newer
+ * snapshot, not as they were added, since a route can be changed again or removed within the
+ * same set of changes. One Dijkstra pass from the seeds then settles
+ * exactly the airports whose distance changed, which after a fare update is usually a small
+ * part of the network.
+ *
+ * Trees are immutable; a repair returns a new tree, so a query reading the old one is not
+ * disturbed.
+ */
+final class ShortestPathTree {
+    static final int UNREACHED = -2;  // Predecessor of airports the start cannot reach
+
+    private final Criterion criterion;  // Criterion the distances are measured in
+    private final int start;  // Dense index of the start airport
+    private final int[] dist;  // Distance of each airport from the start, INFINITY if unreachable
+    private final int[] prev;  // Predecessor of each airport, -1 for the start, UNREACHED if unreachable
+
+    /**
+     * Constructor to wrap computed tree arrays. The arrays are used as-is, not copied.
+     *
+     * @param criterion The criterion the distances are measured in.
+     * @param start     The dense index of the start airport.
+     * @param dist      The distance of each airport.
+     * @param prev      The predecessor of each airport.
+     */
+    private ShortestPathTree(Criterion criterion, int start, int[] dist, int[] prev) {
+        this.criterion = criterion;
+        this.start = start;
+        this.dist = dist;
+        this.prev = prev;
+    }
+
+    /**
+     * Computes the tree of a start airport with a full Dijkstra search. The search runs on the
+     * heap of a reused search context, which afterwards holds its counts like any other search.
+     *
+     * @param graph     The snapshot to search.
+     * @param start     The dense index of the start airport.
+     * @param criterion The criterion to minimize.
+     * @param context   The search context of the calling thread; it is reset.
+     * @return The shortest-path tree.
+     */
+    static ShortestPathTree build(GraphSnapshot graph, int start, Criterion criterion, SearchContext context) {
+        int n = graph.nodeCount();
+        int[] dist = new int[n];
+        int[] prev = new int[n];
+        Arrays.fill(dist, SearchContext.INFINITY);
+        Arrays.fill(prev, UNREACHED);
+        dist[start] = 0;
+        prev[start] = -1;
+        context.reset(n);
+        IndexedMinHeap heap = context.heap();
+        heap.insertOrDecrease(start, 0);
+        context.countRelaxations(1 + settle(graph, graph.weights(criterion), dist, prev, heap));
+        return new ShortestPathTree(criterion, start, dist, prev);
+    }
+
+    /**
+     * Repairs the tree for a newer snapshot of the same airports. An updated route is passed
+     * as both removed (old values) and added (new values).
+     *
+     * @param current The newer snapshot; it must have the same airports as the tree's.
+     * @param removed The routes removed since the tree was computed, with their old values.
+     * @param added   The routes added since the tree was computed.
+     * @return The repaired tree.
+     */
+    ShortestPathTree repair(GraphSnapshot current, List<Route> removed, List<Route> added) {
+        int n = dist.length;
+        int[] newDist = dist.clone();
+        int[] newPrev = prev.clone();
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        int[] weights = current.weights(criterion);
+
+        // Airports whose tree path used a removed route lose their distance, with their subtree
+        List<Integer> roots = new ArrayList<>();
+        for (Route route : removed) {
+            int from = current.indexOf(route.getStartId());
+            int to = current.indexOf(route.getDestinationId());
+            if (from >= 0 && to >= 0 && prev[to] == from) {
+                roots.add(to);
+            }
+        }
+        if (!roots.isEmpty()) {
+            int[] affected = subtrees(roots);
+            for (int node : affected) {
+                newDist[node] = SearchContext.INFINITY;
+                newPrev[node] = UNREACHED;
+            }
+
+            // Seed each affected airport with its best route from an airport that kept its distance
+            int[] reverseOffsets = current.reverseOffsets();
+            int[] reverseSources = current.reverseSources();
+            int[] reverseEdges = current.reverseEdges();
+            for (int node : affected) {
+                for (int slot = reverseOffsets[node]; slot < reverseOffsets[node + 1]; slot++) {
+                    int source = reverseSources[slot];
+                    if (newDist[source] == SearchContext.INFINITY) continue;
+                    int candidate = newDist[source] + weights[reverseEdges[slot]];
+                    if (candidate < newDist[node]) {
+                        newDist[node] = candidate;
+                        newPrev[node] = source;
+                    }
+                }
+                if (newDist[node] != SearchContext.INFINITY) {
+                    heap.insertOrDecrease(node, newDist[node]);
+                }
+            }
+        }
+
+        // Added routes that shorten a distance seed their destination, with their current weight
+        for (Route route : added) {
+            int from = current.indexOf(route.getStartId());
+            int to = current.indexOf(route.getDestinationId());
+            if (from < 0 || to < 0 || newDist[from] == SearchContext.INFINITY) continue;
+            int weight = cheapestWeight(current, weights, from, to);
+            if (weight == SearchContext.INFINITY) continue;  // Removed again since it was added
+            int candidate = newDist[from] + weight;
+            if (candidate < newDist[to]) {
+                newDist[to] = candidate;
+                newPrev[to] = from;
+                heap.insertOrDecrease(to, candidate);
+            }
+        }
+
+        settle(current, weights, newDist, newPrev, heap);
+        return new ShortestPathTree(criterion, start, newDist, newPrev);
+    }
+
+    /**
+     * Finds the cheapest route between two airports in a snapshot.
+     *
+     * @param graph   The snapshot to look in.
+     * @param weights The weight column of the criterion.
+     * @param from    The dense index of the starting airport.
+     * @param to      The dense index of the destination airport.
+     * @return The weight of the cheapest route, or SearchContext.INFINITY if there is none.
+     */
+    private static int cheapestWeight(GraphSnapshot graph, int[] weights, int from, int to) {
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int cheapest = SearchContext.INFINITY;
+        for (int edge = offsets[from]; edge < offsets[from + 1]; edge++) {
+            if (targets[edge] == to && weights[edge] < cheapest) {
+                cheapest = weights[edge];
+            }
+        }
+        return cheapest;
+    }
+
+    /**
+     * Gets the shortest path to a destination.
+     *
+     * @param graph       The snapshot the tree describes, to translate indices to airport IDs.
+     * @param destination The dense index of the destination.
+     * @return A list of airport IDs from the start to the destination, empty if unreachable.
+     */
+    List<Integer> path(GraphSnapshot graph, int destination) {
+        if (prev[destination] == UNREACHED) {
+            return new ArrayList<>();
+        }
+        return graph.unpackPath(prev, destination);
+    }
+
+    /**
+     * Gets the shortest distance to a destination.
+     *
+     * @param destination The dense index of the destination.
+     * @return The distance, or SearchContext.INFINITY if unreachable.
+     */
+    int distance(int destination) {
+        return dist[destination];
+    }
+
+    /**
+     * Gets the number of airports the tree covers.
+     *
+     * @return The airport count.
+     */
+    int size() {
+        return dist.length;
+    }
+
+    /**
+     * Runs Dijkstra from the queued airports, lowering distances wherever a route gives a
+     * shorter path.
+     *
+     * @param graph   The snapshot to search.
+     * @param weights The weight column of the criterion.
+     * @param dist    The distances, updated in place.
+     * @param prev    The predecessors, updated in place.
+     * @param heap    The queued airports, keyed by distance.
+     * @return The number of distances lowered.
+     */
+    private static int settle(GraphSnapshot graph, int[] weights, int[] dist, int[] prev, IndexedMinHeap heap) {
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int relaxed = 0;
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            int currentDist = dist[node];
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                int neighbor = targets[edge];
+                int newDist = currentDist + weights[edge];
+                if (newDist < dist[neighbor]) {
+                    dist[neighbor] = newDist;
+                    prev[neighbor] = node;
+                    heap.insertOrDecrease(neighbor, newDist);
+                    relaxed++;
+                }
+            }
+        }
+        return relaxed;
+    }
+
+    /**
+     * Collects the given airports and every airport below them in the tree.
+     *
+     * @param roots The airports whose subtrees to collect.
+     * @return The airports of the subtrees, each once.
+     */
+    private int[] subtrees(List<Integer> roots) {
+        int n = prev.length;
+
+        // Children of every airport, grouped by a counting sort on the predecessor
+        int[] offsets = new int[n + 1];
+        for (int node = 0; node < n; node++) {
+            if (prev[node] >= 0) offsets[prev[node] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] children = new int[offsets[n]];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (int node = 0; node < n; node++) {
+            if (prev[node] >= 0) children[next[prev[node]]++] = node;
+        }
+
+        boolean[] seen = new boolean[n];
+        int[] stack = new int[n];
+        int count = 0;
+        for (int root : roots) {
+            if (seen[root]) continue;
+            seen[root] = true;
+            stack[count++] = root;
+        }
+        for (int i = 0; i < count; i++) {  // The stack doubles as the result, read front to back
+            int node = stack[i];
+            for (int slot = offsets[node]; slot < offsets[node + 1]; slot++) {
+                if (!seen[children[slot]]) {
+                    seen[children[slot]] = true;
+                    stack[count++] = children[slot];
+                }
+            }
+        }
+        return Arrays.copyOf(stack, count);
+    }
+
+    @Override
+    public String toString() {
+        return "ShortestPathTree{" +
+                "criterion=" + criterion +
+                ", start=" + start +
+                ", airports=" + dist.length +
+                '}';
+    }
+}
@@ -0,0 +1,299 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Timetable class answers time-dependent queries over scheduled flights with the
+ * Connection Scan Algorithm. Every flight is one connection (from, to, departure, arrival);
+ * the connections are stored side by side in one int array sorted by departure time, and by
+ * arrival time among connections departing together, so a
+ * query is a single forward (or, for profiles, backward) sweep over contiguous memory with no
+ * priority queue.
+ *
+ * An earliest-arrival query starts at the first connection departing after the requested time
+ * and stops as soon as connections depart after the best arrival found. A profile query sweeps
+ * backwards once and yields every journey that is not beaten by one leaving later and arriving
+ * earlier, covering all departure times at once.
+ *
+ * Changing planes at an airport takes at least its minimum connection time; no connection time
+ * applies at the start or at the destination. A flight may take no time, and an airport may
+ * need no connection time, so a chain of such flights can all leave in the same minute. No
+ * order of the connections of one minute suits every chain, so when a scan reaches an airport
+ * just in time for connections of the minute it is scanning, it scans that minute again. Timetables are immutable and can be queried from
+ * many threads.
+ */
+final class Timetable {
+    private static final int INFINITY = SearchContext.INFINITY;
+    private static final Journey NO_JOURNEY = new Journey(new int[0], new int[0], new int[0]);
+
+    // Per-thread scan state: ready time (arrival plus connection time) and incoming connection per airport
+    private static final ThreadLocal<SearchContext> SCAN_CONTEXT = ThreadLocal.withInitial(SearchContext::new);
+
+    private final GraphSnapshot graph;  // Snapshot whose dense airport indices the connections use
+    private final int[] connections;  // From, to, departure and arrival of each connection, by departure
+    private final int[] connectionMinutes;  // Minimum connection time of each airport
+    private final int count;  // Number of connections
+    private final boolean instant;  // Whether some connection arrives the minute it departs
+
+    /**
+     * Constructor to wrap connections. The connections are sorted here; the arrays are used
+     * as-is, not copied.
+     *
+     * @param graph             The snapshot whose airport indices the connections use.
+     * @param connections       The from index, to index, departure and arrival of each connection,
+     *                          with non-negative times.
+     * @param connectionMinutes The minimum connection time of each airport.
+     */
+    Timetable(GraphSnapshot graph, int[] connections, int[] connectionMinutes) {
+        this.graph = graph;
+        this.count = connections.length / 4;
+        this.connectionMinutes = connectionMinutes;
+
+        // Sort by departure, then arrival, so a connection that arrives at time t is scanned
+        // before the connections departing at t. Two primitive sorts: (arrival, position) keys
+        // rank the connections, then (departure, rank) keys order them
+        long[] keys = new long[count];
+        for (int c = 0; c < count; c++) {
+            keys[c] = (long) connections[4 * c + 3] << 32 | c;
+        }
+        Arrays.sort(keys);
+        int[] byArrival = new int[count];
+        for (int rank = 0; rank < count; rank++) {
+            byArrival[rank] = (int) keys[rank];
+            keys[rank] = (long) connections[4 * byArrival[rank] + 2] << 32 | rank;
+        }
+        Arrays.sort(keys);
+        int[] sorted = new int[4 * count];
+        for (int c = 0; c < count; c++) {
+            System.arraycopy(connections, 4 * byArrival[(int) keys[c]], sorted, 4 * c, 4);
+        }
+        this.connections = sorted;
+        boolean zeroDuration = false;
+        for (int c = 0; c < count; c++) {
+            zeroDuration |= sorted[4 * c + 2] == sorted[4 * c + 3];
+        }
+        this.instant = zeroDuration;
+    }
+
+    /**
+     * Finds the journey that reaches the destination earliest when leaving the start no
+     * earlier than a given time.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param departure     The earliest departure time in minutes.
+     * @return The earliest-arriving journey; not found if the destination cannot be reached.
+     */
+    public Journey earliestArrival(int startId, int destinationId, int departure) {
+        int start = graph.indexOf(startId);
+        int destination = graph.indexOf(destinationId);
+        if (start < 0 || destination < 0 || start == destination) {
+            return NO_JOURNEY;
+        }
+        SearchContext context = SCAN_CONTEXT.get();
+        context.reset(graph.nodeCount());
+        context.set(start, departure, -1);
+
+        int bestArrival = INFINITY;
+        int bestConnection = -1;
+        for (int c = firstDepartingAt(departure); c < count; c++) {
+            int at = 4 * c;
+            int departs = connections[at + 2];
+            if (departs >= bestArrival) break;  // Nothing departing now can arrive earlier
+            if (context.dist(connections[at]) > departs) continue;  // Not at the airport in time
+            int to = connections[at + 1];
+            int arrives = connections[at + 3];
+            if (to == destination) {
+                if (arrives < bestArrival) {
+                    bestArrival = arrives;
+                    bestConnection = c;
+                }
+            } else if (to != start) {
+                int ready = arrives + connectionMinutes[to];
+                if (ready < context.dist(to)) {
+                    context.set(to, ready, c);
+                    if (ready == departs) {
+                        c = firstDepartingAt(departs) - 1;  // Connections of this minute may leave from there
+                    }
+                }
+            }
+        }
+        if (bestConnection < 0) {
+            return NO_JOURNEY;
+        }
+
+        // Follow the incoming connections back to the start
+        List<Integer> legs = new ArrayList<>();
+        for (int c = bestConnection; ; c = context.prev(connections[4 * c])) {
+            legs.add(c);
+            if (connections[4 * c] == start) break;
+        }
+        int[] path = new int[legs.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = legs.get(legs.size() - 1 - i);
+        }
+        return journey(path);
+    }
+
+    /**
+     * Finds, for every departure time in a window, the best journeys between two airports:
+     * each journey returned arrives earlier than any journey that leaves later.
+     *
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param from          The earliest departure time in minutes.
+     * @param to            The latest departure time in minutes.
+     * @return The journeys, by departure time.
+     */
+    public List<Journey> profile(int startId, int destinationId, int from, int to) {
+        int start = graph.indexOf(startId);
+        int destination = graph.indexOf(destinationId);
+        List<Journey> journeys = new ArrayList<>();
+        if (start < 0 || destination < 0 || start == destination) {
+            return journeys;
+        }
+
+        // Per airport: (departure, arrival at the destination, connection) triples, appended in
+        // decreasing departure order, so arrivals decrease along each list as well
+        int n = graph.nodeCount();
+        int[][] profiles = new int[n][];
+        int[] sizes = new int[n];
+        int first = firstDepartingAt(from);
+        for (int c = count - 1; c >= first; c--) {
+            int at = 4 * c;
+            int airport = connections[at];
+            if (airport == destination) continue;
+            int next = connections[at + 1];
+            int arrival;
+            if (next == destination) {
+                arrival = connections[at + 3];
+            } else {
+                int pair = evaluate(profiles[next], sizes[next], connections[at + 3] + connectionMinutes[next]);
+                if (pair < 0) continue;
+                arrival = profiles[next][3 * pair + 1];
+            }
+
+            int size = sizes[airport];
+            int[] profile = profiles[airport];
+            if (size > 0 && arrival >= profile[3 * size - 2]) continue;  // A later departure arrives as early
+            if (size > 0 && profile[3 * size - 3] == connections[at + 2]) {
+                size--;  // Same departure, now beaten
+            }
+            if (profile == null || 3 * size == profile.length) {
+                profile = profile == null ? new int[3 * 4] : Arrays.copyOf(profile, profile.length * 2);
+                profiles[airport] = profile;
+            }
+            profile[3 * size] = connections[at + 2];
+            profile[3 * size + 1] = arrival;
+            profile[3 * size + 2] = c;
+            sizes[airport] = size + 1;
+            if (instant && connectionMinutes[airport] == 0) {
+                c = firstDepartingAt(connections[at + 2] + 1);  // Connections of this minute may arrive here in time
+            }
+        }
+
+        // The start's profile lists the answers, latest departure first
+        int[] profile = profiles[start];
+        for (int i = sizes[start] - 1; i >= 0; i--) {
+            if (profile[3 * i] > to) continue;
+            List<Integer> legs = new ArrayList<>();
+            int c = profile[3 * i + 2];
+            while (true) {
+                legs.add(c);
+                int next = connections[4 * c + 1];
+                if (next == destination) break;
+                int pair = evaluate(profiles[next], sizes[next], connections[4 * c + 3] + connectionMinutes[next]);
+                c = profiles[next][3 * pair + 2];
+            }
+            int[] path = new int[legs.size()];
+            for (int k = 0; k < path.length; k++) {
+                path[k] = legs.get(k);
+            }
+            journeys.add(journey(path));
+        }
+        return journeys;
+    }
+
+    /**
+     * Gets the number of connections.
+     *
+     * @return The number of connections.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Finds the entry of a profile with the earliest arrival among those departing no earlier
+     * than a given time. Entries are in decreasing departure order with decreasing arrivals,
+     * so it is the last entry departing at or after the time.
+     *
+     * @param profile The profile entries, or null.
+     * @param size    The number of entries.
+     * @param time    The earliest departure time.
+     * @return The entry index, or -1 if no entry departs late enough.
+     */
+    private static int evaluate(int[] profile, int size, int time) {
+        int low = 0;
+        int high = size - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (profile[3 * mid] >= time) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the first connection that departs at or after a time.
+     *
+     * @param time The time in minutes.
+     * @return The connection index, or the connection count if none departs that late.
+     */
+    private int firstDepartingAt(int time) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (connections[4 * mid + 2] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Builds a journey from its connections.
+     *
+     * @param path The connection indices, in travel order.
+     * @return The journey.
+     */
+    private Journey journey(int[] path) {
+        int[] airports = new int[path.length + 1];
+        int[] departures = new int[path.length];
+        int[] arrivals = new int[path.length];
+        for (int i = 0; i < path.length; i++) {
+            int at = 4 * path[i];
+            airports[i] = graph.airportId(connections[at]);
+            airports[i + 1] = graph.airportId(connections[at + 1]);
+            departures[i] = connections[at + 2];
+            arrivals[i] = connections[at + 3];
+        }
+        return new Journey(airports, departures, arrivals);
+    }
+
+    @Override
+    public String toString() {
+        return "Timetable{" +
+                "airports=" + graph.nodeCount() +
+                ", connections=" + count +
+                '}';
+    }
+}
@@ -0,0 +1,278 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The Benchmark class is a small measurement harness in the style of JMH. Each benchmark runs
+ * a warm-up phase so the JIT compiles the code under test, then several timed iterations.
+ * Every iteration records the time per operation, the bytes allocated per operation by the
+ * measuring thread, and the garbage collections that happened during it. Results carry their
+ * parameters and can be written as JSON for comparison between releases.
+ *
+ * The classes under test live in the default package, which JMH's generated code cannot
+ * import, so this harness stands in for it.
+ */
+final class Benchmark {
+    private static volatile long sink;  // Consumes results so the JIT cannot drop the work
+
+    private final int warmupIterations;  // Iterations run before measuring
+    private final int iterations;  // Measured iterations
+    private final long iterationNanos;  // Length of one iteration
+    private final List<Result> results;  // Results of every benchmark run so far
+
+    /**
+     * Constructor to create a harness.
+     *
+     * @param warmupIterations The number of warm-up iterations.
+     * @param iterations       The number of measured iterations.
+     * @param iterationMillis  The length of each iteration in milliseconds.
+     */
+    Benchmark(int warmupIterations, int iterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationNanos = iterationMillis * 1_000_000;
+        this.results = new ArrayList<>();
+    }
+
+    /**
+     * One benchmarked operation. The invocation counter lets an operation cycle through
+     * prepared inputs; the result is consumed so the work cannot be optimized away.
+     */
+    interface Operation {
+        Object run(long invocation);
+    }
+
+    /**
+     * Runs a benchmark and records its result.
+     *
+     * @param name      The benchmark name.
+     * @param params    The parameters of this run, such as the graph size.
+     * @param operation The operation to measure.
+     * @return The result of the run.
+     */
+    Result run(String name, Map<String, String> params, Operation operation) {
+        long invocation = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            invocation = iterate(operation, invocation, null);
+        }
+        Result result = new Result(name, params);
+        for (int i = 0; i < iterations; i++) {
+            invocation = iterate(operation, invocation, result);
+        }
+        results.add(result);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * Gets the results of every benchmark run so far.
+     *
+     * @return The results, in run order.
+     */
+    List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * Writes the results of every benchmark run so far as a JSON array.
+     *
+     * @return The JSON text.
+     */
+    String toJson() {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            json.append("  ").append(results.get(i).toJson()).append(i + 1 < results.size() ? ",\n" : "\n");
+        }
+        return json.append("]\n").toString();
+    }
+
+    /**
+     * Runs one iteration: operations back to back until the iteration time is used up.
+     *
+     * @param operation  The operation to measure.
+     * @param invocation The number of invocations before this iteration.
+     * @param result     The result to add the iteration to, or null for a warm-up iteration.
+     * @return The number of invocations after this iteration.
+     */
+    private long iterate(Operation operation, long invocation, Result result) {
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long allocated = allocatedBytes();
+        long started = System.nanoTime();
+        long deadline = started + iterationNanos;
+        long operations = 0;
+        long consumed = 0;
+        long now;
+        do {
+            Object value = operation.run(invocation++);
+            consumed += value == null ? 0 : value.hashCode();
+            operations++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        sink += consumed;
+        if (result != null) {
+            result.add(operations, now - started, allocatedBytes() - allocated, gcCount() - gcCount,
+                    gcMillis() - gcMillis);
+        }
+        return invocation;
+    }
+
+    /**
+     * Gets the bytes allocated by the current thread so far.
+     *
+     * @return The allocated bytes, or 0 if the JVM does not track them.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the number of garbage collections so far, over all collectors.
+     *
+     * @return The collection count.
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Gets the time spent in garbage collection so far, over all collectors.
+     *
+     * @return The collection time in milliseconds.
+     */
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Builds a parameter map from name and value pairs.
+     *
+     * @param pairs Parameter names and values, alternating.
+     * @return The parameters, in the order given.
+     */
+    static Map<String, String> params(Object... pairs) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            params.put(String.valueOf(pairs[i]), String.valueOf(pairs[i + 1]));
+        }
+        return params;
+    }
+
+    /**
+     * The measurements of one benchmark run, summed over its measured iterations.
+     */
+    static final class Result {
+        private final String name;  // Benchmark name
+        private final Map<String, String> params;  // Parameters of the run
+        private long operations;  // Operations completed
+        private long nanos;  // Time spent
+        private long allocatedBytes;  // Bytes allocated by the measuring thread
+        private long gcCount;  // Garbage collections during the run
+        private long gcMillis;  // Time spent in garbage collection
+        private double bestNanosPerOp = Double.MAX_VALUE;  // Fastest iteration
+        private double worstNanosPerOp;  // Slowest iteration
+
+        /**
+         * Constructor to start an empty result.
+         *
+         * @param name   The benchmark name.
+         * @param params The parameters of the run.
+         */
+        Result(String name, Map<String, String> params) {
+            this.name = name;
+            this.params = params;
+        }
+
+        /**
+         * Adds the measurements of one iteration.
+         *
+         * @param operations     The operations completed.
+         * @param nanos          The time spent.
+         * @param allocatedBytes The bytes allocated.
+         * @param gcCount        The garbage collections.
+         * @param gcMillis       The time spent in garbage collection.
+         */
+        void add(long operations, long nanos, long allocatedBytes, long gcCount, long gcMillis) {
+            this.operations += operations;
+            this.nanos += nanos;
+            this.allocatedBytes += allocatedBytes;
+            this.gcCount += gcCount;
+            this.gcMillis += gcMillis;
+            double nanosPerOp = (double) nanos / operations;
+            bestNanosPerOp = Math.min(bestNanosPerOp, nanosPerOp);
+            worstNanosPerOp = Math.max(worstNanosPerOp, nanosPerOp);
+        }
+
+        /**
+         * Gets the average time per operation.
+         *
+         * @return The time in nanoseconds.
+         */
+        double nanosPerOp() {
+            return operations == 0 ? 0 : (double) nanos / operations;
+        }
+
+        /**
+         * Gets the average allocation per operation.
+         *
+         * @return The allocated bytes.
+         */
+        double bytesPerOp() {
+            return operations == 0 ? 0 : (double) allocatedBytes / operations;
+        }
+
+        /**
+         * Writes the result as a JSON object.
+         *
+         * @return The JSON text.
+         */
+        String toJson() {
+            StringBuilder json = new StringBuilder("{\"benchmark\": \"").append(name).append("\", \"params\": {");
+            int i = 0;
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                json.append(i++ == 0 ? "" : ", ").append('"').append(param.getKey()).append("\": \"")
+                        .append(param.getValue()).append('"');
+            }
+            return json.append("}, \"operations\": ").append(operations)
+                    .append(", \"nsPerOp\": ").append(number(nanosPerOp()))
+                    .append(", \"nsPerOpMin\": ").append(number(bestNanosPerOp))
+                    .append(", \"nsPerOpMax\": ").append(number(worstNanosPerOp))
+                    .append(", \"bytesPerOp\": ").append(number(bytesPerOp()))
+                    .append(", \"gcCount\": ").append(gcCount)
+                    .append(", \"gcMillis\": ").append(gcMillis)
+                    .append('}').toString();
+        }
+
+        /**
+         * Formats a number for JSON, with a decimal point whatever the default locale.
+         *
+         * @param value The number.
+         * @return The number with one decimal.
+         */
+        private static String number(double value) {
+            return String.format(Locale.ROOT, "%.1f", value);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-24s %-56s %14.1f ns/op %12.1f B/op %5d GCs %6d ms GC", name, params,
+                    nanosPerOp(), bytesPerOp(), gcCount, gcMillis);
+        }
+    }
+}
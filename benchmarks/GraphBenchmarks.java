@@ -0,0 +1,332 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The GraphBenchmarks class runs the benchmark suite for graph construction and routing
+ * queries over synthetic networks of several sizes and densities (see NetworkGenerator).
+ * It covers bulk construction through Graph.addRoute and GraphBatch, copying out airports and
+ * routes, and every query engine per criterion. The engines run with the route cache off;
+ * dijkstraCacheHit, dijkstraTreeWalk and bestRoutesCacheHit measure the cache on its own.
+ * Results are printed as a table and written as JSON, one object per benchmark and parameter
+ * set.
+ *
+ * Usage: GraphBenchmarks [--airports 1000,10000] [--routes 4,16] [--only name] [--quick]
+ *                        [--json bench-results.json]
+ */
+final class GraphBenchmarks {
+    static final String[] CRITERIA = {"cost", "distance", "time"};
+    static final int QUERY_PAIRS = 1024;  // Distinct start and destination pairs cycled through by queries
+    static final int TREE_ORIGINS = 16;  // Hot origins whose cached trees dijkstraTreeWalk walks
+    static final long SEED = 42;  // Seed of every generated network and query pair
+
+    private final Benchmark harness;  // Measures and collects results
+    private final String only;  // Runs only benchmarks whose name contains this, or null for all
+
+    /**
+     * Constructor to create a suite.
+     *
+     * @param harness The harness that measures the benchmarks.
+     * @param only    The name filter, or null to run every benchmark.
+     */
+    GraphBenchmarks(Benchmark harness, String only) {
+        this.harness = harness;
+        this.only = only;
+    }
+
+    /**
+     * Runs every benchmark for one network size and density.
+     *
+     * @param airports      The number of airports.
+     * @param averageRoutes The average number of routes per airport.
+     */
+    void runAll(int airports, int averageRoutes) {
+        GraphSnapshot network = new NetworkGenerator(airports, averageRoutes, SEED).generate();
+        int routes = network.targets().length;
+        int[][] pairs = queryPairs(network);
+
+        construction(network, airports, averageRoutes, routes);
+        copying(network, airports, averageRoutes);
+        for (String criterion : CRITERIA) {
+            queries(network, pairs, criterion, airports, averageRoutes);
+        }
+        if (selected("bestRoutes")) {
+            Graph graph = new Graph(network);
+            graph.setCaching(false);  // Measure the search, not the route cache
+            harness.run("bestRoutes", Benchmark.params("airports", airports, "averageRoutes", averageRoutes,
+                    "routes", routes), i -> {
+                int[] pair = pairs[(int) (i % QUERY_PAIRS)];
+                return graph.bestRoutes(pair[0], pair[1]);
+            });
+        }
+        if (selected("bestRoutesCacheHit")) {
+            Graph graph = new Graph(network);
+            for (int[] pair : pairs) {
+                graph.bestRoutes(pair[0], pair[1]);  // Cache every result before measuring
+            }
+            harness.run("bestRoutesCacheHit", Benchmark.params("airports", airports, "averageRoutes", averageRoutes,
+                    "routes", routes), i -> {
+                int[] pair = pairs[(int) (i % QUERY_PAIRS)];
+                return graph.bestRoutes(pair[0], pair[1]);
+            });
+        }
+    }
+
+    /**
+     * Benchmarks building a graph from scratch, one route at a time and as one batch.
+     */
+    private void construction(GraphSnapshot network, int airports, int averageRoutes, int routes) {
+        int[] offsets = network.offsets();
+        int[] targets = network.targets();
+        int[] distances = network.weights(Criterion.DISTANCE);
+        int[] travelTimes = network.weights(Criterion.TIME);
+        int[] costs = network.weights(Criterion.COST);
+        if (selected("addRoute")) {
+            harness.run("addRoute", Benchmark.params("airports", airports, "averageRoutes", averageRoutes,
+                    "routes", routes), i -> {
+                Graph graph = new Graph();
+                for (int node = 0; node < airports; node++) {
+                    graph.addAirport(network.airportId(node), network.latitude(node), network.longitude(node));
+                }
+                for (int node = 0; node < airports; node++) {
+                    for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                        graph.addRoute(network.airportId(node), network.airportId(targets[edge]), distances[edge],
+                                travelTimes[edge], costs[edge]);
+                    }
+                }
+                return graph.getSnapshot();
+            });
+        }
+        if (selected("batchCommit")) {
+            harness.run("batchCommit", Benchmark.params("airports", airports, "averageRoutes", averageRoutes,
+                    "routes", routes), i -> {
+                Graph graph = new Graph();
+                GraphBatch batch = graph.beginBatch();
+                for (int node = 0; node < airports; node++) {
+                    batch.addAirport(network.airportId(node), network.latitude(node), network.longitude(node));
+                }
+                for (int node = 0; node < airports; node++) {
+                    for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                        batch.addRoute(network.airportId(node), network.airportId(targets[edge]), distances[edge],
+                                travelTimes[edge], costs[edge]);
+                    }
+                }
+                batch.commit();
+                return graph.getSnapshot();
+            });
+        }
+    }
+
+    /**
+     * Benchmarks the copies returned by getAirports and getAllRoutes.
+     */
+    private void copying(GraphSnapshot network, int airports, int averageRoutes) {
+        Graph graph = new Graph(network);
+        graph.getAirports();  // Create the Airport and Route objects outside the measurement
+        if (selected("getAirports")) {
+            harness.run("getAirports", Benchmark.params("airports", airports, "averageRoutes", averageRoutes),
+                    i -> graph.getAirports());
+        }
+        if (selected("getAllRoutes")) {
+            harness.run("getAllRoutes", Benchmark.params("airports", airports, "averageRoutes", averageRoutes),
+                    i -> graph.getAllRoutes());
+        }
+    }
+
+    /**
+     * Benchmarks every point-to-point query engine for one criterion. Preprocessing (landmarks
+     * and contraction hierarchies) happens before measuring. The route cache is off, so
+     * dijkstra searches on every call; cache hits and tree walks are measured separately.
+     */
+    private void queries(GraphSnapshot network, int[][] pairs, String criterion, int airports, int averageRoutes) {
+        Graph graph = new Graph(network);
+        graph.setCaching(false);
+        if (selected("dijkstra")) {
+            harness.run("dijkstra", Benchmark.params("airports", airports, "averageRoutes", averageRoutes,
+                    "criterion", criterion), i -> {
+                int[] pair = pairs[(int) (i % QUERY_PAIRS)];
+                return graph.dijkstra(pair[0], pair[1], criterion);
+            });
+        }
+        if (selected("bidirectionalDijkstra")) {
+            harness.run("bidirectionalDijkstra", Benchmark.params("airports", airports, "averageRoutes",
+                    averageRoutes, "criterion", criterion), i -> {
+                int[] pair = pairs[(int) (i % QUERY_PAIRS)];
+                return graph.bidirectionalDijkstra(pair[0], pair[1], criterion);
+            });
+        }
+        if (selected("aStar")) {
+            harness.run("aStar", Benchmark.params("airports", airports, "averageRoutes", averageRoutes,
+                    "criterion", criterion), i -> {
+                int[] pair = pairs[(int) (i % QUERY_PAIRS)];
+                return graph.aStar(pair[0], pair[1], criterion);
+            });
+        }
+        if (selected("landmarkAStar")) {
+            graph.landmarkAStar(pairs[0][0], pairs[0][1], criterion);  // Build the landmark tables
+            harness.run("landmarkAStar", Benchmark.params("airports", airports, "averageRoutes", averageRoutes,
+                    "criterion", criterion), i -> {
+                int[] pair = pairs[(int) (i % QUERY_PAIRS)];
+                return graph.landmarkAStar(pair[0], pair[1], criterion);
+            });
+        }
+        if (selected("contractionHierarchy")) {
+            graph.getContractionHierarchy(criterion);  // Preprocess
+            harness.run("contractionHierarchy", Benchmark.params("airports", airports, "averageRoutes",
+                    averageRoutes, "criterion", criterion), i -> {
+                int[] pair = pairs[(int) (i % QUERY_PAIRS)];
+                return graph.contractionHierarchyPath(pair[0], pair[1], criterion);
+            });
+        }
+        cachedQueries(network, pairs, criterion, airports, averageRoutes);
+    }
+
+    /**
+     * Benchmarks dijkstra queries answered by the route cache: repeated pairs found as cached
+     * paths, and pairs from a few hot origins walked back through cached shortest-path trees.
+     */
+    private void cachedQueries(GraphSnapshot network, int[][] pairs, String criterion, int airports,
+                               int averageRoutes) {
+        if (selected("dijkstraCacheHit")) {
+            Graph graph = new Graph(network);
+            int[][] hitPairs = pathHitPairs(pairs);
+            for (int[] pair : hitPairs) {
+                graph.dijkstra(pair[0], pair[1], criterion);  // Cache every path before measuring
+            }
+            harness.run("dijkstraCacheHit", Benchmark.params("airports", airports, "averageRoutes", averageRoutes,
+                    "criterion", criterion), i -> {
+                int[] pair = hitPairs[(int) (i % hitPairs.length)];
+                return graph.dijkstra(pair[0], pair[1], criterion);
+            });
+        }
+        if (selected("dijkstraTreeWalk")) {
+            Graph graph = new Graph(network);
+            int[][] treePairs = new int[QUERY_PAIRS][];
+            for (int i = 0; i < QUERY_PAIRS; i++) {
+                treePairs[i] = new int[]{pairs[i % TREE_ORIGINS][0], pairs[i][1]};
+            }
+            for (int i = 0; i < TREE_ORIGINS * RouteCache.TREE_THRESHOLD; i++) {
+                int[] pair = treePairs[i % TREE_ORIGINS];
+                graph.dijkstra(pair[0], pair[1], criterion);  // Make each origin hot so its tree is cached
+            }
+            harness.run("dijkstraTreeWalk", Benchmark.params("airports", airports, "averageRoutes", averageRoutes,
+                    "criterion", criterion), i -> {
+                int[] pair = treePairs[(int) (i % QUERY_PAIRS)];
+                return graph.dijkstra(pair[0], pair[1], criterion);
+            });
+        }
+    }
+
+    /**
+     * Keeps the query pairs whose origin occurs too rarely for its tree to be cached, so every
+     * repeated query of those pairs is answered from a cached path.
+     *
+     * @param pairs The query pairs.
+     * @return The pairs whose origin occurs fewer than RouteCache.TREE_THRESHOLD times.
+     */
+    private static int[][] pathHitPairs(int[][] pairs) {
+        Map<Integer, Integer> origins = new HashMap<>();
+        for (int[] pair : pairs) {
+            origins.merge(pair[0], 1, Integer::sum);
+        }
+        List<int[]> kept = new ArrayList<>();
+        for (int[] pair : pairs) {
+            if (origins.get(pair[0]) < RouteCache.TREE_THRESHOLD) {
+                kept.add(pair);
+            }
+        }
+        return kept.toArray(new int[0][]);
+    }
+
+    /**
+     * Checks whether a benchmark passes the name filter.
+     *
+     * @param name The benchmark name.
+     * @return true if the benchmark should run.
+     */
+    private boolean selected(String name) {
+        return only == null || name.contains(only);
+    }
+
+    /**
+     * Draws the start and destination airports the queries cycle through.
+     *
+     * @param network The network to draw airports from.
+     * @return The pairs of airport IDs.
+     */
+    private static int[][] queryPairs(GraphSnapshot network) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[][] pairs = new int[QUERY_PAIRS][];
+        for (int i = 0; i < QUERY_PAIRS; i++) {
+            pairs[i] = new int[]{network.airportId(random.nextInt(network.nodeCount())),
+                    network.airportId(random.nextInt(network.nodeCount()))};
+        }
+        return pairs;
+    }
+
+    /**
+     * Parses a comma-separated list of numbers.
+     *
+     * @param list The list, such as "1000,10000".
+     * @return The numbers.
+     */
+    private static List<Integer> numbers(String list) {
+        List<Integer> numbers = new ArrayList<>();
+        for (String number : list.split(",")) {
+            numbers.add(Integer.parseInt(number.trim()));
+        }
+        return numbers;
+    }
+
+    /**
+     * Runs the suite and writes the results.
+     *
+     * @param args The options described in the class comment.
+     * @throws IOException If the results cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        List<Integer> airportCounts = numbers("1000,10000");
+        List<Integer> routeCounts = numbers("4,16");
+        String only = null;
+        String json = "bench-results.json";
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--airports":
+                    airportCounts = numbers(args[++i]);
+                    break;
+                case "--routes":
+                    routeCounts = numbers(args[++i]);
+                    break;
+                case "--only":
+                    only = args[++i];
+                    break;
+                case "--json":
+                    json = args[++i];
+                    break;
+                case "--quick":
+                    quick = true;
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Benchmark harness = quick ? new Benchmark(1, 2, 200) : new Benchmark(5, 5, 1000);
+        GraphBenchmarks suite = new GraphBenchmarks(harness, only);
+        for (int airports : airportCounts) {
+            for (int averageRoutes : routeCounts) {
+                suite.runAll(airports, averageRoutes);
+            }
+        }
+        Files.write(Paths.get(json), harness.toJson().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Wrote " + harness.getResults().size() + " results to " + json);
+    }
+}
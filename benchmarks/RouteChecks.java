@@ -0,0 +1,669 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * The RouteChecks class cross-checks the query engines against each other on generated
+ * networks. Every engine must return a valid path whose length is the shortest, which a plain
+ * textbook Dijkstra over the snapshot (written here, independent of the engines) decides.
+ * Query pairs are random, so every run with a new seed covers new cases. Repairs of cached
+ * shortest-path trees are checked on a small fixed network. The algorithms whose answers are
+ * not a single shortest path (k shortest paths, constrained and Pareto routes, timetable
+ * queries) are compared with an exhaustive search on small random inputs instead.
+ *
+ * Prints each mismatch and exits with status 1 if there was any, so it can run in a build.
+ *
+ * Usage: RouteChecks [--airports 2000] [--routes 6] [--queries 300] [--seed 7]
+ */
+final class RouteChecks {
+    static final String[] CRITERIA = {"cost", "distance", "time"};
+    static final String[] ENGINES = {"dijkstra", "bidirectionalDijkstra", "aStar", "landmarkAStar",
+            "contractionHierarchyPath"};
+
+    private int checks;  // Number of comparisons made
+    private int failures;  // Number of comparisons that failed
+
+    /**
+     * Compares every engine with the reference search on random query pairs.
+     *
+     * @param airports      The number of airports of the generated network.
+     * @param averageRoutes The average number of routes per airport.
+     * @param queries       The number of query pairs per criterion.
+     * @param seed          The seed of the network and the query pairs.
+     */
+    void crossCheckEngines(int airports, int averageRoutes, int queries, long seed) {
+        Graph graph = new NetworkGenerator(airports, averageRoutes, seed).generateGraph();
+        GraphSnapshot snapshot = graph.getSnapshot();
+        SplittableRandom random = new SplittableRandom(seed);
+        for (String criterion : CRITERIA) {
+            for (int q = 0; q < queries; q++) {
+                int startId = snapshot.airportId(random.nextInt(snapshot.nodeCount()));
+                int destinationId = snapshot.airportId(random.nextInt(snapshot.nodeCount()));
+                int expected = referenceDistance(snapshot, startId, destinationId, criterion);
+                for (String engine : ENGINES) {
+                    List<Integer> path = query(graph, engine, startId, destinationId, criterion);
+                    check(engine + " " + criterion + " " + startId + "->" + destinationId, snapshot, criterion,
+                            startId, destinationId, path, expected);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that cached shortest-path trees are repaired correctly when one set of changes
+     * touches the same route twice: updated and then updated again, or added and then removed.
+     * Each repair must use the route as it ends up, not as it was along the way.
+     */
+    void checkTreeRepairs() {
+        Graph updated = repairNetwork();
+        updated.addRoute(1, 3, 100, 100, 50);
+        warmTree(updated);
+        updated.updateRoute(1, 3, 100, 100, 1);
+        updated.updateRoute(1, 3, 100, 100, 500);
+        checkRepaired("update then update", updated);
+
+        Graph readded = repairNetwork();
+        warmTree(readded);
+        readded.addRoute(1, 3, 100, 100, 1);
+        readded.removeRoute(1, 3);
+        checkRepaired("add then remove", readded);
+    }
+
+    /**
+     * Builds the network of the repair checks: airport 1 reaches 3 through 2 at cost 20, and
+     * has direct routes to three more airports so it can be queried often enough to be hot.
+     *
+     * @return The network.
+     */
+    private static Graph repairNetwork() {
+        Graph graph = new Graph();
+        for (int id = 1; id <= 6; id++) {
+            graph.addAirport(id);
+        }
+        graph.addRoute(1, 2, 10, 10, 10);
+        graph.addRoute(2, 3, 10, 10, 10);
+        for (int id = 4; id <= 6; id++) {
+            graph.addRoute(1, id, 5, 5, 5);
+        }
+        return graph;
+    }
+
+    /**
+     * Queries airport 1 towards distinct destinations until its cost tree is cached.
+     *
+     * @param graph The network.
+     */
+    private static void warmTree(Graph graph) {
+        for (int id = 2; id <= 6; id++) {
+            graph.dijkstra(1, id, "cost");
+        }
+    }
+
+    /**
+     * Checks the path from airport 1 to 3 after changes, and that it came from a repaired tree.
+     *
+     * @param name  The description printed if the check fails.
+     * @param graph The changed network.
+     */
+    private void checkRepaired(String name, Graph graph) {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        long repairs = graph.getRouteCache().getRepairs();
+        List<Integer> path = graph.dijkstra(1, 3, "cost");
+        check("repair " + name, snapshot, "cost", 1, 3, path, referenceDistance(snapshot, 1, 3, "cost"));
+        if (graph.getRouteCache().getRepairs() == repairs) {
+            failures++;
+            System.out.println("MISMATCH repair " + name + ": the cached tree was not repaired");
+        }
+    }
+
+    /**
+     * Compares kShortestPaths with every simple path of small random networks. The routes must
+     * be distinct, loopless paths between the two airports, and their lengths must be the
+     * shortest simple path lengths in order.
+     *
+     * @param networks The number of random networks.
+     * @param seed     The seed of the networks and queries.
+     */
+    void checkKShortestPaths(int networks, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int n = 0; n < networks; n++) {
+            Graph graph = smallNetwork(random);
+            GraphSnapshot snapshot = graph.getSnapshot();
+            int startId = random.nextInt(snapshot.nodeCount());
+            int destinationId = (startId + 1 + random.nextInt(snapshot.nodeCount() - 1)) % snapshot.nodeCount();
+            String criterion = CRITERIA[random.nextInt(CRITERIA.length)];
+            int k = 1 + random.nextInt(8);
+            String name = "kShortestPaths " + n + " " + criterion + " " + startId + "->" + destinationId + " k=" + k;
+
+            List<List<Integer>> all = simplePaths(snapshot, startId, destinationId);
+            int[] expected = new int[all.size()];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = pathLength(snapshot, criterion, all.get(i));
+            }
+            Arrays.sort(expected);
+            List<RouteSummary> routes = graph.kShortestPaths(startId, destinationId, criterion, k);
+            checks++;
+            if (routes.size() != Math.min(k, expected.length)) {
+                fail(name + ": " + routes.size() + " routes, expected " + Math.min(k, expected.length));
+                continue;
+            }
+            Set<List<Integer>> seen = new HashSet<>();
+            for (int i = 0; i < routes.size(); i++) {
+                List<Integer> path = routes.get(i).getPath();
+                if (!isRoute(snapshot, startId, destinationId, path) || new HashSet<>(path).size() != path.size()
+                        || !seen.add(path) || !hasTotals(snapshot, routes.get(i))) {
+                    fail(name + ": route " + i + " " + path + " is invalid, has a loop or repeats a route");
+                } else if (pathLength(snapshot, criterion, path) != expected[i]) {
+                    fail(name + ": route " + i + " " + path + " has length " + pathLength(snapshot, criterion, path)
+                            + ", expected " + expected[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares constrainedRoute and paretoRoutes with every simple path of small random
+     * networks. Routes with loops never beat their loopless part, since no weight is negative,
+     * so the simple paths decide both answers. The constrained route must be a valid route
+     * within the limits with the least cost of any simple path within them; the Pareto routes
+     * must be valid, cheapest first, and have exactly the distinct undominated totals.
+     *
+     * @param networks The number of random networks.
+     * @param seed     The seed of the networks, queries and limits.
+     */
+    void checkMultiCriteriaRoutes(int networks, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int n = 0; n < networks; n++) {
+            Graph graph = smallNetwork(random);
+            GraphSnapshot snapshot = graph.getSnapshot();
+            int startId = random.nextInt(snapshot.nodeCount());
+            int destinationId = (startId + 1 + random.nextInt(snapshot.nodeCount() - 1)) % snapshot.nodeCount();
+            List<int[]> totals = new ArrayList<>();  // Cost, distance, travel time and stops of each simple path
+            for (List<Integer> path : simplePaths(snapshot, startId, destinationId)) {
+                totals.add(new int[]{pathLength(snapshot, "cost", path), pathLength(snapshot, "distance", path),
+                        pathLength(snapshot, "time", path), path.size() - 2});
+            }
+
+            int maxTravelTime = random.nextBoolean() ? ConstrainedSearch.UNLIMITED : random.nextInt(60);
+            int maxDistance = random.nextBoolean() ? ConstrainedSearch.UNLIMITED : random.nextInt(60);
+            int maxStops = random.nextBoolean() ? ConstrainedSearch.UNLIMITED : random.nextInt(4);
+            String name = "constrainedRoute " + n + " " + startId + "->" + destinationId + " time<=" + maxTravelTime
+                    + " distance<=" + maxDistance + " stops<=" + maxStops;
+            int expected = SearchContext.INFINITY;
+            for (int[] total : totals) {
+                if (total[1] <= maxDistance && total[2] <= maxTravelTime && total[3] <= maxStops) {
+                    expected = Math.min(expected, total[0]);
+                }
+            }
+            ConstrainedResult constrained = graph.constrainedRoute(startId, destinationId, maxTravelTime, maxDistance,
+                    maxStops);
+            RouteSummary route = constrained.getRoute();
+            checks++;
+            if (expected == SearchContext.INFINITY) {
+                if (route.isFound()) {
+                    fail(name + ": found " + route.getPath() + ", expected no route");
+                }
+            } else if (!route.isFound() || !isRoute(snapshot, startId, destinationId, route.getPath())
+                    || !hasTotals(snapshot, route)) {
+                fail(name + ": " + route.getPath() + " is missing or invalid, expected cost " + expected);
+            } else if (route.getTotalDistance() > maxDistance || route.getTotalTravelTime() > maxTravelTime
+                    || route.getPath().size() - 2 > maxStops || route.getTotalCost() != expected) {
+                fail(name + ": " + route + " breaks a limit or is not the cheapest, expected cost " + expected);
+            }
+
+            name = "paretoRoutes " + n + " " + startId + "->" + destinationId;
+            Set<List<Integer>> frontier = new HashSet<>();
+            for (int[] total : totals) {
+                boolean dominated = false;
+                for (int[] other : totals) {
+                    dominated |= other[0] <= total[0] && other[1] <= total[1] && other[2] <= total[2]
+                            && (other[0] < total[0] || other[1] < total[1] || other[2] < total[2]);
+                }
+                if (!dominated) {
+                    frontier.add(Arrays.asList(total[0], total[1], total[2]));
+                }
+            }
+            List<RouteSummary> routes = graph.paretoRoutes(startId, destinationId).getRoutes();
+            Set<List<Integer>> found = new HashSet<>();
+            checks++;
+            for (int i = 0; i < routes.size(); i++) {
+                RouteSummary pareto = routes.get(i);
+                if (!isRoute(snapshot, startId, destinationId, pareto.getPath()) || !hasTotals(snapshot, pareto)
+                        || (i > 0 && pareto.getTotalCost() < routes.get(i - 1).getTotalCost())) {
+                    fail(name + ": route " + i + " " + pareto.getPath() + " is invalid or out of order");
+                }
+                if (!found.add(Arrays.asList(pareto.getTotalCost(), pareto.getTotalDistance(),
+                        pareto.getTotalTravelTime()))) {
+                    fail(name + ": route " + i + " " + pareto + " repeats the totals of another route");
+                }
+            }
+            if (!found.equals(frontier)) {
+                fail(name + ": totals " + found + ", expected " + frontier);
+            }
+        }
+    }
+
+    /**
+     * Builds a small random network for the enumeration checks: 4 to 8 airports with IDs from
+     * 0, each pair connected in each direction with probability 2/5, and small weights that
+     * include 0, so equal lengths and zero-weight routes are common.
+     *
+     * @param random The source of randomness.
+     * @return The network.
+     */
+    private static Graph smallNetwork(SplittableRandom random) {
+        Graph graph = new Graph();
+        int airports = 4 + random.nextInt(5);
+        for (int id = 0; id < airports; id++) {
+            graph.addAirport(id);
+        }
+        for (int from = 0; from < airports; from++) {
+            for (int to = 0; to < airports; to++) {
+                if (from != to && random.nextInt(5) < 2) {
+                    graph.addRoute(from, to, random.nextInt(20), random.nextInt(20), random.nextInt(20));
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Lists every simple path between two airports with a depth-first search.
+     *
+     * @param snapshot      The snapshot to search.
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @return The paths as lists of airport IDs.
+     */
+    static List<List<Integer>> simplePaths(GraphSnapshot snapshot, int startId, int destinationId) {
+        List<List<Integer>> paths = new ArrayList<>();
+        List<Integer> path = new ArrayList<>();
+        path.add(startId);
+        extendPaths(snapshot, destinationId, path, paths);
+        return paths;
+    }
+
+    /**
+     * Extends a simple path by every route to an airport not on it yet, recording the paths
+     * that reach the destination.
+     *
+     * @param snapshot      The snapshot to search.
+     * @param destinationId The ID of the destination airport.
+     * @param path          The path so far, restored before returning.
+     * @param paths         The complete paths found so far.
+     */
+    private static void extendPaths(GraphSnapshot snapshot, int destinationId, List<Integer> path,
+                                    List<List<Integer>> paths) {
+        int node = snapshot.indexOf(path.get(path.size() - 1));
+        if (snapshot.airportId(node) == destinationId) {
+            paths.add(new ArrayList<>(path));
+            return;
+        }
+        int[] offsets = snapshot.offsets();
+        int[] targets = snapshot.targets();
+        for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+            int next = snapshot.airportId(targets[edge]);
+            if (path.contains(next)) continue;
+            path.add(next);
+            extendPaths(snapshot, destinationId, path, paths);
+            path.remove(path.size() - 1);
+        }
+    }
+
+    /**
+     * Checks that a path leads from one airport to another over existing routes.
+     *
+     * @param snapshot      The snapshot the path must exist in.
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param path          The airport IDs along the path.
+     * @return true if the path is a route between the airports.
+     */
+    private static boolean isRoute(GraphSnapshot snapshot, int startId, int destinationId, List<Integer> path) {
+        return !path.isEmpty() && path.get(0) == startId && path.get(path.size() - 1) == destinationId
+                && pathLength(snapshot, "cost", path) >= 0;
+    }
+
+    /**
+     * Checks that the totals of a route summary are the lengths of its path.
+     *
+     * @param snapshot The snapshot the path exists in.
+     * @param route    The route.
+     * @return true if all three totals match.
+     */
+    private static boolean hasTotals(GraphSnapshot snapshot, RouteSummary route) {
+        return route.getTotalCost() == pathLength(snapshot, "cost", route.getPath())
+                && route.getTotalDistance() == pathLength(snapshot, "distance", route.getPath())
+                && route.getTotalTravelTime() == pathLength(snapshot, "time", route.getPath());
+    }
+
+    /**
+     * Compares timetable queries with an exhaustive search on small random timetables, which
+     * include flights that take no time and airports where changing planes takes no time.
+     * Every journey must be valid; earliestArrival must arrive exactly as early as possible;
+     * profile must list only undominated journeys, each arriving as early as possible for its
+     * departure, and must cover every departure time in the window.
+     *
+     * @param timetables The number of random timetables.
+     * @param seed       The seed of the timetables and queries.
+     */
+    void checkTimetables(int timetables, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int t = 0; t < timetables; t++) {
+            int airports = 3 + random.nextInt(4);
+            Graph graph = new Graph();
+            for (int id = 0; id < airports; id++) {
+                graph.addAirport(id);
+            }
+            Schedule schedule = new Schedule(graph);
+            int[] connectionMinutes = new int[airports];
+            for (int id = 0; id < airports; id++) {
+                connectionMinutes[id] = random.nextInt(3) == 0 ? 0 : random.nextInt(15);
+                schedule.setConnectionTime(id, connectionMinutes[id]);
+            }
+            int[][] flights = new int[4 + random.nextInt(20)][];
+            for (int f = 0; f < flights.length; f++) {
+                int from = random.nextInt(airports);
+                int to = (from + 1 + random.nextInt(airports - 1)) % airports;
+                int departure = random.nextInt(120);
+                int arrival = departure + (random.nextInt(4) == 0 ? 0 : random.nextInt(60));
+                flights[f] = new int[]{from, to, departure, arrival};
+                schedule.addFlight(from, to, departure, arrival);
+            }
+            Timetable timetable = schedule.compile();
+
+            int startId = random.nextInt(airports);
+            int destinationId = (startId + 1 + random.nextInt(airports - 1)) % airports;
+            int departure = random.nextInt(60);
+            String name = "timetable " + t + " " + startId + "->" + destinationId;
+            int expected = earliestArrival(flights, connectionMinutes, startId, destinationId, departure);
+            Journey journey = timetable.earliestArrival(startId, destinationId, departure);
+            checkJourney(name + " earliestArrival@" + departure, journey, flights, connectionMinutes, startId,
+                    destinationId, departure, expected);
+
+            int windowEnd = departure + random.nextInt(60);
+            List<Journey> profile = timetable.profile(startId, destinationId, departure, windowEnd);
+            for (int i = 0; i < profile.size(); i++) {
+                Journey leg = profile.get(i);
+                int leaves = leg.isFound() ? leg.getDepartureTime() : departure;
+                checkJourney(name + " profile@" + leaves, leg, flights, connectionMinutes, startId, destinationId,
+                        departure, earliestArrival(flights, connectionMinutes, startId, destinationId, leaves));
+                if (i > 0 && (leaves <= profile.get(i - 1).getDepartureTime()
+                        || leg.getArrivalTime() <= profile.get(i - 1).getArrivalTime())) {
+                    fail(name + " profile: journey " + i + " is out of order or dominates the one before");
+                }
+            }
+            for (int[] flight : flights) {
+                int leaves = flight[2];
+                if (flight[0] != startId || leaves < departure || leaves > windowEnd) continue;
+                int best = earliestArrival(flights, connectionMinutes, startId, destinationId, leaves);
+                boolean covered = best == SearchContext.INFINITY  // Or beaten by a journey leaving after the window
+                        || earliestArrival(flights, connectionMinutes, startId, destinationId, windowEnd + 1) <= best;
+                for (Journey leg : profile) {
+                    covered |= leg.getDepartureTime() >= leaves && leg.getArrivalTime() <= best;
+                }
+                checks++;
+                if (!covered) {
+                    fail(name + " profile: nothing leaving at or after " + leaves + " arrives by " + best);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that a journey only takes scheduled flights, changes planes in time and arrives
+     * when expected.
+     *
+     * @param name              The description printed if the check fails.
+     * @param journey           The journey to check.
+     * @param flights           The from, to, departure and arrival of each scheduled flight.
+     * @param connectionMinutes The minimum connection time of each airport.
+     * @param startId           The ID of the starting airport.
+     * @param destinationId     The ID of the destination airport.
+     * @param departure         The earliest departure time.
+     * @param expected          The earliest possible arrival, or SearchContext.INFINITY if there is none.
+     */
+    private void checkJourney(String name, Journey journey, int[][] flights, int[] connectionMinutes, int startId,
+                              int destinationId, int departure, int expected) {
+        checks++;
+        if (!journey.isFound()) {
+            if (expected != SearchContext.INFINITY) {
+                fail(name + ": no journey, expected arrival " + expected);
+            }
+            return;
+        }
+        List<Integer> path = journey.getPath();
+        int ready = departure;
+        for (int leg = 0; leg < journey.getFlightCount(); leg++) {
+            int from = path.get(leg);
+            int to = path.get(leg + 1);
+            int leaves = journey.getDepartureTime(leg);
+            int arrives = journey.getArrivalTime(leg);
+            boolean scheduled = false;
+            for (int[] flight : flights) {
+                scheduled |= flight[0] == from && flight[1] == to && flight[2] == leaves && flight[3] == arrives;
+            }
+            if (!scheduled || leaves < ready) {
+                fail(name + ": leg " + leg + " of " + path + " is not scheduled or leaves too early");
+                return;
+            }
+            ready = arrives + connectionMinutes[to];
+        }
+        if (path.get(0) != startId || path.get(path.size() - 1) != destinationId
+                || journey.getArrivalTime() != expected) {
+            fail(name + ": " + path + " arrives " + journey.getArrivalTime() + ", expected " + expected);
+        }
+    }
+
+    /**
+     * Computes the earliest arrival by relaxing every flight until nothing improves. Arriving
+     * earlier at an airport never hurts, since a traveler can wait, so the earliest arrival per
+     * airport is all the state needed.
+     *
+     * @param flights           The from, to, departure and arrival of each scheduled flight.
+     * @param connectionMinutes The minimum connection time of each airport.
+     * @param startId           The ID of the starting airport.
+     * @param destinationId     The ID of the destination airport.
+     * @param departure         The earliest departure time.
+     * @return The earliest arrival, or SearchContext.INFINITY if the destination cannot be reached.
+     */
+    static int earliestArrival(int[][] flights, int[] connectionMinutes, int startId, int destinationId,
+                               int departure) {
+        long[] arrival = new long[connectionMinutes.length];
+        Arrays.fill(arrival, Long.MAX_VALUE);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int[] flight : flights) {
+                long ready = flight[0] == startId ? departure
+                        : arrival[flight[0]] == Long.MAX_VALUE ? Long.MAX_VALUE : arrival[flight[0]] + connectionMinutes[flight[0]];
+                if (ready <= flight[2] && flight[3] < arrival[flight[1]]) {
+                    arrival[flight[1]] = flight[3];
+                    changed = true;
+                }
+            }
+        }
+        return arrival[destinationId] == Long.MAX_VALUE ? SearchContext.INFINITY : (int) arrival[destinationId];
+    }
+
+    /**
+     * Counts and prints a failed check.
+     *
+     * @param message What went wrong.
+     */
+    private void fail(String message) {
+        failures++;
+        System.out.println("MISMATCH " + message);
+    }
+
+    /**
+     * Runs one engine.
+     *
+     * @param graph         The graph to query.
+     * @param engine        The name of the Graph method to call.
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion.
+     * @return The path the engine found.
+     */
+    private static List<Integer> query(Graph graph, String engine, int startId, int destinationId, String criterion) {
+        switch (engine) {
+            case "dijkstra":
+                return graph.dijkstra(startId, destinationId, criterion);
+            case "bidirectionalDijkstra":
+                return graph.bidirectionalDijkstra(startId, destinationId, criterion);
+            case "aStar":
+                return graph.aStar(startId, destinationId, criterion);
+            case "landmarkAStar":
+                return graph.landmarkAStar(startId, destinationId, criterion);
+            default:
+                return graph.contractionHierarchyPath(startId, destinationId, criterion);
+        }
+    }
+
+    /**
+     * Checks that a path is a valid path between two airports with the expected length.
+     *
+     * @param name          The description printed if the check fails.
+     * @param snapshot      The snapshot the path must exist in.
+     * @param criterion     The criterion the length is measured in.
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param path          The path to check.
+     * @param expected      The shortest length, or SearchContext.INFINITY if there is no path.
+     */
+    void check(String name, GraphSnapshot snapshot, String criterion, int startId, int destinationId,
+               List<Integer> path, int expected) {
+        checks++;
+        int actual = pathLength(snapshot, criterion, path);
+        boolean ok;
+        if (expected == SearchContext.INFINITY) {
+            ok = path.isEmpty();
+        } else {
+            ok = !path.isEmpty() && path.get(0) == startId && path.get(path.size() - 1) == destinationId
+                    && actual == expected;
+        }
+        if (!ok) {
+            failures++;
+            System.out.println("MISMATCH " + name + ": expected " + expected + ", got " + actual + " for " + path);
+        }
+    }
+
+    /**
+     * Measures a path using the cheapest route between each pair of consecutive airports.
+     *
+     * @param snapshot  The snapshot the path must exist in.
+     * @param criterion The criterion the length is measured in.
+     * @param path      The airport IDs along the path.
+     * @return The length, -1 if two consecutive airports are not connected.
+     */
+    static int pathLength(GraphSnapshot snapshot, String criterion, List<Integer> path) {
+        int[] offsets = snapshot.offsets();
+        int[] targets = snapshot.targets();
+        int[] weights = snapshot.weights(Criterion.parse(criterion));
+        int length = 0;
+        for (int i = 0; i + 1 < path.size(); i++) {
+            int from = snapshot.indexOf(path.get(i));
+            int to = snapshot.indexOf(path.get(i + 1));
+            int best = -1;
+            for (int edge = from < 0 ? 0 : offsets[from]; from >= 0 && edge < offsets[from + 1]; edge++) {
+                if (targets[edge] == to && (best < 0 || weights[edge] < best)) {
+                    best = weights[edge];
+                }
+            }
+            if (best < 0) {
+                return -1;
+            }
+            length += best;
+        }
+        return length;
+    }
+
+    /**
+     * Computes the shortest distance between two airports with a textbook Dijkstra that
+     * shares no code with the engines.
+     *
+     * @param snapshot      The snapshot to search.
+     * @param startId       The ID of the starting airport.
+     * @param destinationId The ID of the destination airport.
+     * @param criterion     The criterion to minimize.
+     * @return The distance, or SearchContext.INFINITY if there is no path.
+     */
+    static int referenceDistance(GraphSnapshot snapshot, int startId, int destinationId, String criterion) {
+        int start = snapshot.indexOf(startId);
+        int destination = snapshot.indexOf(destinationId);
+        if (start < 0 || destination < 0) {
+            return SearchContext.INFINITY;
+        }
+        int[] offsets = snapshot.offsets();
+        int[] targets = snapshot.targets();
+        int[] weights = snapshot.weights(Criterion.parse(criterion));
+        long[] dist = new long[snapshot.nodeCount()];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        dist[start] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[]{0, start});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int node = (int) entry[1];
+            if (entry[0] > dist[node]) continue;  // Stale entry
+            if (node == destination) {
+                return (int) entry[0];
+            }
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                long candidate = entry[0] + weights[edge];
+                if (candidate < dist[targets[edge]]) {
+                    dist[targets[edge]] = candidate;
+                    queue.add(new long[]{candidate, targets[edge]});
+                }
+            }
+        }
+        return SearchContext.INFINITY;
+    }
+
+    /**
+     * Runs every check and exits with status 1 if any failed.
+     *
+     * @param args The options, see the class comment.
+     */
+    public static void main(String[] args) {
+        int airports = 2000;
+        int averageRoutes = 6;
+        int queries = 300;
+        long seed = 7;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--airports":
+                    airports = Integer.parseInt(args[++i]);
+                    break;
+                case "--routes":
+                    averageRoutes = Integer.parseInt(args[++i]);
+                    break;
+                case "--queries":
+                    queries = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        RouteChecks checks = new RouteChecks();
+        checks.crossCheckEngines(airports, averageRoutes, queries, seed);
+        checks.checkTreeRepairs();
+        checks.checkKShortestPaths(10 * queries, seed);
+        checks.checkMultiCriteriaRoutes(10 * queries, seed);
+        checks.checkTimetables(20 * queries, seed);
+        System.out.println(checks.checks + " checks, " + checks.failures + " failed");
+        if (checks.failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RoutingLoadTest class measures the throughput and latency of RoutingService with a
+ * local load generator. It starts the service in-process on a generated network and runs a
+ * number of clients that each send route queries back to back over HTTP for a fixed time.
+ * Most queries start at a few hub airports, as real traffic does, so concurrent queries often
+ * share a start and the batcher can merge them. Each configuration runs with batching off
+ * (--max-batch 1) and on, and reports queries per second, latency percentiles, the average
+ * number of queries per search and the number of queries rejected by backpressure.
+ *
+ * Usage: RoutingLoadTest [--airports 50000] [--routes 8] [--clients 64] [--seconds 10]
+ *                        [--threads n] [--hubs 4] [--max-in-flight 1024]
+ */
+final class RoutingLoadTest {
+    static final double HUB_SHARE = 0.8;  // Share of queries that start at a hub
+    static final long SEED = 42;  // Seed of the network and the query mix
+
+    private final Graph graph;  // The network the service answers queries on
+    private final int airports;  // Number of airports in the network
+    private final int hubs;  // Number of airports most queries start at
+
+    /**
+     * Constructor to create a load test on a network.
+     *
+     * @param graph    The network.
+     * @param airports The number of airports, whose IDs are 0 to airports - 1.
+     * @param hubs     The number of airports most queries start at.
+     */
+    RoutingLoadTest(Graph graph, int airports, int hubs) {
+        this.graph = graph;
+        this.airports = airports;
+        this.hubs = hubs;
+    }
+
+    /**
+     * Runs one configuration: starts a service, loads it and stops it again.
+     *
+     * @param threads      The number of search threads of the service.
+     * @param maxInFlight  The most queries the service accepts at once.
+     * @param maxBatchSize The most queries one search answers.
+     * @param clients      The number of concurrent clients.
+     * @param seconds      How long to measure.
+     * @throws Exception If the service cannot be started or a client fails.
+     */
+    void run(int threads, int maxInFlight, int maxBatchSize, int clients, int seconds) throws Exception {
+        RoutingService service = new RoutingService(graph, 0, threads, maxInFlight, maxBatchSize);
+        service.start();
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + service.getPort() + "/route";
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            load(pool, http, base, clients, 2, SEED + 1);  // Warm up the JIT and the connections
+            long searchesBefore = service.getBatcher().getSearchCount();
+            long queriesBefore = service.getBatcher().getQueryCount();
+            long rejectedBefore = service.getRejectedCount();
+
+            long begin = System.nanoTime();
+            long[] latencies = load(pool, http, base, clients, seconds, SEED);
+            double elapsed = (System.nanoTime() - begin) / 1e9;
+
+            long searches = service.getBatcher().getSearchCount() - searchesBefore;
+            long queries = service.getBatcher().getQueryCount() - queriesBefore;
+            long rejected = service.getRejectedCount() - rejectedBefore;
+            Arrays.sort(latencies);
+            System.out.printf("%-10d %-8d %-10d %12.0f %10.2f %10.2f %10.2f %10.2f %10d%n",
+                    maxBatchSize, clients, maxInFlight, queries / elapsed,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    searches == 0 ? 0 : (double) queries / searches, rejected);
+        } finally {
+            pool.shutdownNow();
+            service.stop();
+        }
+    }
+
+    /**
+     * Runs the clients for a while and collects the latency of every answered query.
+     *
+     * @param pool    The threads the clients run on.
+     * @param http    The HTTP client shared by the clients.
+     * @param base    The URL of the route endpoint.
+     * @param clients The number of clients.
+     * @param seconds How long to run.
+     * @param seed    The seed of the query mix.
+     * @return The latencies in nanoseconds, unsorted.
+     * @throws Exception If a client fails.
+     */
+    private long[] load(ExecutorService pool, HttpClient http, String base, int clients, int seconds, long seed)
+            throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<long[]>> results = new ArrayList<>();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int c = 0; c < clients; c++) {
+            SplittableRandom random = seeds.split();
+            results.add(pool.submit(() -> client(http, base, random, deadline)));
+        }
+        List<long[]> all = new ArrayList<>();
+        int total = 0;
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            all.add(latencies);
+            total += latencies.length;
+        }
+        long[] merged = new long[total];
+        int at = 0;
+        for (long[] latencies : all) {
+            System.arraycopy(latencies, 0, merged, at, latencies.length);
+            at += latencies.length;
+        }
+        return merged;
+    }
+
+    /**
+     * Sends queries one after another until the deadline. A rejected query is not retried;
+     * the client waits a moment, as a well-behaved client would on 503.
+     *
+     * @param http     The HTTP client.
+     * @param base     The URL of the route endpoint.
+     * @param random   The source of the query mix.
+     * @param deadline The System.nanoTime at which to stop.
+     * @return The latency of every answered query in nanoseconds.
+     * @throws IOException          If a request fails.
+     * @throws InterruptedException If the client is interrupted.
+     */
+    private long[] client(HttpClient http, String base, SplittableRandom random, long deadline)
+            throws IOException, InterruptedException {
+        long[] latencies = new long[1024];
+        int count = 0;
+        String[] criteria = {"cost", "distance", "time"};
+        while (System.nanoTime() < deadline) {
+            int from = random.nextDouble() < HUB_SHARE ? random.nextInt(hubs) * (airports / hubs)
+                    : random.nextInt(airports);
+            int to = random.nextInt(airports);
+            String criterion = criteria[random.nextInt(criteria.length)];
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create(base + "?from=" + from + "&to=" + to + "&criterion=" + criterion)).build();
+            long begin = System.nanoTime();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            long latency = System.nanoTime() - begin;
+            if (response.statusCode() == 503) {
+                Thread.sleep(10);
+                continue;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("Unexpected status " + response.statusCode() + ": " + response.body());
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    /**
+     * Reads a percentile from sorted latencies.
+     *
+     * @param sorted   The latencies in nanoseconds, sorted.
+     * @param quantile The quantile, between 0 and 1.
+     * @return The latency at the quantile in milliseconds.
+     */
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) (quantile * sorted.length))] / 1e6;
+    }
+
+    /**
+     * Runs the load test with and without batching and prints one line per run.
+     *
+     * @param args The options, see the class comment.
+     * @throws Exception If a run fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int airports = 50_000;
+        int averageRoutes = 8;
+        int clients = 64;
+        int seconds = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hubs = 4;
+        int maxInFlight = RoutingService.DEFAULT_MAX_IN_FLIGHT;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--airports":
+                    airports = Integer.parseInt(args[++i]);
+                    break;
+                case "--routes":
+                    averageRoutes = Integer.parseInt(args[++i]);
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--hubs":
+                    hubs = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-in-flight":
+                    maxInFlight = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        Graph graph = new NetworkGenerator(airports, averageRoutes, SEED).generateGraph();
+        RoutingLoadTest test = new RoutingLoadTest(graph, airports, hubs);
+        System.out.println("airports=" + airports + " averageRoutes=" + averageRoutes + " threads=" + threads
+                + " hubs=" + hubs);
+        System.out.printf("%-10s %-8s %-10s %12s %10s %10s %10s %10s %10s%n", "maxBatch", "clients", "inFlight",
+                "queries/s", "p50 ms", "p99 ms", "p99.9 ms", "batch", "rejected");
+        for (int maxBatch : new int[]{1, RoutingService.DEFAULT_MAX_BATCH}) {
+            test.run(threads, maxInFlight, maxBatch, clients, seconds);
+        }
+        // Overload: more clients than the service accepts, so backpressure turns queries away
+        int overloadClients = Math.max(clients * 2, 8);
+        test.run(threads, Math.max(1, overloadClients / 8), RoutingService.DEFAULT_MAX_BATCH, overloadClients, seconds);
+    }
+}